@@ -0,0 +1,105 @@
+package local.tools.bin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-value cost of BinaryReader primitive and string decoding.
+ * Each invocation decodes COUNT values, scores are reported per value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryReaderBenchmarks {
+
+    private static final int COUNT = 100_000;
+
+    private interface Encoder {
+        void write(BinaryWriter writer, int index) throws IOException;
+    }
+
+    @Param({"LittleEndian", "BigEndian"})
+    public EndianType endianType;
+
+    /* 0 reads through the per-byte NumberReader, otherwise through BufferedNumberReader */
+    @Param({"0", "65536"})
+    public int bufferSize;
+
+    private byte[] ints;
+    private byte[] longs;
+    private byte[] strings;
+
+    @Setup
+    public void setUp() throws IOException {
+        ints = encode((writer, i) -> writer.writeInt(i * 31));
+        longs = encode((writer, i) -> writer.writeLong(i * 1_000_003L));
+        strings = encode((writer, i) -> writer.writeBytes((i % 2 == 0 ? "StdGeographyName_" : "value ") + i));
+    }
+
+    private byte[] encode(Encoder encoder) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryWriter writer = new BinaryWriter(output, endianType);
+        for (int i = 0; i < COUNT; ++i) {
+            encoder.write(writer, i);
+        }
+        writer.flush();
+        return output.toByteArray();
+    }
+
+    private BinaryReader newReader(byte[] data) {
+        ByteArrayInputStream input = new ByteArrayInputStream(data);
+        return bufferSize == 0 ?
+                new BinaryReader(input, endianType) :
+                new BinaryReader(input, endianType, bufferSize);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long readInt() throws IOException {
+        BinaryReader reader = newReader(ints);
+        long sum = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            sum += reader.readInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long readLong() throws IOException {
+        BinaryReader reader = newReader(longs);
+        long sum = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            sum += reader.readLong();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long readString() throws IOException {
+        BinaryReader reader = newReader(strings);
+        long length = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            length += reader.readString().length();
+        }
+        return length;
+    }
+}
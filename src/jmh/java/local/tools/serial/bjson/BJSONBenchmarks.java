@@ -0,0 +1,108 @@
+package local.tools.serial.bjson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import local.tools.io.File;
+import local.tools.serial.json.discovery.JSONArray;
+import local.tools.serial.json.discovery.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BJSON encoding and decoding of the bundled fixtures.
+ * Object fixtures go through BJSONWriter.writeBJSONObject, array fixtures through writeBJSONArray.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2048M")
+public class BJSONBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Fixture {
+        @Param({"big_obj.json", "big_obj_p.json", "big_array.json", "big_array_p.json"})
+        public String filename;
+
+        @Param({"false", "true"})
+        public boolean prefixedStrings;
+
+        public BJSONNode node;
+        public byte[] encoded;
+
+        @Setup
+        public void setUp() throws Exception {
+            String text = File.readAllText(filename).trim();
+            node = text.startsWith("[") ?
+                    new BJSONArray(new JSONArray(text)) :
+                    new BJSONObject(new JSONObject(text));
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            newWriter(output, prefixedStrings).writeBJSONNode(node);
+            encoded = output.toByteArray();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MappedFixture {
+        public Path file;
+        public MappedBJSONReader reader;
+
+        @Setup
+        public void setUp(Fixture fixture) throws IOException {
+            file = Files.createTempFile("bjson-benchmark", ".bjson");
+            Files.write(file, fixture.encoded);
+            reader = new MappedBJSONReader(file.toString());
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            reader.close();
+            Files.delete(file);
+        }
+    }
+
+    private static BJSONWriter newWriter(ByteArrayOutputStream output, boolean prefixedStrings) {
+        BJSONWriter writer = new BJSONWriter(output);
+        writer.setPrefixedStrings(prefixedStrings);
+        return writer;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream write(Fixture fixture) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(fixture.encoded.length);
+        newWriter(output, fixture.prefixedStrings).writeBJSONNode(fixture.node);
+        return output;
+    }
+
+    @Benchmark
+    public Object read(Fixture fixture) throws IOException {
+        BJSONReader reader = new BJSONReader(new ByteArrayInputStream(fixture.encoded));
+        return reader.readBJSONNode();
+    }
+
+    @Benchmark
+    public Object readMapped(MappedFixture fixture) throws IOException {
+        return fixture.reader.readBJSONNode(fixture.reader.getStart());
+    }
+
+    @Benchmark
+    public Object readBuffered(Fixture fixture) throws IOException {
+        BJSONReader reader = new BJSONReader(new ByteArrayInputStream(fixture.encoded), true, 64 * 1024);
+        return reader.readBJSONNode();
+    }
+}
@@ -0,0 +1,75 @@
+package local.tools.serial.bjson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A numeric vector written element by element with a type tag each
+ * against the same vector written as a packed Float64Array.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2048M")
+public class BJSONPackedArrayBenchmarks {
+
+    private static final int COUNT = 1_000_000;
+
+    @State(Scope.Benchmark)
+    public static class Fixture {
+        @Param({"false", "true"})
+        public boolean packed;
+
+        public BJSONArray vector;
+        public byte[] encoded;
+
+        @Setup
+        public void setUp() throws IOException {
+            Random random = new Random(42);
+            double[] values = new double[COUNT];
+            for (int i = 0; i < COUNT; i++) {
+                values[i] = random.nextDouble();
+            }
+            if (packed) {
+                vector = BJSONPackedArray.of(values);
+            } else {
+                vector = new BJSONArray();
+                for (double value : values) {
+                    vector.add(value);
+                }
+            }
+            encoded = encode(vector).toByteArray();
+        }
+    }
+
+    private static ByteArrayOutputStream encode(BJSONArray vector) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(COUNT * 9 + 16);
+        new BJSONWriter(output).writeBJSONNode(vector);
+        return output;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream write(Fixture fixture) throws IOException {
+        return encode(fixture.vector);
+    }
+
+    @Benchmark
+    public Object read(Fixture fixture) throws IOException {
+        return new BJSONReader(new ByteArrayInputStream(fixture.encoded)).readBJSONNode();
+    }
+}
@@ -0,0 +1,86 @@
+package local.tools.serial.json.discovery;
+
+import java.util.concurrent.TimeUnit;
+import local.tools.io.File;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JSON discovery parsing and printing over the bundled fixtures.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2048M")
+public class JSONBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class ObjectFixture {
+        @Param({"big_obj.json", "big_obj_p.json"})
+        public String filename;
+
+        public String text;
+        public JSONObject object;
+
+        @Setup
+        public void setUp() throws Exception {
+            text = File.readAllText(filename);
+            object = new JSONObject(text);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ArrayFixture {
+        @Param({"big_array.json", "big_array_p.json"})
+        public String filename;
+
+        public String text;
+        public JSONArray array;
+
+        @Setup
+        public void setUp() throws Exception {
+            text = File.readAllText(filename);
+            array = new JSONArray(text);
+        }
+    }
+
+    @Benchmark
+    public JSONObject parseObject(ObjectFixture fixture) {
+        return new JSONObject(fixture.text);
+    }
+
+    /**
+     * Lazy parse followed by a single deep lookup, compare with parseObject.
+     */
+    @Benchmark
+    public Object parseObjectLazy(ObjectFixture fixture) {
+        return new JSONObject(fixture.text, true)
+                .getJSONArray("results").getJSONObject(0)
+                .getJSONObject("value").get("FeatureSet");
+    }
+
+    @Benchmark
+    public JSONArray parseArray(ArrayFixture fixture) {
+        return new JSONArray(fixture.text);
+    }
+
+    @Benchmark
+    public String printObject(ObjectFixture fixture) {
+        return fixture.object.toString(2);
+    }
+
+    @Benchmark
+    public String printArray(ArrayFixture fixture) {
+        return fixture.array.toString(2);
+    }
+}
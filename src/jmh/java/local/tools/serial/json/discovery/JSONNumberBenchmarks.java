@@ -0,0 +1,94 @@
+package local.tools.serial.json.discovery;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Number conversion on a number-dense document: the single pass scanner
+ * against the exception driven Integer, Long, Double chain it replaced.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2048M")
+public class JSONNumberBenchmarks {
+
+    private static final int COUNT = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Fixture {
+        public String[] tokens;
+        public String text;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(42);
+            tokens = new String[COUNT];
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < COUNT; i++) {
+                switch (i % 3) {
+                    case 0:
+                        tokens[i] = Integer.toString(random.nextInt());
+                        break;
+                    case 1:
+                        tokens[i] = Long.toString(random.nextLong());
+                        break;
+                    default:
+                        tokens[i] = Double.toString(Math.round(random.nextDouble() * 1e8) / 1e4);
+                }
+                sb.append(i == 0 ? "" : ",").append(tokens[i]);
+            }
+            text = sb.append(']').toString();
+        }
+    }
+
+    @Benchmark
+    public void scanTokens(Fixture fixture, Blackhole blackhole) {
+        for (String token : fixture.tokens) {
+            blackhole.consume(JSONNumberScanner.scan(token, 0, token.length()));
+        }
+    }
+
+    @Benchmark
+    public void legacyTokens(Fixture fixture, Blackhole blackhole) {
+        for (String token : fixture.tokens) {
+            blackhole.consume(legacyValue(token));
+        }
+    }
+
+    @Benchmark
+    public JSONArray parseNumberArray(Fixture fixture) {
+        return new JSONArray(fixture.text);
+    }
+
+    /**
+     * Number conversion of JSONTokener.stringToValue before the scanner was introduced.
+     */
+    private static Object legacyValue(String s) {
+        try {
+            return Integer.valueOf(s);
+        } catch (Exception e) {
+            try {
+                return Long.valueOf(s);
+            } catch (Exception f) {
+                try {
+                    return Double.valueOf(s);
+                } catch (Exception g) {
+                    return s;
+                }
+            }
+        }
+    }
+}
@@ -95,22 +95,22 @@ public class BigEndianNumberWriter implements NumberWriter {
     //<editor-fold defaultstate="collapsed" desc="Unsigned Primitives">
     @Override
     public void writeUInt8(UInt8 v) throws IOException {
-        target.write(v.getBytes());
+        target.write(v.intValue());
     }
     
     @Override
     public void writeUInt16(UInt16 v) throws IOException {
-        target.write(v.getBytes());
+        writeShort(v.intValue());
     }
     
     @Override
     public void writeUInt32(UInt32 v) throws IOException {
-        target.write(v.getBytes());
+        writeInt(v.intValue());
     }
     
     @Override
     public void writeUInt64(UInt64 v) throws IOException {
-        target.write(v.getBytes());
+        writeLong(v.longValue());
     }
     //</editor-fold>
 }
@@ -1,12 +1,14 @@
 package local.tools.bin;
 
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.List;
 
 import local.tools.code.Verify;
 import local.tools.serial.primitives.Float32;
@@ -28,12 +30,23 @@ public final class BinaryReader extends InputStream implements AutoCloseable {
     private final static char NL = '\n';
     private final static char CR = '\r';
 
+    /* Bytes scanned at once while looking for EOL in a markable source */
+    private final static int SCAN_SIZE = 256;
+
+    /* Bytes decoded at once by the bulk array readers */
+    private final static int CHUNK_SIZE = 8 * 1024;
+
     private final InputStream source;
     private final EndianType endianType;
 
     private NumberReader numberReader;
+    private BufferedSource buffered;
     private long position = 0;
 
+    // Reused by readString, grows up to the longest string read
+    private byte[] stringBuffer = new byte[SCAN_SIZE];
+    private ByteBuffer chunk;
+
     //TODO
     // - [x] - Make reading primitive types by byte arrays - int - byte[4], long - byte[8]
     // - [ ] - Make handling -1 byte while reading e.g. Int32 [1, 2, 3, -1] - should throw IOException ??
@@ -46,6 +59,21 @@ public final class BinaryReader extends InputStream implements AutoCloseable {
         init();
     }
 
+    /**
+     * Reads through a BufferedNumberReader of the given size. The source is read
+     * ahead, so it should not be used directly afterwards.
+     */
+    public BinaryReader(InputStream source, EndianType endianType, int bufferSize) {
+        this(new BufferedNumberReader(source, endianType, bufferSize), endianType);
+    }
+
+    /**
+     * Reads from the remaining bytes of the buffer (see ByteBufferNumberReader).
+     */
+    public BinaryReader(ByteBuffer source, EndianType endianType) {
+        this(new ByteBufferNumberReader(source, endianType), endianType);
+    }
+
     public BinaryReader(String filename, EndianType endianType) throws FileNotFoundException {
         this(new FileInputStream(filename), endianType);
     }
@@ -59,6 +87,11 @@ public final class BinaryReader extends InputStream implements AutoCloseable {
     }
 
     private void init() {
+        if (source instanceof BufferedSource) {
+            buffered = (BufferedSource) source;
+            numberReader = buffered;
+            return;
+        }
         switch (endianType) {
             case BigEndian:
                 numberReader = new BigEndianNumberReader(source);
@@ -75,10 +108,22 @@ public final class BinaryReader extends InputStream implements AutoCloseable {
         return position;
     }
 
+    /**
+     * Skips count bytes, less only if the source ends first.
+     */
     @Override
     public long skip(long count) throws IOException {
-        this.position += count;
-        return source.skip(count);
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = source.skip(remaining);
+            if (skipped <= 0) {
+                if (source.read() < 0) break;
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+        this.position += count - remaining;
+        return count - remaining;
     }
 
     public void seek(long position) throws IOException {
@@ -119,6 +164,37 @@ public final class BinaryReader extends InputStream implements AutoCloseable {
         return r;
     }
 
+    /**
+     * Reads exactly count bytes into the buffer.
+     *
+     * @throws EOFException if the source ends first.
+     */
+    public void readFully(byte[] buffer, int index, int count) throws IOException {
+        while (count > 0) {
+            int r = source.read(buffer, index, count);
+            if (r < 0) throw new EOFException("Expected " + count + " more bytes.");
+            this.position += r;
+            index += r;
+            count -= r;
+        }
+    }
+
+    /**
+     * Reads the next count bytes. Memory sources (ByteBuffer, mapped file) return
+     * a read-only view of their memory, other sources a buffer over a new array.
+     *
+     * @throws EOFException if the source ends first.
+     */
+    public ByteBuffer readBuffer(int count) throws IOException {
+        if (buffered != null) {
+            this.position += count;
+            return buffered.readBuffer(count);
+        }
+        byte[] data = new byte[count];
+        readFully(data, 0, count);
+        return ByteBuffer.wrap(data);
+    }
+
     //TODO: Method need to throw IO if less than count bytes read
     public byte[] readBytes(int count) throws IOException {
         byte[] bytes = new byte[count];
@@ -209,6 +285,30 @@ public final class BinaryReader extends InputStream implements AutoCloseable {
         this.position += Long.BYTES;
         return numberReader.readUInt64();
     }
+    
+    public int readUInt8AsInt() throws IOException {
+        this.position += Byte.BYTES;
+        return numberReader.readUInt8AsInt();
+    }
+    
+    public int readUInt16AsInt() throws IOException {
+        this.position += Short.BYTES;
+        return numberReader.readUInt16AsInt();
+    }
+    
+    public long readUInt32AsLong() throws IOException {
+        this.position += Integer.BYTES;
+        return numberReader.readUInt32AsLong();
+    }
+    
+    /**
+     * @return the 64 bits of the unsigned value, to be compared with
+     * Long.compareUnsigned and printed with Long.toUnsignedString.
+     */
+    public long readUInt64AsLong() throws IOException {
+        this.position += Long.BYTES;
+        return numberReader.readUInt64AsLong();
+    }
 
     public Float32 readFloat32() throws IOException {
         this.position += Float.BYTES;
@@ -221,24 +321,209 @@ public final class BinaryReader extends InputStream implements AutoCloseable {
     }
     //</editor-fold>
 
+    //<editor-fold defaultstate="collapsed" desc="Read Varints">
+    /**
+     * Reads an unsigned LEB128 value written by BinaryWriter.writeVarInt.
+     *
+     * @throws EOFException if the source ends inside the value.
+     */
+    public int readVarInt() throws IOException {
+        long value = readVarLong();
+        if ((value >>> 32) != 0) throw new IOException("Varint " + value + " exceeds 32 bits.");
+        return (int) value;
+    }
+
+    /**
+     * Reads an unsigned LEB128 value written by BinaryWriter.writeVarLong. Buffered
+     * and memory sources decode it in place.
+     *
+     * @throws EOFException if the source ends inside the value.
+     */
+    public long readVarLong() throws IOException {
+        if (buffered != null) {
+            long start = buffered.getPosition();
+            long value = buffered.readVarLong();
+            this.position += buffered.getPosition() - start;
+            return value;
+        }
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = read();
+            if (b < 0) throw new EOFException("Source ended inside a varint.");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Varint is longer than 10 bytes.");
+    }
+
+    /**
+     * Reads a zigzag encoded value written by BinaryWriter.writeSignedVarInt.
+     */
+    public int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Read Arrays">
+    /**
+     * Reads count values into the array from the offset, decoded in chunks with
+     * a single bulk copy each instead of one number reader call per value.
+     *
+     * @throws EOFException if the source ends first.
+     */
+    public void readInts(int[] values, int offset, int count) throws IOException {
+        ByteBuffer buffer = chunk();
+        int step = CHUNK_SIZE / Integer.BYTES;
+        for (int end = offset + count; offset < end; offset += step) {
+            int n = Math.min(step, end - offset);
+            readFully(buffer.array(), 0, n * Integer.BYTES);
+            buffer.asIntBuffer().get(values, offset, n);
+        }
+    }
+
+    public void readLongs(long[] values, int offset, int count) throws IOException {
+        ByteBuffer buffer = chunk();
+        int step = CHUNK_SIZE / Long.BYTES;
+        for (int end = offset + count; offset < end; offset += step) {
+            int n = Math.min(step, end - offset);
+            readFully(buffer.array(), 0, n * Long.BYTES);
+            buffer.asLongBuffer().get(values, offset, n);
+        }
+    }
+
+    public void readFloats(float[] values, int offset, int count) throws IOException {
+        ByteBuffer buffer = chunk();
+        int step = CHUNK_SIZE / Float.BYTES;
+        for (int end = offset + count; offset < end; offset += step) {
+            int n = Math.min(step, end - offset);
+            readFully(buffer.array(), 0, n * Float.BYTES);
+            buffer.asFloatBuffer().get(values, offset, n);
+        }
+    }
+
+    public void readDoubles(double[] values, int offset, int count) throws IOException {
+        ByteBuffer buffer = chunk();
+        int step = CHUNK_SIZE / Double.BYTES;
+        for (int end = offset + count; offset < end; offset += step) {
+            int n = Math.min(step, end - offset);
+            readFully(buffer.array(), 0, n * Double.BYTES);
+            buffer.asDoubleBuffer().get(values, offset, n);
+        }
+    }
+
+    private ByteBuffer chunk() {
+        if (chunk == null) {
+            ByteOrder order = endianType == EndianType.BigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            chunk = ByteBuffer.allocate(CHUNK_SIZE).order(order);
+        }
+        return chunk;
+    }
+    //</editor-fold>
+
     //<editor-fold defaultstate="collapsed" desc="Read Strings">    
+    /**
+     * Reads an UTF-8 string terminated by EOL or by the end of the source.
+     * <p>
+     * Markable sources (e.g. BufferedInputStream) are scanned in blocks: a block
+     * is read at once, and when it holds the terminator the source is reset
+     * and only the string bytes are skipped.
+     */
     public String readString() throws IOException {
-        List<Byte> buffer = new ArrayList<>();
+        if (buffered != null) {
+            long start = buffered.getPosition();
+            String result = buffered.readString();
+            this.position += buffered.getPosition() - start;
+            return result;
+        }
+        if (!source.markSupported()) {
+            return readStringByBytes();
+        }
+        int length = 0;
+        while (true) {
+            ensureStringBuffer(length + SCAN_SIZE);
+            source.mark(SCAN_SIZE);
+            int r = source.read(stringBuffer, length, SCAN_SIZE);
+            if (r <= 0) {
+                // end of source terminates the string as well
+                this.position += length + 1;
+                return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+            }
+            for (int i = length, end = length + r; i < end; ++i) {
+                if (stringBuffer[i] == EOL) {
+                    source.reset();
+                    skipFully(i - length + 1);
+                    this.position += i + 1;
+                    return new String(stringBuffer, 0, i, StandardCharsets.UTF_8);
+                }
+            }
+            length += r;
+        }
+    }
+
+    private String readStringByBytes() throws IOException {
+        int length = 0;
         while (true) {
-            byte b = (byte) read();
-            if ((char) b == END || (char) b == EOL) break;
-            buffer.add(b);
+            int b = source.read();
+            this.position += 1;
+            if (b < 0 || b == EOL) break;
+            ensureStringBuffer(length + 1);
+            stringBuffer[length++] = (byte) b;
         }
-        byte[] data = new byte[buffer.size()];
-        for (int i = 0, len = buffer.size(); i < len; ++i) {
-            data[i] = buffer.get(i);
+        return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensureStringBuffer(int capacity) {
+        if (stringBuffer.length < capacity) {
+            stringBuffer = Arrays.copyOf(stringBuffer, Math.max(capacity, stringBuffer.length * 2));
+        }
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            long skipped = source.skip(count);
+            if (skipped <= 0) {
+                if (source.read() < 0) throw new EOFException();
+                skipped = 1;
+            }
+            count -= skipped;
         }
-        return new String(data);
     }
 
+    /**
+     * Reads an UTF-8 string of the given length in bytes.
+     */
     public String readString(int length) throws IOException {
         byte[] data = readBytes(length);
-        return new String(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a string written by BinaryWriter.writePrefixedString: Int32 length
+     * in bytes followed by the UTF-8 bytes, decoded with a single bulk copy.
+     */
+    public String readPrefixedString() throws IOException {
+        int length = readInt();
+        if (length < 0) throw new IOException("Negative string length " + length + ".");
+        ensureStringBuffer(length);
+        readFully(stringBuffer, 0, length);
+        return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a string written by BinaryWriter.writeVarPrefixedString.
+     */
+    public String readVarPrefixedString() throws IOException {
+        int length = readVarInt();
+        if (length < 0) throw new IOException("Negative string length " + length + ".");
+        ensureStringBuffer(length);
+        readFully(stringBuffer, 0, length);
+        return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
     }
 
     public char[] readChars(int count) throws IOException {
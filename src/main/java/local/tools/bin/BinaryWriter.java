@@ -4,6 +4,9 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import local.tools.serial.primitives.Float32;
 import local.tools.serial.primitives.Float64;
 import local.tools.serial.primitives.Int16;
@@ -18,11 +21,19 @@ import local.tools.serial.primitives.UInt8;
 public class BinaryWriter extends OutputStream implements AutoCloseable {
 
     private final static char EOL = '\0';
+    
+    /* Bytes encoded at once by the bulk array writers */
+    private final static int CHUNK_SIZE = 8 * 1024;
+    
+    /* Longest LEB128 encoding of a long */
+    private final static int MAX_VARLONG_BYTES = 10;
 
     private final OutputStream target;
     private final EndianType endianType;
     
     private NumberWriter numberWriter;
+    private ByteBuffer chunk;
+    private final byte[] varint = new byte[MAX_VARLONG_BYTES];
        
     public BinaryWriter(OutputStream target, EndianType endianType) {
         this.target = target;
@@ -141,19 +152,41 @@ public class BinaryWriter extends OutputStream implements AutoCloseable {
     }
     
     public void writeUInt8(UInt8 value) throws IOException {
-        numberWriter.writeUInt8(value);
+        write(value.intValue());
     }
     
     public void writeUInt16(UInt16 value) throws IOException {
-        numberWriter.writeUInt16(value);
+        numberWriter.writeShort(value.intValue());
     }
     
     public void writeUInt32(UInt32 value) throws IOException {
-        numberWriter.writeUInt32(value);
+        numberWriter.writeInt(value.intValue());
     }
     
     public void writeUInt64(UInt64 value) throws IOException {
-        numberWriter.writeUInt64(value);
+        numberWriter.writeLong(value.longValue());
+    }
+    
+    public void writeUInt8(int value) throws IOException {
+        if (value < UInt8.MIN_VALUE || value > UInt8.MAX_VALUE) throw new IllegalArgumentException(String.format("Value '%d' is out of 1-Byte Unsigned Integer range.", value));
+        write(value);
+    }
+    
+    public void writeUInt16(int value) throws IOException {
+        if (value < UInt16.MIN_VALUE || value > UInt16.MAX_VALUE) throw new IllegalArgumentException(String.format("Value '%d' is out of 2-Byte Unsigned Integer range.", value));
+        numberWriter.writeShort(value);
+    }
+    
+    public void writeUInt32(long value) throws IOException {
+        if (value < UInt32.MIN_VALUE || value > UInt32.MAX_VALUE) throw new IllegalArgumentException(String.format("Value '%d' is out of 4-Byte Unsigned Integer range.", value));
+        numberWriter.writeInt((int) value);
+    }
+    
+    /**
+     * Writes the 64 bits as an unsigned value, see readUInt64AsLong.
+     */
+    public void writeUInt64(long bits) throws IOException {
+        numberWriter.writeLong(bits);
     }
     
     public void writeFloat32(Float32 value) throws IOException {
@@ -165,13 +198,126 @@ public class BinaryWriter extends OutputStream implements AutoCloseable {
     }
     //</editor-fold>
     
+    //<editor-fold defaultstate="collapsed" desc="Write Varints">
+    /**
+     * Writes the value as unsigned LEB128: 7 bits per byte, low bits first,
+     * the high bit set on all bytes but the last. Values below 128 take one byte,
+     * negative values five.
+     */
+    public void writeVarInt(int value) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * Writes the value as unsigned LEB128, up to ten bytes, with a single target write.
+     */
+    public void writeVarLong(long value) throws IOException {
+        byte[] bytes = varint;
+        int n = 0;
+        while ((value & ~0x7FL) != 0) {
+            bytes[n++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[n++] = (byte) value;
+        target.write(bytes, 0, n);
+    }
+    
+    /**
+     * Writes the zigzag encoded value as a varint, so small negative
+     * values are short as well: 0, -1, 1, -2... become 0, 1, 2, 3...
+     */
+    public void writeSignedVarInt(int value) throws IOException {
+        writeVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+    
+    public void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+    //</editor-fold>
+    
+    //<editor-fold defaultstate="collapsed" desc="Write Arrays">
+    /**
+     * Writes count values from the offset, encoded in chunks with a single
+     * bulk copy each instead of one number writer call per value.
+     */
+    public void writeInts(int[] values, int offset, int count) throws IOException {
+        ByteBuffer buffer = chunk();
+        int step = CHUNK_SIZE / Integer.BYTES;
+        for (int end = offset + count; offset < end; offset += step) {
+            int n = Math.min(step, end - offset);
+            buffer.asIntBuffer().put(values, offset, n);
+            target.write(buffer.array(), 0, n * Integer.BYTES);
+        }
+    }
+    
+    public void writeLongs(long[] values, int offset, int count) throws IOException {
+        ByteBuffer buffer = chunk();
+        int step = CHUNK_SIZE / Long.BYTES;
+        for (int end = offset + count; offset < end; offset += step) {
+            int n = Math.min(step, end - offset);
+            buffer.asLongBuffer().put(values, offset, n);
+            target.write(buffer.array(), 0, n * Long.BYTES);
+        }
+    }
+    
+    public void writeFloats(float[] values, int offset, int count) throws IOException {
+        ByteBuffer buffer = chunk();
+        int step = CHUNK_SIZE / Float.BYTES;
+        for (int end = offset + count; offset < end; offset += step) {
+            int n = Math.min(step, end - offset);
+            buffer.asFloatBuffer().put(values, offset, n);
+            target.write(buffer.array(), 0, n * Float.BYTES);
+        }
+    }
+    
+    public void writeDoubles(double[] values, int offset, int count) throws IOException {
+        ByteBuffer buffer = chunk();
+        int step = CHUNK_SIZE / Double.BYTES;
+        for (int end = offset + count; offset < end; offset += step) {
+            int n = Math.min(step, end - offset);
+            buffer.asDoubleBuffer().put(values, offset, n);
+            target.write(buffer.array(), 0, n * Double.BYTES);
+        }
+    }
+    
+    private ByteBuffer chunk() {
+        if (chunk == null) {
+            ByteOrder order = endianType == EndianType.BigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            chunk = ByteBuffer.allocate(CHUNK_SIZE).order(order);
+        }
+        return chunk;
+    }
+    //</editor-fold>
+    
     //<editor-fold defaultstate="collapsed" desc="Write Strings">
+    /**
+     * Writes the UTF-8 bytes of the string terminated by EOL.
+     */
     public final void writeBytes(String str) throws IOException {
-        byte[] data = str.getBytes();
+        byte[] data = str.getBytes(StandardCharsets.UTF_8);
         target.write(data);
         target.write(EOL);
     }
     
+    /**
+     * Writes Int32 length in bytes followed by the UTF-8 bytes of the string,
+     * see BinaryReader.readPrefixedString.
+     */
+    public final void writePrefixedString(String str) throws IOException {
+        byte[] data = str.getBytes(StandardCharsets.UTF_8);
+        numberWriter.writeInt(data.length);
+        target.write(data);
+    }
+    
+    /**
+     * Writes the UTF-8 byte length as a varint, then the bytes.
+     */
+    public final void writeVarPrefixedString(String str) throws IOException {
+        byte[] data = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(data.length);
+        target.write(data);
+    }
+    
     public final void writeChars(char[] chars) throws IOException {
         for (int i = 0; i < chars.length ; ++i) {
             writeChar(chars[i]);
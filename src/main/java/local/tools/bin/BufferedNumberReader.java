@@ -0,0 +1,323 @@
+package local.tools.bin;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import local.tools.serial.primitives.Float32;
+import local.tools.serial.primitives.Float64;
+import local.tools.serial.primitives.Int16;
+import local.tools.serial.primitives.Int32;
+import local.tools.serial.primitives.Int64;
+import local.tools.serial.primitives.Int8;
+import local.tools.serial.primitives.UInt16;
+import local.tools.serial.primitives.UInt32;
+import local.tools.serial.primitives.UInt64;
+import local.tools.serial.primitives.UInt8;
+
+/**
+ * NumberReader over an internal byte[] refilled from the source in large chunks.
+ * <p>
+ * Multi-byte values are read with a single byte array view VarHandle access in the
+ * configured byte order instead of one source.read() per byte. Being an InputStream
+ * itself, it replaces the source for every other read, so bytes and numbers stay
+ * in order. Unlike the unbuffered readers, a value cut by the end of the source
+ * throws EOFException.
+ */
+public class BufferedNumberReader extends InputStream implements BufferedSource {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /* Terminator of strings written by BinaryWriter.writeBytes */
+    private static final byte EOL = 0;
+
+    /* Longest LEB128 encoding of a long */
+    private static final int MAX_VARLONG_BYTES = 10;
+
+    //<editor-fold defaultstate="collapsed" desc="Views">
+    private static final VarHandle LE_SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LE_INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LE_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BE_SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BE_INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BE_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    //</editor-fold>
+
+    private final InputStream source;
+    private final VarHandle shortView;
+    private final VarHandle intView;
+    private final VarHandle longView;
+
+    private byte[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private long consumed = 0;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    public BufferedNumberReader(InputStream source, EndianType endianType, int bufferSize) {
+        if (bufferSize < Long.BYTES) throw new IllegalArgumentException("Buffer size must be at least " + Long.BYTES + " bytes.");
+        this.source = source;
+        this.buffer = new byte[bufferSize];
+        boolean bigEndian = endianType == EndianType.BigEndian;
+        this.shortView = bigEndian ? BE_SHORT : LE_SHORT;
+        this.intView = bigEndian ? BE_INT : LE_INT;
+        this.longView = bigEndian ? BE_LONG : LE_LONG;
+    }
+
+    public BufferedNumberReader(InputStream source, EndianType endianType) {
+        this(source, endianType, DEFAULT_BUFFER_SIZE);
+    }
+    //</editor-fold>
+
+    @Override
+    public long getPosition() {
+        return consumed + position;
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Buffer">
+    /**
+     * Makes at least count bytes available from position, reading as much as the buffer takes.
+     */
+    private void require(int count) throws IOException {
+        if (limit - position >= count) return;
+        if (!fill(count)) {
+            throw new EOFException("Expected " + count + " bytes, got " + (limit - position) + ".");
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the buffer start and reads until count bytes are available.
+     *
+     * @return false if the source ended first.
+     */
+    private boolean fill(int count) throws IOException {
+        int remaining = limit - position;
+        if (count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(count, buffer.length * 2));
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            consumed += position;
+            position = 0;
+            limit = remaining;
+        }
+        while (limit < count) {
+            int r = source.read(buffer, limit, buffer.length - limit);
+            if (r < 0) return false;
+            limit += r;
+        }
+        return true;
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="InputStream Methods">
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !fill(1)) return -1;
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] target, int index, int count) throws IOException {
+        if (count == 0) return 0;
+        int available = limit - position;
+        if (available == 0) {
+            if (count >= buffer.length) {
+                // large reads bypass the buffer
+                int r = source.read(target, index, count);
+                if (r > 0) consumed += r;
+                return r;
+            }
+            if (!fill(1)) return -1;
+            available = limit - position;
+        }
+        int r = Math.min(available, count);
+        System.arraycopy(buffer, position, target, index, r);
+        position += r;
+        return r;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        if (count <= 0) return 0;
+        int available = limit - position;
+        if (count <= available) {
+            position += (int) count;
+            return count;
+        }
+        position = limit;
+        long skipped = source.skip(count - available);
+        consumed += skipped;
+        return available + skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (limit - position) + source.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+    //</editor-fold>
+
+    /**
+     * Reads an UTF-8 string terminated by EOL or by the end of the source,
+     * scanning the buffer in place.
+     */
+    @Override
+    public String readString() throws IOException {
+        int from = position;
+        while (true) {
+            for (int i = from; i < limit; ++i) {
+                if (buffer[i] == EOL) {
+                    String result = new String(buffer, position, i - position, StandardCharsets.UTF_8);
+                    position = i + 1;
+                    return result;
+                }
+            }
+            int scanned = limit - position;
+            if (!fill(scanned + 1)) {
+                String result = new String(buffer, position, limit - position, StandardCharsets.UTF_8);
+                position = limit;
+                return result;
+            }
+            from = position + scanned;
+        }
+    }
+
+    /**
+     * Returns a copy of the next length bytes, the buffer is reused.
+     */
+    @Override
+    public ByteBuffer readBuffer(int length) throws IOException {
+        byte[] data = new byte[length];
+        for (int index = 0; index < length; ) {
+            int r = read(data, index, length - index);
+            if (r < 0) throw new EOFException("Expected " + (length - index) + " more bytes.");
+            index += r;
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Decodes the varint straight from the buffer, refilled first when
+     * fewer bytes than the longest varint are left.
+     */
+    @Override
+    public long readVarLong() throws IOException {
+        if (limit - position < MAX_VARLONG_BYTES) {
+            fill(MAX_VARLONG_BYTES);
+        }
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position == limit) throw new EOFException("Source ended inside a varint.");
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Varint is longer than " + MAX_VARLONG_BYTES + " bytes.");
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Basic Java Types">
+    @Override
+    public byte readByte() throws IOException {
+        require(Byte.BYTES);
+        return buffer[position++];
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        require(Short.BYTES);
+        short value = (short) shortView.get(buffer, position);
+        position += Short.BYTES;
+        return value;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(Integer.BYTES);
+        int value = (int) intView.get(buffer, position);
+        position += Integer.BYTES;
+        return value;
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(Long.BYTES);
+        long value = (long) longView.get(buffer, position);
+        position += Long.BYTES;
+        return value;
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Primitives">
+    @Override
+    public Int8 readInt8() throws IOException {
+        return new Int8(readByte());
+    }
+
+    @Override
+    public Int16 readInt16() throws IOException {
+        return new Int16(readShort());
+    }
+
+    @Override
+    public Int32 readInt32() throws IOException {
+        return new Int32(readInt());
+    }
+
+    @Override
+    public Int64 readInt64() throws IOException {
+        return new Int64(readLong());
+    }
+
+    @Override
+    public Float32 readFloat32() throws IOException {
+        return new Float32(readFloat());
+    }
+
+    @Override
+    public Float64 readFloat64() throws IOException {
+        return new Float64(readDouble());
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Unsigned Primitives">
+    @Override
+    public UInt8 readUInt8() throws IOException {
+        return UInt8.valueOf(Byte.toUnsignedInt(readByte()));
+    }
+
+    @Override
+    public UInt16 readUInt16() throws IOException {
+        return UInt16.valueOf(Short.toUnsignedInt(readShort()));
+    }
+
+    @Override
+    public UInt32 readUInt32() throws IOException {
+        return new UInt32(Integer.toUnsignedLong(readInt()));
+    }
+
+    @Override
+    public UInt64 readUInt64() throws IOException {
+        return UInt64.valueOf(readLong());
+    }
+    //</editor-fold>
+}
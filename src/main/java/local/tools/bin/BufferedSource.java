@@ -0,0 +1,35 @@
+package local.tools.bin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * NumberReader which owns the buffered bytes of its source,
+ * so BinaryReader can hand over string scanning as well.
+ */
+interface BufferedSource extends NumberReader {
+
+    /**
+     * @return the number of bytes handed out so far.
+     */
+    long getPosition();
+
+    /**
+     * Reads an UTF-8 string terminated by EOL or by the end of the source.
+     */
+    String readString() throws IOException;
+
+    /**
+     * Reads the next length bytes, as a view of the source memory where possible.
+     *
+     * @throws java.io.EOFException if the source ends first.
+     */
+    ByteBuffer readBuffer(int length) throws IOException;
+
+    /**
+     * Reads an unsigned LEB128 value of up to ten bytes.
+     *
+     * @throws java.io.EOFException if the source ends inside the value.
+     */
+    long readVarLong() throws IOException;
+}
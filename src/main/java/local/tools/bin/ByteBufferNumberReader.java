@@ -0,0 +1,322 @@
+package local.tools.bin;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import local.tools.serial.primitives.Float32;
+import local.tools.serial.primitives.Float64;
+import local.tools.serial.primitives.Int16;
+import local.tools.serial.primitives.Int32;
+import local.tools.serial.primitives.Int64;
+import local.tools.serial.primitives.Int8;
+import local.tools.serial.primitives.UInt16;
+import local.tools.serial.primitives.UInt32;
+import local.tools.serial.primitives.UInt64;
+import local.tools.serial.primitives.UInt8;
+
+/**
+ * NumberReader decoding straight from a ByteBuffer, e.g. a MappedByteBuffer.
+ * <p>
+ * Data larger than one buffer is read through a {@link Windows} provider: when the
+ * current buffer runs out, the window starting at the current offset replaces it,
+ * long enough for the value being read. Strings are collected window by window.
+ * The reader works on its own view of the buffer, so several readers may share one
+ * mapping from different threads.
+ */
+public class ByteBufferNumberReader extends InputStream implements BufferedSource {
+
+    /* Terminator of strings written by BinaryWriter.writeBytes */
+    private static final byte EOL = 0;
+
+    /**
+     * Supplies the data starting at a given offset.
+     */
+    @FunctionalInterface
+    public interface Windows {
+        /**
+         * @return a buffer whose position 0 is the given offset, of at least minLength
+         * bytes unless the data ends earlier, empty past the end of data.
+         */
+        ByteBuffer window(long offset, int minLength) throws IOException;
+    }
+
+    private final Windows windows;
+    private final ByteOrder order;
+
+    private ByteBuffer buffer;
+    private long base;
+    private byte[] scratch = new byte[256];
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    /**
+     * Reads the remaining bytes of the buffer, the buffer itself is not modified.
+     */
+    public ByteBufferNumberReader(ByteBuffer buffer, EndianType endianType) {
+        this.windows = null;
+        this.order = toOrder(endianType);
+        this.buffer = buffer.slice().order(order);
+        this.base = 0;
+    }
+
+    /**
+     * Reads the data of the windows from the given offset on.
+     */
+    public ByteBufferNumberReader(Windows windows, long offset, EndianType endianType) throws IOException {
+        this.windows = windows;
+        this.order = toOrder(endianType);
+        this.buffer = windows.window(offset, 0).order(order);
+        this.base = offset;
+    }
+
+    private static ByteOrder toOrder(EndianType endianType) {
+        return endianType == EndianType.BigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    }
+    //</editor-fold>
+
+    @Override
+    public long getPosition() {
+        return base + buffer.position();
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Buffer">
+    private void require(int count) throws IOException {
+        if (buffer.remaining() < count && !advance(count)) {
+            throw new EOFException("Expected " + count + " bytes, got " + buffer.remaining() + ".");
+        }
+    }
+
+    /**
+     * Replaces the buffer with the window of at least minLength bytes starting at the current offset.
+     *
+     * @return false if the window gives no more bytes than the current buffer.
+     */
+    private boolean advance(int minLength) throws IOException {
+        if (windows == null) return false;
+        long offset = getPosition();
+        ByteBuffer next = windows.window(offset, minLength);
+        if (next.remaining() <= buffer.remaining()) return false;
+        buffer = next.order(order);
+        base = offset;
+        return true;
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="InputStream Methods">
+    @Override
+    public int read() throws IOException {
+        if (!buffer.hasRemaining() && !advance(1)) return -1;
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] target, int index, int count) throws IOException {
+        if (count == 0) return 0;
+        if (!buffer.hasRemaining() && !advance(1)) return -1;
+        int r = Math.min(buffer.remaining(), count);
+        buffer.get(target, index, r);
+        return r;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        if (count <= 0) return 0;
+        if (count <= buffer.remaining()) {
+            buffer.position(buffer.position() + (int) count);
+            return count;
+        }
+        if (windows == null) {
+            int skipped = buffer.remaining();
+            buffer.position(buffer.limit());
+            return skipped;
+        }
+        long offset = getPosition() + count;
+        buffer = windows.window(offset, 0).order(order);
+        base = offset;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+    //</editor-fold>
+
+    /**
+     * Decodes a string in one window straight from it, a longer one from its
+     * parts copied window by window up to the terminator or the end of data.
+     */
+    @Override
+    public String readString() throws IOException {
+        int length = 0;
+        while (true) {
+            int start = buffer.position();
+            int end = buffer.limit();
+            int i = start;
+            while (i < end && buffer.get(i) != EOL) {
+                ++i;
+            }
+            if (i < end && length == 0) {
+                String result = decode(i - start);
+                buffer.position(i + 1);
+                return result;
+            }
+            if (scratch.length < length + i - start) {
+                scratch = Arrays.copyOf(scratch, Math.max(length + i - start, scratch.length * 2));
+            }
+            buffer.get(scratch, length, i - start);
+            length += i - start;
+            if (i < end) {
+                buffer.position(i + 1);
+                return new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            if (!advance(1)) {
+                return new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Returns a read-only view of the next length bytes, without copying unless
+     * they cross the end of the last window.
+     */
+    @Override
+    public ByteBuffer readBuffer(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            advance(length);
+        }
+        if (buffer.remaining() >= length) {
+            int start = buffer.position();
+            buffer.position(start + length);
+            return buffer.slice(start, length).asReadOnlyBuffer();
+        }
+        byte[] data = new byte[length];
+        for (int index = 0; index < length; ) {
+            int r = read(data, index, length - index);
+            if (r < 0) throw new EOFException("Expected " + (length - index) + " more bytes.");
+            index += r;
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    @Override
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining() && !advance(1)) throw new EOFException("Source ended inside a varint.");
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Varint is longer than 10 bytes.");
+    }
+
+    private String decode(int length) {
+        int start = buffer.position();
+        if (buffer.hasArray()) {
+            String result = new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+            buffer.position(start + length);
+            return result;
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Basic Java Types">
+    @Override
+    public byte readByte() throws IOException {
+        require(Byte.BYTES);
+        return buffer.get();
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        require(Short.BYTES);
+        return buffer.getShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        require(Float.BYTES);
+        return buffer.getFloat();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        require(Double.BYTES);
+        return buffer.getDouble();
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Primitives">
+    @Override
+    public Int8 readInt8() throws IOException {
+        return new Int8(readByte());
+    }
+
+    @Override
+    public Int16 readInt16() throws IOException {
+        return new Int16(readShort());
+    }
+
+    @Override
+    public Int32 readInt32() throws IOException {
+        return new Int32(readInt());
+    }
+
+    @Override
+    public Int64 readInt64() throws IOException {
+        return new Int64(readLong());
+    }
+
+    @Override
+    public Float32 readFloat32() throws IOException {
+        return new Float32(readFloat());
+    }
+
+    @Override
+    public Float64 readFloat64() throws IOException {
+        return new Float64(readDouble());
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Unsigned Primitives">
+    @Override
+    public UInt8 readUInt8() throws IOException {
+        return UInt8.valueOf(Byte.toUnsignedInt(readByte()));
+    }
+
+    @Override
+    public UInt16 readUInt16() throws IOException {
+        return UInt16.valueOf(Short.toUnsignedInt(readShort()));
+    }
+
+    @Override
+    public UInt32 readUInt32() throws IOException {
+        return new UInt32(Integer.toUnsignedLong(readInt()));
+    }
+
+    @Override
+    public UInt64 readUInt64() throws IOException {
+        return UInt64.valueOf(readLong());
+    }
+    //</editor-fold>
+}
@@ -141,36 +141,22 @@ public class LittleEndianNumberReader implements NumberReader {
     //<editor-fold defaultstate="collapsed" desc="Unsigned Primitives">
     @Override
     public UInt8 readUInt8() throws IOException {
-        return new UInt8((byte)source.read());
+        return UInt8.valueOf(Byte.toUnsignedInt(readByte()));
     }
     
     @Override
     public UInt16 readUInt16() throws IOException {
-        int b = source.read();
-        int a = source.read();
-        return new UInt16(a, b);
+        return UInt16.valueOf(Short.toUnsignedInt(readShort()));
     }
     
     @Override
     public UInt32 readUInt32() throws IOException {
-        int d = source.read();
-        int c = source.read();
-        int b = source.read();
-        int a = source.read();
-        return new UInt32(a, b, c, d);
+        return new UInt32(Integer.toUnsignedLong(readInt()));
     }
     
     @Override
     public UInt64 readUInt64() throws IOException {
-        int h = source.read();
-        int g = source.read();
-        int f = source.read();
-        int e = source.read();
-        int d = source.read();
-        int c = source.read();
-        int b = source.read();
-        int a = source.read();
-        return new UInt64(a, b, c, d, e, f, g, h);
+        return UInt64.valueOf(readLong());
     }
     //</editor-fold>
 }
@@ -114,36 +114,22 @@ public class LittleEndianNumberWriter implements NumberWriter {
     //<editor-fold defaultstate="collapsed" desc="Unsigned Primitives">
     @Override
     public void writeUInt8(UInt8 v) throws IOException {
-        target.write(v.getBytes());
+        target.write(v.intValue());
     }
     
     @Override
     public void writeUInt16(UInt16 v) throws IOException {
-        byte[] data = v.getBytes();
-        target.write(data[1]);
-        target.write(data[0]);
+        writeShort(v.intValue());
     }
     
     @Override
     public void writeUInt32(UInt32 v) throws IOException {
-        byte[] data = v.getBytes();
-        target.write(data[3]);
-        target.write(data[2]);
-        target.write(data[1]);
-        target.write(data[0]);
+        writeInt(v.intValue());
     }
     
     @Override
     public void writeUInt64(UInt64 v) throws IOException {
-        byte[] data = v.getBytes();
-        target.write(data[7]);
-        target.write(data[6]);
-        target.write(data[5]);
-        target.write(data[4]);
-        target.write(data[3]);
-        target.write(data[2]);
-        target.write(data[1]);
-        target.write(data[0]);
+        writeLong(v.longValue());
     }
     //</editor-fold>
 }
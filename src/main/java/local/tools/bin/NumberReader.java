@@ -32,6 +32,26 @@ public interface NumberReader {
     public UInt32 readUInt32() throws IOException;
     public UInt64 readUInt64() throws IOException;
     
+    public default int readUInt8AsInt() throws IOException {
+        return Byte.toUnsignedInt(readByte());
+    }
+    
+    public default int readUInt16AsInt() throws IOException {
+        return Short.toUnsignedInt(readShort());
+    }
+    
+    public default long readUInt32AsLong() throws IOException {
+        return Integer.toUnsignedLong(readInt());
+    }
+    
+    /**
+     * @return the 64 bits of the unsigned value, to be compared with
+     * Long.compareUnsigned and printed with Long.toUnsignedString.
+     */
+    public default long readUInt64AsLong() throws IOException {
+        return readLong();
+    }
+    
     public Float32 readFloat32() throws IOException;
     public Float64 readFloat64() throws IOException;
 }
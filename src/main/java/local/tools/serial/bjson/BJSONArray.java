@@ -1,12 +1,12 @@
 package local.tools.serial.bjson;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import local.tools.serial.json.discovery.JSONArray;
-import local.tools.serial.json.discovery.JSONObject;
+import java.util.Map;
 import local.tools.serial.primitives.UInt16;
 import local.tools.serial.primitives.UInt32;
 import local.tools.serial.primitives.UInt64;
@@ -17,17 +17,26 @@ import local.tools.serial.primitives.UInt8;
  */
 public class BJSONArray implements BJSONNode, List<Object>, Iterable<Object> {
     
-    private final List<Object> items = new ArrayList<>();
+    private final List<Object> items;
     
     //<editor-fold defaultstate="collapsed" desc="Constructors">
     public BJSONArray() {
+        this.items = new ArrayList<>();
     }
     
     public BJSONArray(List<Object> array) {
+        this();
         for (int i=0; i<array.size(); ++i) {
             put(array.get(i));
         }
     }
+    
+    /**
+     * Array stored in primitive arrays, see BJSONPackedArray.
+     */
+    BJSONArray(PackedItems items) {
+        this.items = items;
+    }
     //</editor-fold>
 
     @Override
@@ -41,53 +50,8 @@ public class BJSONArray implements BJSONNode, List<Object>, Iterable<Object> {
     }
     
     public final BJSONArray put(final Object value) throws BJSONException {
-        if (value == null) {
-            put((BJSONNode)BJSONNullNode.INSTANCE);
-            return this;
-        } else if (value instanceof BJSONNode) {
-            put((BJSONNode) value);
-            return this;
-        } else if (value instanceof String) {
-            put((String) value);
-            return this;
-        } else if (value instanceof Byte) {
-            put((byte) value);
-            return this;
-        } else if (value instanceof Short) {
-            put((short) value);
-            return this;
-        } else if (value instanceof Integer) {
-            put((int) value);
-            return this;
-        } else if (value instanceof Long) {
-            put((long) value);
-            return this;
-        } else if (value instanceof UInt8) {
-            put((UInt8) value);
-            return this;
-        } else if (value instanceof UInt16) {
-            put((UInt16) value);
-            return this;
-        } else if (value instanceof UInt32) {
-            put((UInt32) value);
-            return this;
-        } else if (value instanceof UInt64) {
-            put((UInt64) value);
-            return this;
-        } else if (value instanceof Float) {
-            put((float) value);
-            return this;
-        } else if (value instanceof Double) {
-            put((double) value);
-            return this;
-        } else if (value instanceof JSONObject) {
-            put(new BJSONObject((JSONObject)value));
-            return this;
-        } else if (value instanceof JSONArray) {
-            put(new BJSONArray((JSONArray)value));
-            return this;
-        }
-        throw new BJSONException("Unsupported type exception");
+        this.items.add(BJSONTypes.toNode(value));
+        return this;
     }
     
     //<editor-fold defaultstate="collapsed" desc="Getters">   
@@ -225,6 +189,35 @@ public class BJSONArray implements BJSONNode, List<Object>, Iterable<Object> {
         }
         throw new BJSONException("Type mismatch exception.");
     }
+    
+    /**
+     * Primitive forms of the unsigned values, without boxing.
+     *
+     * @throws BJSONException if the value is null or of another type.
+     */
+    public int getUInt8AsInt(int index) throws BJSONException {
+        return present(getUInt8(index)).intValue();
+    }
+    
+    public int getUInt16AsInt(int index) throws BJSONException {
+        return present(getUInt16(index)).intValue();
+    }
+    
+    public long getUInt32AsLong(int index) throws BJSONException {
+        return present(getUInt32(index)).longValue();
+    }
+    
+    /**
+     * @return the 64 bits of the value, see Long.compareUnsigned and Long.toUnsignedString.
+     */
+    public long getUInt64AsLong(int index) throws BJSONException {
+        return present(getUInt64(index)).longValue();
+    }
+    
+    private static <T> T present(T value) {
+        if (value == null) throw new BJSONException("Value is null.");
+        return value;
+    }
     //</editor-fold>
 
     //<editor-fold defaultstate="collapsed" desc="Basic Java Types Putters">
@@ -291,6 +284,69 @@ public class BJSONArray implements BJSONNode, List<Object>, Iterable<Object> {
     }
     //</editor-fold>
 
+    //<editor-fold defaultstate="collapsed" desc="Binary">
+    public final BJSONArray put(final byte[] value) throws BJSONException {
+        this.items.add(value);
+        return this;
+    }
+    
+    public final BJSONArray put(final ByteBuffer value) throws BJSONException {
+        this.items.add(value);
+        return this;
+    }
+    
+    /**
+     * @return the Binary value, a view of the stored byte[] or ByteBuffer.
+     */
+    public ByteBuffer getBinary(int index) throws BJSONException {
+        Object node = get(index);
+        if (node == null) return null;
+        if (node instanceof ByteBuffer) {
+            return ((ByteBuffer) node).duplicate();
+        }
+        if (node instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) node);
+        }
+        throw new BJSONException("Type mismatch exception.");
+    }
+    
+    /**
+     * @return the bytes of the Binary value, a copy if it is stored as a ByteBuffer.
+     */
+    public byte[] getBytes(int index) throws BJSONException {
+        Object node = get(index);
+        if (node == null) return null;
+        if (node instanceof byte[]) {
+            return (byte[]) node;
+        }
+        if (node instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) node).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        throw new BJSONException("Type mismatch exception.");
+    }
+    //</editor-fold>
+
+    /**
+     * Copies an array of objects into columns, one per key, see BJSONColumns.
+     *
+     * @throws BJSONException if an item is not an object.
+     */
+    public BJSONColumns toColumns() throws BJSONException {
+        BJSONColumns.Builder columns = new BJSONColumns.Builder();
+        for (int i=0; i<items.size(); ++i) {
+            Object item = items.get(i);
+            if (!(item instanceof BJSONObject)) throw new BJSONException("Object expected at index " + i + ".");
+            int row = columns.addRow();
+            for (Map.Entry<String, Object> entry : ((BJSONObject) item).entrySet()) {
+                columns.column(entry.getKey()).set(row, entry.getValue());
+            }
+        }
+        return columns.build();
+    }
+
     //<editor-fold desc="Iterable interface methods">
     @Override
     public Iterator<Object> iterator() {
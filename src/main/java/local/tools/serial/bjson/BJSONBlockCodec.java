@@ -0,0 +1,31 @@
+package local.tools.serial.bjson;
+
+import java.io.IOException;
+
+/**
+ * Compression of the blocks of a block container, see BlockBJSONWriter.
+ * <p>
+ * Blocks are compressed and decompressed independently, possibly on several
+ * threads at once, so implementations must be thread safe.
+ *
+ * @see BJSONBlockCodecs
+ */
+public interface BJSONBlockCodec {
+
+    /**
+     * @return the id stored in the container header, 0..255.
+     */
+    int getId();
+
+    /**
+     * @return the compressed form of length bytes of the data from the offset.
+     */
+    byte[] compress(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * Decompresses length bytes of the data from the offset, filling the whole target.
+     *
+     * @throws IOException if the data is corrupt or does not fill the target exactly.
+     */
+    void decompress(byte[] data, int offset, int length, byte[] target) throws IOException;
+}
@@ -0,0 +1,125 @@
+package local.tools.serial.bjson;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block codecs known to BlockBJSONReader by the id in the container header.
+ */
+public final class BJSONBlockCodecs {
+
+    public static final int NONE_ID = 0;
+    public static final int DEFLATE_ID = 1;
+
+    private static final BJSONBlockCodec[] CODECS = new BJSONBlockCodec[256];
+
+    /**
+     * Blocks stored as they are.
+     */
+    public static final BJSONBlockCodec NONE = new BJSONBlockCodec() {
+        @Override
+        public int getId() {
+            return NONE_ID;
+        }
+
+        @Override
+        public byte[] compress(byte[] data, int offset, int length) {
+            return Arrays.copyOfRange(data, offset, offset + length);
+        }
+
+        @Override
+        public void decompress(byte[] data, int offset, int length, byte[] target) throws IOException {
+            if (length != target.length) throw new IOException("Stored block of " + length + " bytes, expected " + target.length + ".");
+            System.arraycopy(data, offset, target, 0, length);
+        }
+    };
+
+    /**
+     * JDK Deflater at the default compression level, zlib wrapped.
+     */
+    public static final BJSONBlockCodec DEFLATE = deflate(Deflater.DEFAULT_COMPRESSION);
+
+    static {
+        register(NONE);
+        register(DEFLATE);
+    }
+
+    private BJSONBlockCodecs() {
+    }
+
+    /**
+     * @return a Deflater codec of the given level, 0..9. All levels share DEFLATE_ID
+     * and are read by the same Inflater.
+     */
+    public static BJSONBlockCodec deflate(int level) {
+        return new BJSONBlockCodec() {
+            @Override
+            public int getId() {
+                return DEFLATE_ID;
+            }
+
+            @Override
+            public byte[] compress(byte[] data, int offset, int length) {
+                Deflater deflater = new Deflater(level);
+                try {
+                    deflater.setInput(data, offset, length);
+                    deflater.finish();
+                    byte[] output = new byte[Math.max(64, length / 2)];
+                    int size = 0;
+                    while (!deflater.finished()) {
+                        if (size == output.length) {
+                            output = Arrays.copyOf(output, output.length * 2);
+                        }
+                        size += deflater.deflate(output, size, output.length - size);
+                    }
+                    return Arrays.copyOf(output, size);
+                } finally {
+                    deflater.end();
+                }
+            }
+
+            @Override
+            public void decompress(byte[] data, int offset, int length, byte[] target) throws IOException {
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(data, offset, length);
+                    int size = 0;
+                    while (size < target.length && !inflater.finished()) {
+                        int n = inflater.inflate(target, size, target.length - size);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                        size += n;
+                    }
+                    if (size != target.length || !inflater.finished()) {
+                        throw new IOException("Deflated block holds other than " + target.length + " bytes.");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupt deflated block.", e);
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Makes the codec known to readers by its id.
+     *
+     * @throws BJSONException if another codec has the id.
+     */
+    public static synchronized void register(BJSONBlockCodec codec) {
+        int id = codec.getId();
+        if (id < 0 || id >= CODECS.length) throw new BJSONException("Block codec id " + id + " is out of 0..255 range.");
+        if (CODECS[id] != null && CODECS[id] != codec) throw new BJSONException("Block codec id " + id + " is already registered.");
+        CODECS[id] = codec;
+    }
+
+    /**
+     * @return the codec of the id, null if none is registered.
+     */
+    public static synchronized BJSONBlockCodec get(int id) {
+        return id >= 0 && id < CODECS.length ? CODECS[id] : null;
+    }
+}
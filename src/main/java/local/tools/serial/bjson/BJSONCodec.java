@@ -0,0 +1,43 @@
+package local.tools.serial.bjson;
+
+import java.io.IOException;
+import local.tools.bin.BinaryReader;
+import local.tools.bin.BinaryWriter;
+
+/**
+ * Binary encoding of a user type as a BJSON extension value.
+ * <p>
+ * An extension value is written as the codec tag (a type byte from
+ * BJSONType.FIRST_EXTENSION to LAST_EXTENSION), the payload length and the payload,
+ * so readers without the codec can still skip it. The length is an Int32, or a
+ * varint in compact documents like every other size. Codecs are registered
+ * for all streams with BJSONTypes.register(BJSONCodec), which also lets nodes hold
+ * the values, or for a single stream with BJSONWriter / BJSONReader.registerCodec.
+ * See BJSONCodecs for the standard ones.
+ */
+public interface BJSONCodec<T> {
+
+    /**
+     * @return the type byte of the values, unique among the registered codecs.
+     */
+    int getTag();
+
+    /**
+     * @return the class of the values, subclasses are written with the codec too.
+     */
+    Class<T> getType();
+
+    /**
+     * @return the payload length if it is the same for all values, -1 otherwise.
+     */
+    default int getSize() {
+        return -1;
+    }
+
+    void write(T value, BinaryWriter writer) throws IOException;
+
+    /**
+     * Reads a value from exactly length payload bytes.
+     */
+    T read(BinaryReader reader, int length) throws IOException;
+}
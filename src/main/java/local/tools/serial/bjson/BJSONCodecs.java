@@ -0,0 +1,117 @@
+package local.tools.serial.bjson;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.UUID;
+import local.tools.bin.BinaryReader;
+import local.tools.bin.BinaryWriter;
+
+/**
+ * Standard extension codecs, registered in BJSONTypes by default.
+ */
+public final class BJSONCodecs {
+
+    public static final int UUID_TAG = 0x40;
+    public static final int INSTANT_TAG = 0x41;
+    public static final int BIG_DECIMAL_TAG = 0x42;
+
+    /**
+     * UUID as its 16 bytes: most, then least significant Int64.
+     */
+    public static final BJSONCodec<UUID> UUID = new BJSONCodec<UUID>() {
+        @Override
+        public int getTag() {
+            return UUID_TAG;
+        }
+
+        @Override
+        public Class<UUID> getType() {
+            return UUID.class;
+        }
+
+        @Override
+        public int getSize() {
+            return 2 * Long.BYTES;
+        }
+
+        @Override
+        public void write(UUID value, BinaryWriter writer) throws IOException {
+            writer.writeLong(value.getMostSignificantBits());
+            writer.writeLong(value.getLeastSignificantBits());
+        }
+
+        @Override
+        public UUID read(BinaryReader reader, int length) throws IOException {
+            return new UUID(reader.readLong(), reader.readLong());
+        }
+    };
+
+    /**
+     * Instant as Int64 epoch seconds and Int32 nanoseconds, without loss of precision.
+     */
+    public static final BJSONCodec<Instant> INSTANT = new BJSONCodec<Instant>() {
+        @Override
+        public int getTag() {
+            return INSTANT_TAG;
+        }
+
+        @Override
+        public Class<Instant> getType() {
+            return Instant.class;
+        }
+
+        @Override
+        public int getSize() {
+            return Long.BYTES + Integer.BYTES;
+        }
+
+        @Override
+        public void write(Instant value, BinaryWriter writer) throws IOException {
+            writer.writeLong(value.getEpochSecond());
+            writer.writeInt(value.getNano());
+        }
+
+        @Override
+        public Instant read(BinaryReader reader, int length) throws IOException {
+            long seconds = reader.readLong();
+            return Instant.ofEpochSecond(seconds, reader.readInt());
+        }
+    };
+
+    /**
+     * BigDecimal as Int32 scale and the two's complement bytes of the unscaled value.
+     */
+    public static final BJSONCodec<BigDecimal> BIG_DECIMAL = new BJSONCodec<BigDecimal>() {
+        @Override
+        public int getTag() {
+            return BIG_DECIMAL_TAG;
+        }
+
+        @Override
+        public Class<BigDecimal> getType() {
+            return BigDecimal.class;
+        }
+
+        @Override
+        public void write(BigDecimal value, BinaryWriter writer) throws IOException {
+            writer.writeInt(value.scale());
+            writer.write(value.unscaledValue().toByteArray());
+        }
+
+        @Override
+        public BigDecimal read(BinaryReader reader, int length) throws IOException {
+            if (length <= Integer.BYTES) {
+                throw new BJSONException("BigDecimal extension value of " + length + " bytes is too short.");
+            }
+            int scale = reader.readInt();
+            byte[] unscaled = new byte[length - Integer.BYTES];
+            reader.readFully(unscaled, 0, unscaled.length);
+            return new BigDecimal(new BigInteger(unscaled), scale);
+        }
+    };
+
+    private BJSONCodecs() {
+    }
+}
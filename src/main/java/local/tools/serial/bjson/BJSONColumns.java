@@ -0,0 +1,277 @@
+package local.tools.serial.bjson;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Columnar form of an array of objects: one column per key, holding the values
+ * of all rows in a primitive array where possible, plus a bitmap of the rows
+ * where the key is missing or null.
+ * <p>
+ * The column type follows the values: Byte, Short and Integer make an INT
+ * column, Long a LONG one, Float and Double a DOUBLE one, String and Boolean
+ * their own columns. INT widens to LONG or DOUBLE when such values follow,
+ * any other mix (LONG with DOUBLE included, as it would lose precision) and
+ * all other values make an OBJECT column.
+ *
+ * @see BJSONArray#toColumns()
+ * @see BJSONReader#readColumns()
+ */
+public final class BJSONColumns {
+
+    public enum ColumnType {
+        INT, LONG, DOUBLE, STRING, BOOLEAN, OBJECT
+    }
+
+    private final int size;
+    private final Map<String, Column> columns;
+
+    private BJSONColumns(int size, Map<String, Column> columns) {
+        this.size = size;
+        this.columns = Collections.unmodifiableMap(columns);
+    }
+
+    /**
+     * @return the number of rows.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the keys in the order they first appeared.
+     */
+    public Set<String> getKeys() {
+        return columns.keySet();
+    }
+
+    /**
+     * @return the column of the key, null if no row has it.
+     */
+    public Column getColumn(String key) {
+        return columns.get(key);
+    }
+
+    /**
+     * Values of one key. The getters return the backing arrays, of exactly
+     * getSize() elements, without copying; null rows hold 0, false or null.
+     */
+    public static final class Column {
+        private ColumnType type;
+        private int[] ints;
+        private long[] longs;
+        private double[] doubles;
+        private String[] strings;
+        private boolean[] booleans;
+        private Object[] objects;
+        // Bit per row, set for rows with a value while building and for null rows once built
+        private long[] bits = new long[1];
+        private int capacity = 0;
+
+        private Column() {
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+
+        public boolean isNull(int row) {
+            return (bits[row >>> 6] & (1L << row)) != 0;
+        }
+
+        /**
+         * @return the null bitmap, bit (row % 64) of word (row / 64) is set for null rows.
+         */
+        public long[] getNulls() {
+            return bits;
+        }
+
+        //<editor-fold defaultstate="collapsed" desc="Values">
+        public int[] getInts() throws BJSONException {
+            checkType(ColumnType.INT);
+            return ints;
+        }
+
+        public long[] getLongs() throws BJSONException {
+            checkType(ColumnType.LONG);
+            return longs;
+        }
+
+        public double[] getDoubles() throws BJSONException {
+            checkType(ColumnType.DOUBLE);
+            return doubles;
+        }
+
+        public String[] getStrings() throws BJSONException {
+            checkType(ColumnType.STRING);
+            return strings;
+        }
+
+        public boolean[] getBooleans() throws BJSONException {
+            checkType(ColumnType.BOOLEAN);
+            return booleans;
+        }
+
+        public Object[] getObjects() throws BJSONException {
+            checkType(ColumnType.OBJECT);
+            return objects;
+        }
+
+        /**
+         * @return the value of the row boxed, null for null rows.
+         */
+        public Object get(int row) {
+            return isNull(row) ? null : value(row);
+        }
+
+        private Object value(int row) {
+            switch (type) {
+                case INT: return ints[row];
+                case LONG: return longs[row];
+                case DOUBLE: return doubles[row];
+                case STRING: return strings[row];
+                case BOOLEAN: return booleans[row];
+                default: return objects[row];
+            }
+        }
+
+        private void checkType(ColumnType expected) {
+            if (type != expected) throw new BJSONException("Type mismatch exception: " + type + " column.");
+        }
+        //</editor-fold>
+
+        //<editor-fold defaultstate="collapsed" desc="Building">
+        void set(int row, Object value) {
+            if (value == null || value instanceof BJSONNullNode) return;
+            ColumnType kind = kindOf(value);
+            if (type == null) {
+                convert(kind, 0);
+            } else if (kind != type) {
+                convert(widen(type, kind), row);
+            }
+            ensureCapacity(row + 1);
+            switch (type) {
+                case INT: ints[row] = ((Number) value).intValue(); break;
+                case LONG: longs[row] = ((Number) value).longValue(); break;
+                case DOUBLE: doubles[row] = ((Number) value).doubleValue(); break;
+                case STRING: strings[row] = (String) value; break;
+                case BOOLEAN: booleans[row] = (Boolean) value; break;
+                default: objects[row] = value;
+            }
+            bits[row >>> 6] |= 1L << row;
+        }
+
+        private static ColumnType kindOf(Object value) {
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) return ColumnType.INT;
+            if (value instanceof Long) return ColumnType.LONG;
+            if (value instanceof Double || value instanceof Float) return ColumnType.DOUBLE;
+            if (value instanceof String) return ColumnType.STRING;
+            if (value instanceof Boolean) return ColumnType.BOOLEAN;
+            return ColumnType.OBJECT;
+        }
+
+        private static ColumnType widen(ColumnType type, ColumnType kind) {
+            if (type == ColumnType.INT && (kind == ColumnType.LONG || kind == ColumnType.DOUBLE)) return kind;
+            if (kind == ColumnType.INT && (type == ColumnType.LONG || type == ColumnType.DOUBLE)) return type;
+            return ColumnType.OBJECT;
+        }
+
+        /**
+         * Moves the values of the rows before the given one to an array of the type.
+         */
+        private void convert(ColumnType target, int rows) {
+            if (target == type) return;
+            Object[] previous = new Object[rows];
+            for (int row=0; row<rows; ++row) {
+                previous[row] = (bits[row >>> 6] & (1L << row)) != 0 ? value(row) : null;
+            }
+            ints = null;
+            longs = null;
+            doubles = null;
+            strings = null;
+            booleans = null;
+            objects = null;
+            type = target;
+            allocate(capacity);
+            for (int row=0; row<rows; ++row) {
+                if (previous[row] != null) {
+                    set(row, previous[row]);
+                }
+            }
+        }
+
+        private void ensureCapacity(int rows) {
+            if (rows > bits.length * 64) {
+                bits = Arrays.copyOf(bits, Math.max((rows + 63) >>> 6, bits.length * 2));
+            }
+            if (rows <= capacity) return;
+            allocate(Math.max(rows, capacity + (capacity >> 1) + 8));
+        }
+
+        private void allocate(int length) {
+            switch (type) {
+                case INT: ints = ints == null ? new int[length] : Arrays.copyOf(ints, length); break;
+                case LONG: longs = longs == null ? new long[length] : Arrays.copyOf(longs, length); break;
+                case DOUBLE: doubles = doubles == null ? new double[length] : Arrays.copyOf(doubles, length); break;
+                case STRING: strings = strings == null ? new String[length] : Arrays.copyOf(strings, length); break;
+                case BOOLEAN: booleans = booleans == null ? new boolean[length] : Arrays.copyOf(booleans, length); break;
+                default: objects = objects == null ? new Object[length] : Arrays.copyOf(objects, length);
+            }
+            capacity = length;
+        }
+
+        /**
+         * Trims the arrays to the number of rows and turns the value bits into null bits.
+         */
+        private void finish(int rows) {
+            if (type == null) {
+                type = ColumnType.OBJECT;
+            }
+            capacity = -1;
+            allocate(rows);
+            long[] nulls = new long[(rows + 63) >>> 6];
+            for (int i=0; i<nulls.length; ++i) {
+                nulls[i] = ~(i < bits.length ? bits[i] : 0L);
+            }
+            if ((rows & 63) != 0) {
+                nulls[nulls.length - 1] &= (1L << rows) - 1;
+            }
+            bits = nulls;
+        }
+        //</editor-fold>
+    }
+
+    /**
+     * Collects rows into columns, a key first seen at a later row is null in the rows before.
+     */
+    static final class Builder {
+        private final Map<String, Column> columns = new LinkedHashMap<>();
+        private int rows = 0;
+
+        /**
+         * @return the index of the new row.
+         */
+        int addRow() {
+            return rows++;
+        }
+
+        Column column(String key) {
+            Column column = columns.get(key);
+            if (column == null) {
+                column = new Column();
+                columns.put(key, column);
+            }
+            return column;
+        }
+
+        BJSONColumns build() {
+            for (Column column : columns.values()) {
+                column.finish(rows);
+            }
+            return new BJSONColumns(rows, columns);
+        }
+    }
+}
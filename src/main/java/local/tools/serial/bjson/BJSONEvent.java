@@ -0,0 +1,13 @@
+package local.tools.serial.bjson;
+
+/**
+ * Events reported by BJSONStreamReader while pulling through a BJSON document.
+ */
+public enum BJSONEvent {
+    START_OBJECT,
+    END_OBJECT,
+    START_ARRAY,
+    END_ARRAY,
+    KEY,
+    VALUE
+}
@@ -0,0 +1,35 @@
+package local.tools.serial.bjson;
+
+/**
+ * Optional document header written before the first node.
+ * <p>
+ * It starts with the MARKER byte, which is never a valid type value, followed by
+ * a byte of format flags. Documents written with default options have no header,
+ * so they stay identical to the original format.
+ */
+final class BJSONHeader {
+
+    static final int MARKER = 0xBF;
+
+    /* Strings and keys are written as a byte length size + UTF-8 bytes instead of EOL terminated */
+    static final int PREFIXED_STRINGS = 0x01;
+
+    /* The first occurrence of a key is written as varint 0 + the key, next ones as varint id + 1 */
+    static final int KEY_DICTIONARY = 0x02;
+
+    /* Sizes, lengths and integer values are written as LEB128 varints, zigzag encoded if signed */
+    static final int COMPACT = 0x04;
+
+    static final int SUPPORTED_FLAGS = PREFIXED_STRINGS | KEY_DICTIONARY | COMPACT;
+
+    private BJSONHeader() {
+    }
+
+    static int set(int flags, int flag, boolean enabled) {
+        return enabled ? flags | flag : flags & ~flag;
+    }
+
+    static boolean isSet(int flags, int flag) {
+        return (flags & flag) != 0;
+    }
+}
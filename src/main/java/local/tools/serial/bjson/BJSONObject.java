@@ -1,24 +1,23 @@
 package local.tools.serial.bjson;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import local.tools.serial.json.discovery.JSONArray;
-import local.tools.serial.json.discovery.JSONObject;
 import local.tools.serial.primitives.UInt16;
 import local.tools.serial.primitives.UInt32;
 import local.tools.serial.primitives.UInt64;
 import local.tools.serial.primitives.UInt8;
+import local.tools.utils.CompactMap;
 
 /**
  * Binary JSON Object.
  */
 public final class BJSONObject implements BJSONNode, Map<String, Object>, Serializable  {
 
-    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private final Map<String, Object> attributes = new CompactMap();
     
     //<editor-fold defaultstate="collapsed" desc="Constructors">
     public BJSONObject() {
@@ -49,53 +48,15 @@ public final class BJSONObject implements BJSONNode, Map<String, Object>, Serial
     
     @Override
     public final BJSONObject put(final String key, final Object value) throws BJSONException {
-        if (value == null) {
-            put(key, (BJSONNode) BJSONNullNode.INSTANCE);
-            return this;
-        } else if (value instanceof BJSONNode) {
-            put(key, (BJSONNode) value);
-            return this;
-        } else if (value instanceof String) {
-            put(key, (String) value);
-            return this;
-        } else if (value instanceof Byte) {
-            put(key, (byte) value);
-            return this;
-        } else if (value instanceof Short) {
-            put(key, (short) value);
-            return this;
-        } else if (value instanceof Integer) {
-            put(key, (int) value);
-            return this;
-        } else if (value instanceof Long) {
-            put(key, (long) value);
-            return this;
-        } else if (value instanceof UInt8) {
-            put(key, (UInt8) value);
-            return this;
-        } else if (value instanceof UInt16) {
-            put(key, (UInt16) value);
-            return this;
-        } else if (value instanceof UInt32) {
-            put(key, (UInt32) value);
-            return this;
-        } else if (value instanceof UInt64) {
-            put(key, (UInt64) value);
-            return this;
-        } else if (value instanceof Float) {
-            put(key, (float) value);
-            return this;
-        } else if (value instanceof Double) {
-            put(key, (double) value);
-            return this;
-        } else if (value instanceof JSONObject) {
-            put(key, new BJSONObject((JSONObject)value));
-            return this;
-        } else if (value instanceof JSONArray) {
-            put(key, new BJSONArray((JSONArray)value));
-            return this;
-        }
-        throw new BJSONException("Unsupported type exception: " + value.getClass().getName());
+        this.attributes.put(key, BJSONTypes.toNode(value));
+        return this;
+    }
+
+    /**
+     * Puts a value read from a stream, which needs no conversion.
+     */
+    final void putNode(final String key, final Object value) {
+        this.attributes.put(key, value == null ? BJSONNullNode.INSTANCE : value);
     }
 
     //<editor-fold defaultstate="collapsed" desc="Basic Java Types Getters">    
@@ -226,6 +187,35 @@ public final class BJSONObject implements BJSONNode, Map<String, Object>, Serial
         }
         throw new BJSONException("Type mismatch exception.");
     }
+    
+    /**
+     * Primitive forms of the unsigned values, without boxing.
+     *
+     * @throws BJSONException if the value is null or of another type.
+     */
+    public int getUInt8AsInt(String key) throws BJSONException {
+        return present(getUInt8(key)).intValue();
+    }
+    
+    public int getUInt16AsInt(String key) throws BJSONException {
+        return present(getUInt16(key)).intValue();
+    }
+    
+    public long getUInt32AsLong(String key) throws BJSONException {
+        return present(getUInt32(key)).longValue();
+    }
+    
+    /**
+     * @return the 64 bits of the value, see Long.compareUnsigned and Long.toUnsignedString.
+     */
+    public long getUInt64AsLong(String key) throws BJSONException {
+        return present(getUInt64(key)).longValue();
+    }
+    
+    private static <T> T present(T value) {
+        if (value == null) throw new BJSONException("Value is null.");
+        return value;
+    }
     //</editor-fold>
     
     //<editor-fold defaultstate="collapsed" desc="Basic Java Types Putters">
@@ -300,6 +290,51 @@ public final class BJSONObject implements BJSONNode, Map<String, Object>, Serial
         return this.attributes.remove(key);
     }
 
+    //<editor-fold defaultstate="collapsed" desc="Binary">
+    public final BJSONObject put(final String key, final byte[] value) throws BJSONException {
+        this.attributes.put(key, value);
+        return this;
+    }
+    
+    public final BJSONObject put(final String key, final ByteBuffer value) throws BJSONException {
+        this.attributes.put(key, value);
+        return this;
+    }
+    
+    /**
+     * @return the Binary value, a view of the stored byte[] or ByteBuffer.
+     */
+    public ByteBuffer getBinary(String key) throws BJSONException {
+        Object node = get(key);
+        if (node == null) return null;
+        if (node instanceof ByteBuffer) {
+            return ((ByteBuffer) node).duplicate();
+        }
+        if (node instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) node);
+        }
+        throw new BJSONException("Type mismatch exception.");
+    }
+    
+    /**
+     * @return the bytes of the Binary value, a copy if it is stored as a ByteBuffer.
+     */
+    public byte[] getBytes(String key) throws BJSONException {
+        Object node = get(key);
+        if (node == null) return null;
+        if (node instanceof byte[]) {
+            return (byte[]) node;
+        }
+        if (node instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) node).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        throw new BJSONException("Type mismatch exception.");
+    }
+    //</editor-fold>
+
     //<editor-fold desc="Map interface methods">
     @Override
     public final int size() {
@@ -0,0 +1,103 @@
+package local.tools.serial.bjson;
+
+import java.util.Arrays;
+
+/**
+ * Binary JSON Array of a single numeric type kept in a primitive array.
+ * <p>
+ * Holds Integer, Long, Float or Double values only, anything else is rejected
+ * with a type mismatch. Written as one type tag (Int32Array, Int64Array,
+ * Float32Array or Float64Array), the size and the packed values, and read
+ * back in bulk into the same form.
+ */
+public class BJSONPackedArray extends BJSONArray {
+
+    private final PackedItems packed;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    BJSONPackedArray(PackedItems packed) {
+        super(packed);
+        this.packed = packed;
+    }
+
+    public static BJSONPackedArray of(int... values) {
+        return new BJSONPackedArray(new PackedItems(values.clone(), values.length));
+    }
+
+    public static BJSONPackedArray of(long... values) {
+        return new BJSONPackedArray(new PackedItems(values.clone(), values.length));
+    }
+
+    public static BJSONPackedArray of(float... values) {
+        return new BJSONPackedArray(new PackedItems(values.clone(), values.length));
+    }
+
+    public static BJSONPackedArray of(double... values) {
+        return new BJSONPackedArray(new PackedItems(values.clone(), values.length));
+    }
+    //</editor-fold>
+
+    @Override
+    public BJSONType getType() {
+        return packed.getType();
+    }
+
+    PackedItems items() {
+        return packed;
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Primitive Getters">
+    public int getIntValue(int index) throws BJSONException {
+        checkAccess(BJSONType.Int32Array, index);
+        return packed.ints()[index];
+    }
+
+    public long getLongValue(int index) throws BJSONException {
+        checkAccess(BJSONType.Int64Array, index);
+        return packed.longs()[index];
+    }
+
+    public float getFloatValue(int index) throws BJSONException {
+        checkAccess(BJSONType.Float32Array, index);
+        return packed.floats()[index];
+    }
+
+    public double getDoubleValue(int index) throws BJSONException {
+        checkAccess(BJSONType.Float64Array, index);
+        return packed.doubles()[index];
+    }
+
+    private void checkAccess(BJSONType type, int index) {
+        if (packed.getType() != type) throw new BJSONException("Type mismatch exception.");
+        if (index < 0 || index >= packed.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + packed.size());
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Copies">
+    public int[] toIntArray() throws BJSONException {
+        checkType(BJSONType.Int32Array);
+        return Arrays.copyOf(packed.ints(), packed.size());
+    }
+
+    public long[] toLongArray() throws BJSONException {
+        checkType(BJSONType.Int64Array);
+        return Arrays.copyOf(packed.longs(), packed.size());
+    }
+
+    public float[] toFloatArray() throws BJSONException {
+        checkType(BJSONType.Float32Array);
+        return Arrays.copyOf(packed.floats(), packed.size());
+    }
+
+    public double[] toDoubleArray() throws BJSONException {
+        checkType(BJSONType.Float64Array);
+        return Arrays.copyOf(packed.doubles(), packed.size());
+    }
+
+    private void checkType(BJSONType type) {
+        if (packed.getType() != type) throw new BJSONException("Type mismatch exception.");
+    }
+    //</editor-fold>
+}
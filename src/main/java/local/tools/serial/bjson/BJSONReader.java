@@ -1,17 +1,42 @@
 package local.tools.serial.bjson;
 
-import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import local.tools.bin.BinaryReader;
+import local.tools.bin.BufferedNumberReader;
 import local.tools.bin.EndianType;
+import local.tools.serial.primitives.UInt16;
+import local.tools.serial.primitives.UInt32;
+import local.tools.serial.primitives.UInt64;
 
 public class BJSONReader implements AutoCloseable {
     
+    /* Offset table entry sizes of indexed containers */
+    static final long INDEXED_ENTRY_SIZE = Integer.BYTES + Long.BYTES;
+    static final long INDEXED_ITEM_SIZE = Long.BYTES;
+    
     private final BinaryReader reader;
     
+    private int flags = 0;
+    private boolean started = false;
+    private BJSONCodec<?>[] codecs;
+    
+    // Keys by id - 1 in key dictionary documents
+    private List<String> keys;
+    // Set once all keys of the document are known, see useDictionary
+    private Map<String, String> keyIndex;
+    
+    // Tag of the last extension type read
+    private int extensionTag;
+    
     public BJSONReader(InputStream source, boolean littleEndian) {
         this.reader = new BinaryReader(source, littleEndian ? EndianType.LittleEndian : EndianType.BigEndian);
     }
@@ -20,48 +45,617 @@ public class BJSONReader implements AutoCloseable {
         this(source, true);
     }
     
+    /**
+     * Decodes numbers and strings straight from an internal buffer of the given size
+     * (see BufferedNumberReader). The source is read ahead past the document.
+     */
+    public BJSONReader(InputStream source, boolean littleEndian, int bufferSize) {
+        this.reader = new BinaryReader(source, littleEndian ? EndianType.LittleEndian : EndianType.BigEndian, bufferSize);
+    }
+    
+    /**
+     * Reads the remaining bytes of the buffer in place, Binary values are
+     * returned as views of it.
+     */
+    public BJSONReader(ByteBuffer source, boolean littleEndian) {
+        this.reader = new BinaryReader(source, littleEndian ? EndianType.LittleEndian : EndianType.BigEndian);
+    }
+    
+    /**
+     * Reads nodes from the middle of a document, the header options
+     * are taken over from a reader which already started it.
+     */
+    BJSONReader(BinaryReader reader, BJSONReader header) {
+        this.reader = reader;
+        this.flags = header.flags;
+        this.codecs = header.codecs;
+        this.started = true;
+        if (header.keyIndex != null) {
+            this.keys = header.keys;
+            this.keyIndex = header.keyIndex;
+        } else if (header.hasKeyDictionary()) {
+            this.keys = new ArrayList<>();
+        }
+    }
+    
     public BJSONReader(String filename, boolean littleEndian) throws FileNotFoundException {
-        this(new BufferedInputStream(new FileInputStream(filename)), littleEndian);
+        this(new FileInputStream(filename), littleEndian, BufferedNumberReader.DEFAULT_BUFFER_SIZE);
     }
     
     public BJSONReader(String filename) throws FileNotFoundException {
         this(filename, true);
     }
     
+    /**
+     * Reads the next node. The document header, if present, is consumed
+     * before the first node and sets the format options.
+     */
     public Object readBJSONNode() throws IOException {
-        BJSONType type = BJSONType.fromValue(reader.read());
+        BJSONType type = readNodeType();
         return readValue(type);
     }
     
+    /**
+     * Reads the type of the next node, after the document header on the first call.
+     *
+     * @return the type or null at the end of the source.
+     */
+    BJSONType readNodeType() throws IOException {
+        int value = reader.read();
+        if (!started) {
+            started = true;
+            if (value == BJSONHeader.MARKER) {
+                readHeader();
+                value = reader.read();
+            }
+        }
+        return value < 0 ? null : toType(value);
+    }
+    
+    private BJSONType toType(int value) {
+        BJSONType type = BJSONType.fromValue(value);
+        if (type == BJSONType.Extension) {
+            extensionTag = value;
+        }
+        return type;
+    }
+    
+    /**
+     * Consumes the document header the source starts with.
+     */
+    void readStart() throws IOException {
+        if (started) return;
+        started = true;
+        if (reader.read() != BJSONHeader.MARKER) {
+            throw new BJSONException("BJSON header expected.");
+        }
+        readHeader();
+    }
+    
+    private void readHeader() throws IOException {
+        flags = reader.read();
+        if (flags < 0 || (flags & ~BJSONHeader.SUPPORTED_FLAGS) != 0) {
+            throw new BJSONException("Unsupported BJSON header flags: " + flags);
+        }
+        if (hasKeyDictionary()) {
+            keys = new ArrayList<>();
+        }
+    }
+    
+    //<editor-fold defaultstate="collapsed" desc="Key Dictionary">
+    boolean hasKeyDictionary() {
+        return BJSONHeader.isSet(flags, BJSONHeader.KEY_DICTIONARY);
+    }
+    
+    /**
+     * Takes over all keys of the document collected by a reader which went through it,
+     * so that reading may start anywhere. Readers created from this one share them.
+     */
+    void useDictionary(BJSONReader complete) {
+        Map<String, String> index = new HashMap<>();
+        for (String key : complete.keys) {
+            index.put(key, key);
+        }
+        this.keys = complete.keys;
+        this.keyIndex = index;
+    }
+    
+    /**
+     * Reads an object key. With the key dictionary, repeated keys are
+     * the same String instance.
+     */
+    public String readKey() throws IOException {
+        if (keys == null) return readString();
+        int id = reader.readVarInt();
+        if (id > 0) {
+            if (id > keys.size()) throw new BJSONException("Unknown key id " + id + ".");
+            return keys.get(id - 1);
+        }
+        String key = readString();
+        if (keyIndex != null) {
+            String known = keyIndex.get(key);
+            if (known == null) throw new BJSONException("Key '" + key + "' is missing from the dictionary.");
+            return known;
+        }
+        keys.add(key);
+        return key;
+    }
+    
+    private void skipKey() throws IOException {
+        if (keys == null) {
+            skipString();
+        } else if (keyIndex == null) {
+            readKey();
+        } else if (reader.readVarInt() == 0) {
+            skipString();
+        }
+    }
+    //</editor-fold>
+    
+    /**
+     * Reads values with the extension tag of the codec with it, instead of
+     * the codec registered in BJSONTypes.
+     */
+    public void registerCodec(BJSONCodec<?> codec) {
+        int index = BJSONTypes.extensionIndex(codec.getTag());
+        if (codecs == null) {
+            codecs = new BJSONCodec<?>[BJSONType.LAST_EXTENSION - BJSONType.FIRST_EXTENSION + 1];
+        }
+        codecs[index] = codec;
+    }
+    
+    /**
+     * Reads the payload length and the payload with the codec of the tag.
+     */
+    public Object readExtension(int tag) throws IOException {
+        int length = readSize();
+        BJSONCodec<?> codec = codecs == null ? null : codecs[BJSONTypes.extensionIndex(tag)];
+        if (codec == null) {
+            codec = BJSONTypes.getCodec(tag);
+        }
+        if (codec == null) throw new BJSONException(String.format("No codec registered for extension tag 0x%02X.", tag));
+        long start = reader.getPosition();
+        Object value = codec.read(reader, length);
+        if (reader.getPosition() - start != length) {
+            throw new BJSONException(String.format("Codec of extension tag 0x%02X read %d of %d bytes.", 
+                    tag, reader.getPosition() - start, length));
+        }
+        return value;
+    }
+    
+    /**
+     * Reads a Binary value: a read-only view of the source memory for ByteBuffer
+     * and mapped sources, a buffer over a new array otherwise.
+     */
+    public ByteBuffer readBinary() throws IOException {
+        return reader.readBuffer(readSize());
+    }
+    
+    public String readString() throws IOException {
+        if (!BJSONHeader.isSet(flags, BJSONHeader.PREFIXED_STRINGS)) return reader.readString();
+        return isCompact() ? reader.readVarPrefixedString() : reader.readPrefixedString();
+    }
+    
     public BJSONNode readNullValue() throws IOException {
         return BJSONNullNode.INSTANCE;
     }
     
+    /**
+     * Reads a container size or a length, Int32 or a varint in compact documents.
+     */
+    public int readSize() throws IOException {
+        return isCompact() ? reader.readVarInt() : reader.readInt();
+    }
+    
+    /**
+     * Reads the byte length of the elements of an indexed container.
+     */
+    long readLength() throws IOException {
+        return isCompact() ? reader.readVarLong() : reader.readLong();
+    }
+    
+    private boolean isCompact() {
+        return BJSONHeader.isSet(flags, BJSONHeader.COMPACT);
+    }
+    
+    /**
+     * Reads what precedes the elements of a container of the given type.
+     *
+     * @return the number of elements, -1 for unsized containers.
+     */
+    int readContainerSize(BJSONType type) throws IOException {
+        switch (type) {
+            case BJSONObject:
+            case BJSONArray:
+                return readSize();
+            case IndexedObject:
+            case IndexedArray: {
+                int size = readSize();
+                readLength();
+                skipFully(size * (type == BJSONType.IndexedObject ? INDEXED_ENTRY_SIZE : INDEXED_ITEM_SIZE));
+                return size;
+            }
+            case UnsizedObject:
+            case UnsizedArray:
+                return -1;
+            default:
+                throw new BJSONException("Container type expected, found " + type + ".");
+        }
+    }
+    
     public BJSONNode readBJSONObject() throws IOException {
+        return readEntries(readSize());
+    }
+    
+    public BJSONNode readBJSONArray() throws IOException {
+        return readItems(readSize());
+    }
+    
+    /**
+     * Reads an indexed object as a plain one, the offset table is skipped.
+     */
+    public BJSONNode readIndexedObject() throws IOException {
+        int size = readSize();
+        readLength();
+        skipFully(size * INDEXED_ENTRY_SIZE);
+        return readEntries(size);
+    }
+    
+    /**
+     * Reads an indexed array as a plain one, the offset table is skipped.
+     */
+    public BJSONNode readIndexedArray() throws IOException {
+        int size = readSize();
+        readLength();
+        skipFully(size * INDEXED_ITEM_SIZE);
+        return readItems(size);
+    }
+    
+    /**
+     * Reads the values of a packed array in bulk.
+     */
+    public BJSONPackedArray readPackedArray(BJSONType type) throws IOException {
+        int size = readSize();
+        switch (type) {
+            case Int32Array: {
+                int[] values = new int[size];
+                reader.readInts(values, 0, size);
+                return new BJSONPackedArray(new PackedItems(values, size));
+            }
+            case Int64Array: {
+                long[] values = new long[size];
+                reader.readLongs(values, 0, size);
+                return new BJSONPackedArray(new PackedItems(values, size));
+            }
+            case Float32Array: {
+                float[] values = new float[size];
+                reader.readFloats(values, 0, size);
+                return new BJSONPackedArray(new PackedItems(values, size));
+            }
+            case Float64Array: {
+                double[] values = new double[size];
+                reader.readDoubles(values, 0, size);
+                return new BJSONPackedArray(new PackedItems(values, size));
+            }
+            default:
+                throw new BJSONException("Packed array type expected, found " + type + ".");
+        }
+    }
+    
+    /**
+     * Reads String tagged entries up to the End tag.
+     */
+    public BJSONNode readUnsizedObject() throws IOException {
+        BJSONObject bjsonObject = new BJSONObject();
+        while (readEntryStart()) {
+            String key = readKey();
+            Object value = readValue(readType());
+            bjsonObject.putNode(key, value);
+        }
+        return bjsonObject;
+    }
+    
+    /**
+     * Reads items up to the End tag.
+     */
+    public BJSONNode readUnsizedArray() throws IOException {
+        BJSONArray bjsonArray = new BJSONArray();
+        for (BJSONType type = readType(); type != BJSONType.End; type = readType()) {
+            bjsonArray.add(readValue(type));
+        }
+        return bjsonArray;
+    }
+    
+    /**
+     * Reads the tag preceding an entry of an unsized object.
+     *
+     * @return false at the End tag.
+     */
+    boolean readEntryStart() throws IOException {
+        BJSONType type = readType();
+        if (type == BJSONType.End) return false;
+        if (type != BJSONType.String) throw new BJSONException("Object key expected, found " + type + ".");
+        return true;
+    }
+    
+    private BJSONObject readEntries(int size) throws IOException {
         BJSONObject bjsonObject = new BJSONObject();
-        int size = reader.readInt();
         for (int i=0; i<size; ++i) {
-            String key = reader.readString();
-            BJSONType type = BJSONType.fromValue(reader.read());
-            if (type == null) throw new BJSONException("Unknown element type detected.");
-            Object value = readValue(type);
-            bjsonObject.put(key, value);
+            String key = readKey();
+            Object value = readValue(readType());
+            bjsonObject.putNode(key, value);
         }
         return bjsonObject;
     }
     
-    public BJSONNode readBJSONArray() throws IOException {
+    private BJSONArray readItems(int size) throws IOException {
         BJSONArray bjsonArray = new BJSONArray();
-        int size = reader.readInt();
         for (int i=0; i<size; ++i) {
-            BJSONType type = BJSONType.fromValue(reader.read());
-            if (type == null) throw new BJSONException("Unknown element type detected.");
-            Object value = readValue(type);
+            Object value = readValue(readType());
             bjsonArray.add(value);
         }
         return bjsonArray;
     }
     
+    public BJSONType readType() throws IOException {
+        BJSONType type = toType(reader.read());
+        if (type == null) throw new BJSONException("Unknown element type detected.");
+        return type;
+    }
+    
+    //<editor-fold defaultstate="collapsed" desc="Record Arrays">
+    /**
+     * Reads the items of a RecordArray, records of its schema as BJSONObjects.
+     */
+    public BJSONNode readRecordArray() throws IOException {
+        int size = readSize();
+        RecordSchema schema = readRecordSchema();
+        BJSONArray bjsonArray = new BJSONArray();
+        for (int i=0; i<size; ++i) {
+            BJSONType type = readType();
+            bjsonArray.add(type == BJSONType.RecordArray ? readRecord(schema) : readValue(type));
+        }
+        return bjsonArray;
+    }
+    
+    /**
+     * Reads the field count, keys and types following the size of a RecordArray.
+     */
+    RecordSchema readRecordSchema() throws IOException {
+        int fields = readSize();
+        if (fields <= 0) throw new BJSONException("Record array without fields.");
+        String[] keys = new String[fields];
+        int[] tags = new int[fields];
+        for (int i=0; i<fields; ++i) {
+            keys[i] = readKey();
+            tags[i] = reader.read();
+            if (tags[i] < 0) throw new EOFException("Record field type expected.");
+        }
+        return new RecordSchema(keys, tags);
+    }
+    
+    private BJSONObject readRecord(RecordSchema schema) throws IOException {
+        BJSONObject bjsonObject = new BJSONObject();
+        for (int i=0; i<schema.size(); ++i) {
+            bjsonObject.putNode(schema.keys[i], readValue(fieldType(schema, i)));
+        }
+        return bjsonObject;
+    }
+    
+    /**
+     * Moves past the values of a record from the given field on.
+     */
+    void skipRecord(RecordSchema schema, int from) throws IOException {
+        for (int i=from; i<schema.size(); ++i) {
+            skipValue(fieldType(schema, i));
+        }
+    }
+    
+    /**
+     * @return the type of the field, taking its codec tag for extension values.
+     */
+    BJSONType fieldType(RecordSchema schema, int field) {
+        return toType(schema.tags[field]);
+    }
+    //</editor-fold>
+    
+    //<editor-fold defaultstate="collapsed" desc="Columns">
+    /**
+     * Reads the next node, an array of objects, straight into columns (see
+     * BJSONColumns) without building the objects.
+     *
+     * @return the columns or null at the end of the source.
+     * @throws BJSONException if the node is not an array of objects.
+     */
+    public BJSONColumns readColumns() throws IOException {
+        BJSONType type = readNodeType();
+        if (type == null) return null;
+        BJSONColumns.Builder columns = new BJSONColumns.Builder();
+        if (type == BJSONType.RecordArray) {
+            int size = readSize();
+            RecordSchema schema = readRecordSchema();
+            BJSONColumns.Column[] fields = new BJSONColumns.Column[schema.size()];
+            for (int i=0; i<fields.length; ++i) {
+                fields[i] = columns.column(schema.keys[i]);
+            }
+            for (int i=0; i<size; ++i) {
+                BJSONType item = readType();
+                if (item != BJSONType.RecordArray) {
+                    readRow(columns, item);
+                    continue;
+                }
+                int row = columns.addRow();
+                for (int field=0; field<fields.length; ++field) {
+                    fields[field].set(row, readValue(fieldType(schema, field)));
+                }
+            }
+            return columns.build();
+        }
+        if (type != BJSONType.BJSONArray && type != BJSONType.IndexedArray && type != BJSONType.UnsizedArray) {
+            throw new BJSONException("Array expected, found " + type + ".");
+        }
+        int size = readContainerSize(type);
+        for (int i=0; size < 0 || i < size; ++i) {
+            BJSONType item = readType();
+            if (size < 0 && item == BJSONType.End) break;
+            readRow(columns, item);
+        }
+        return columns.build();
+    }
+    
+    private void readRow(BJSONColumns.Builder columns, BJSONType type) throws IOException {
+        if (type != BJSONType.BJSONObject && type != BJSONType.IndexedObject && type != BJSONType.UnsizedObject) {
+            throw new BJSONException("Object expected, found " + type + ".");
+        }
+        int size = readContainerSize(type);
+        int row = columns.addRow();
+        for (int i=0; size < 0 ? readEntryStart() : i < size; ++i) {
+            String key = readKey();
+            columns.column(key).set(row, readValue(readType()));
+        }
+    }
+    //</editor-fold>
+    
+    //<editor-fold defaultstate="collapsed" desc="Skip">
+    /**
+     * Moves past a value of the given type without building it. Indexed
+     * containers are skipped at once by their length, unless keys of a key
+     * dictionary document are still being collected.
+     */
+    public void skipValue(BJSONType type) throws IOException {
+        switch (type) {
+            case BJSONArray: {
+                int size = readSize();
+                for (int i=0; i<size; ++i) {
+                    skipValue(readType());
+                }
+                break;
+            }
+            case BJSONObject: {
+                int size = readSize();
+                for (int i=0; i<size; ++i) {
+                    skipKey();
+                    skipValue(readType());
+                }
+                break;
+            }
+            case IndexedArray: {
+                int size = readSize();
+                long length = readLength();
+                if (!collectsKeys()) {
+                    skipFully(size * INDEXED_ITEM_SIZE + length);
+                    break;
+                }
+                skipFully(size * INDEXED_ITEM_SIZE);
+                for (int i=0; i<size; ++i) {
+                    skipValue(readType());
+                }
+                break;
+            }
+            case IndexedObject: {
+                int size = readSize();
+                long length = readLength();
+                if (!collectsKeys()) {
+                    skipFully(size * INDEXED_ENTRY_SIZE + length);
+                    break;
+                }
+                skipFully(size * INDEXED_ENTRY_SIZE);
+                for (int i=0; i<size; ++i) {
+                    skipKey();
+                    skipValue(readType());
+                }
+                break;
+            }
+            case Extension:
+            case Binary: {
+                skipFully(readSize());
+                break;
+            }
+            case UnsizedArray: {
+                for (BJSONType item = readType(); item != BJSONType.End; item = readType()) {
+                    skipValue(item);
+                }
+                break;
+            }
+            case RecordArray: {
+                int size = readSize();
+                RecordSchema schema = readRecordSchema();
+                for (int i=0; i<size; ++i) {
+                    BJSONType item = readType();
+                    if (item == BJSONType.RecordArray) {
+                        skipRecord(schema, 0);
+                    } else {
+                        skipValue(item);
+                    }
+                }
+                break;
+            }
+            case UnsizedObject: {
+                while (readEntryStart()) {
+                    skipKey();
+                    skipValue(readType());
+                }
+                break;
+            }
+            case Int32Array:
+            case Float32Array: {
+                skipFully((long) readSize() * Integer.BYTES);
+                break;
+            }
+            case Int64Array:
+            case Float64Array: {
+                skipFully((long) readSize() * Long.BYTES);
+                break;
+            }
+            case String: {
+                skipString();
+                break;
+            }
+            case Boolean: {
+                reader.read();
+                break;
+            }
+            case Int16:
+            case Int32:
+            case Int64:
+            case UInt16:
+            case UInt32:
+            case UInt64: {
+                if (isCompact()) {
+                    reader.readVarLong();
+                } else {
+                    skipFully(type.getSize());
+                }
+                break;
+            }
+            default:
+                skipFully(type.getSize());
+        }
+    }
+    
+    /**
+     * @return true if keys may be defined in skipped values, which then can not be
+     * skipped by their length.
+     */
+    private boolean collectsKeys() {
+        return keys != null && keyIndex == null;
+    }
+    
+    private void skipString() throws IOException {
+        if (BJSONHeader.isSet(flags, BJSONHeader.PREFIXED_STRINGS)) {
+            skipFully(readSize());
+        } else {
+            reader.readString();
+        }
+    }
+    
+    private void skipFully(long count) throws IOException {
+        if (reader.skip(count) < count) {
+            throw new EOFException("Expected " + count + " bytes to skip.");
+        }
+    }
+    //</editor-fold>
+    
     public Object readValue(BJSONType type) throws IOException {
         switch (type) {
             case NULL: {
@@ -73,19 +667,46 @@ public class BJSONReader implements AutoCloseable {
             case BJSONObject: {
                 return readBJSONObject();
             }
+            case IndexedArray: {
+                return readIndexedArray();
+            }
+            case RecordArray: {
+                return readRecordArray();
+            }
+            case IndexedObject: {
+                return readIndexedObject();
+            }
+            case Int32Array:
+            case Int64Array:
+            case Float32Array:
+            case Float64Array: {
+                return readPackedArray(type);
+            }
+            case UnsizedArray: {
+                return readUnsizedArray();
+            }
+            case Extension: {
+                return readExtension(extensionTag);
+            }
+            case Binary: {
+                return readBinary();
+            }
+            case UnsizedObject: {
+                return readUnsizedObject();
+            }
             case String: {
-                return reader.readString();
+                return readString();
             }
             case Boolean:
                 return reader.readBoolean();
             case Int8:
                 return reader.readByte();
             case Int16:
-                return reader.readShort();
+                return isCompact() ? (short) reader.readSignedVarInt() : reader.readShort();
             case Int32:
-                return reader.readInt();
+                return isCompact() ? reader.readSignedVarInt() : reader.readInt();
             case Int64:
-                return reader.readLong();
+                return isCompact() ? reader.readSignedVarLong() : reader.readLong();
             case Float32:
                 return reader.readFloat();
             case Float64:
@@ -93,11 +714,11 @@ public class BJSONReader implements AutoCloseable {
             case UInt8:
                 return reader.readUInt8();
             case UInt16:
-                return reader.readUInt16();
+                return isCompact() ? UInt16.valueOf(reader.readVarInt()) : reader.readUInt16();
             case UInt32:
-                return reader.readUInt32();
+                return isCompact() ? new UInt32(reader.readVarLong()) : reader.readUInt32();
             case UInt64:
-                return reader.readUInt64();
+                return isCompact() ? UInt64.valueOf(reader.readVarLong()) : reader.readUInt64();
             default:
                 throw new BJSONException("This type is not supported.");
         }
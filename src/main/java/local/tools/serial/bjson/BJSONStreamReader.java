@@ -0,0 +1,299 @@
+package local.tools.serial.bjson;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import local.tools.bin.BufferedNumberReader;
+
+/**
+ * Pull parser over a BJSON stream.
+ * <p>
+ * Each call to {@link #next()} reports one {@link BJSONEvent}, objects and arrays
+ * are never built unless asked with {@link #readNode()}, so memory does not depend
+ * on the document size. Sized, indexed and unsized (BJSONStreamWriter) containers
+ * are reported alike, packed arrays as a single VALUE. Records of a RecordArray
+ * are reported as objects with the keys of its schema.
+ * <p>
+ * A stream holds any number of top level nodes one after another,
+ * {@link #next()} returns null when the input is exhausted.
+ */
+public final class BJSONStreamReader implements AutoCloseable {
+
+    private final BJSONReader reader;
+
+    /* Per open container: remaining elements (-1 if unsized) and whether it is an object */
+    private int[] remaining = new int[32];
+    private boolean[] objects = new boolean[32];
+    /* Per open container: the schema of a RecordArray or of one of its records, else null */
+    private RecordSchema[] schemas = new RecordSchema[32];
+    private int depth = 0;
+    private boolean expectValue = false;
+
+    private BJSONEvent event;
+    private BJSONType type;
+    private int size;
+    private Object value;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    public BJSONStreamReader(InputStream source, boolean littleEndian) {
+        this(new BJSONReader(source, littleEndian));
+    }
+
+    public BJSONStreamReader(InputStream source) {
+        this(source, true);
+    }
+
+    public BJSONStreamReader(String filename, boolean littleEndian) throws FileNotFoundException {
+        this(new BJSONReader(new FileInputStream(filename), littleEndian, BufferedNumberReader.DEFAULT_BUFFER_SIZE));
+    }
+
+    public BJSONStreamReader(String filename) throws FileNotFoundException {
+        this(filename, true);
+    }
+
+    /**
+     * Pulls events from the reader, which must be at a node start.
+     */
+    public BJSONStreamReader(BJSONReader reader) {
+        this.reader = reader;
+    }
+    //</editor-fold>
+
+    /**
+     * Advances to the next event.
+     *
+     * @return the next event or null when the input has no more nodes.
+     */
+    public BJSONEvent next() throws IOException {
+        this.value = null;
+        this.type = null;
+        this.event = advance();
+        return this.event;
+    }
+
+    private BJSONEvent advance() throws IOException {
+        if (depth == 0) {
+            BJSONType nodeType = reader.readNodeType();
+            if (nodeType == null) return null;
+            return start(nodeType);
+        }
+        int top = depth - 1;
+        RecordSchema schema = schemas[top];
+        if (objects[top]) {
+            if (expectValue) {
+                expectValue = false;
+                return start(schema == null ? reader.readType() : reader.fieldType(schema, field(top)));
+            }
+            if (!hasMore(top)) {
+                depth -= 1;
+                return BJSONEvent.END_OBJECT;
+            }
+            value = schema == null ? reader.readKey() : schema.keys[field(top)];
+            expectValue = true;
+            return BJSONEvent.KEY;
+        }
+        if (remaining[top] == 0) {
+            depth -= 1;
+            return BJSONEvent.END_ARRAY;
+        }
+        BJSONType itemType = reader.readType();
+        if (itemType == BJSONType.End) {
+            depth -= 1;
+            return BJSONEvent.END_ARRAY;
+        }
+        if (remaining[top] > 0) {
+            remaining[top] -= 1;
+        }
+        if (schema != null && itemType == BJSONType.RecordArray) {
+            this.type = BJSONType.BJSONObject;
+            push(schema.size(), true);
+            schemas[depth - 1] = schema;
+            return BJSONEvent.START_OBJECT;
+        }
+        return start(itemType);
+    }
+
+    /**
+     * @return the field of the record at the given level whose key was read last.
+     */
+    private int field(int level) {
+        return schemas[level].size() - remaining[level] - 1;
+    }
+
+    /**
+     * Consumes the start of the next element of the object at the given level.
+     *
+     * @return false if the object has no more entries.
+     */
+    private boolean hasMore(int level) throws IOException {
+        if (remaining[level] < 0) return reader.readEntryStart();
+        if (remaining[level] == 0) return false;
+        remaining[level] -= 1;
+        return true;
+    }
+
+    private BJSONEvent start(BJSONType nodeType) throws IOException {
+        this.type = nodeType;
+        switch (nodeType) {
+            case BJSONObject:
+            case IndexedObject:
+            case UnsizedObject:
+                push(reader.readContainerSize(nodeType), true);
+                return BJSONEvent.START_OBJECT;
+            case BJSONArray:
+            case IndexedArray:
+            case UnsizedArray:
+                push(reader.readContainerSize(nodeType), false);
+                return BJSONEvent.START_ARRAY;
+            case RecordArray: {
+                int count = reader.readSize();
+                RecordSchema schema = reader.readRecordSchema();
+                push(count, false);
+                schemas[depth - 1] = schema;
+                return BJSONEvent.START_ARRAY;
+            }
+            case End:
+                throw new BJSONException("Unexpected End tag.");
+            default:
+                value = reader.readValue(nodeType);
+                if (value instanceof BJSONNullNode) {
+                    value = null;
+                }
+                return BJSONEvent.VALUE;
+        }
+    }
+
+    private void push(int count, boolean object) {
+        if (depth == remaining.length) {
+            remaining = Arrays.copyOf(remaining, depth * 2);
+            objects = Arrays.copyOf(objects, depth * 2);
+            schemas = Arrays.copyOf(schemas, depth * 2);
+        }
+        remaining[depth] = count;
+        objects[depth] = object;
+        schemas[depth] = null;
+        depth += 1;
+        size = count;
+    }
+
+    /**
+     * Reads the node the current event starts: the whole object or array after
+     * START_OBJECT or START_ARRAY, leaving the reader on the matching end event,
+     * or the current value after VALUE.
+     */
+    public Object readNode() throws IOException {
+        switch (event) {
+            case START_OBJECT: {
+                BJSONObject object = new BJSONObject();
+                while (next() != BJSONEvent.END_OBJECT) {
+                    String key = getString();
+                    next();
+                    object.putNode(key, readNode());
+                }
+                return object;
+            }
+            case START_ARRAY: {
+                BJSONArray array = new BJSONArray();
+                while (next() != BJSONEvent.END_ARRAY) {
+                    array.add(readNode());
+                }
+                return array;
+            }
+            case VALUE:
+                return value;
+            default:
+                throw new BJSONException("No node starts at " + event + ".");
+        }
+    }
+
+    /**
+     * Skips the content of the object or array just started,
+     * the reader is left on the matching END_OBJECT or END_ARRAY event.
+     */
+    public void skipChildren() throws IOException {
+        if (event != BJSONEvent.START_OBJECT && event != BJSONEvent.START_ARRAY) return;
+        int top = depth - 1;
+        RecordSchema schema = schemas[top];
+        if (objects[top] && schema != null) {
+            reader.skipRecord(schema, schema.size() - remaining[top]);
+            event = BJSONEvent.END_OBJECT;
+        } else if (objects[top]) {
+            while (hasMore(top)) {
+                reader.readKey();
+                reader.skipValue(reader.readType());
+            }
+            event = BJSONEvent.END_OBJECT;
+        } else if (schema != null) {
+            for (int i = 0; i < remaining[top]; ++i) {
+                BJSONType item = reader.readType();
+                if (item == BJSONType.RecordArray) {
+                    reader.skipRecord(schema, 0);
+                } else {
+                    reader.skipValue(item);
+                }
+            }
+            event = BJSONEvent.END_ARRAY;
+        } else {
+            if (remaining[top] < 0) {
+                for (BJSONType item = reader.readType(); item != BJSONType.End; item = reader.readType()) {
+                    reader.skipValue(item);
+                }
+            } else {
+                for (int i = 0; i < remaining[top]; ++i) {
+                    reader.skipValue(reader.readType());
+                }
+            }
+            event = BJSONEvent.END_ARRAY;
+        }
+        depth -= 1;
+        expectValue = false;
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Getters">
+    public BJSONEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * @return the type of the node the current START or VALUE event reports.
+     */
+    public BJSONType getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of elements of the container just started, -1 if it is unsized.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the current key or string value.
+     */
+    public String getString() {
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * @return the current value, null for NULL nodes.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * @return the number of objects and arrays enclosing the current position.
+     */
+    public int getDepth() {
+        return depth;
+    }
+    //</editor-fold>
+
+    @Override
+    public void close() throws Exception {
+        reader.close();
+    }
+}
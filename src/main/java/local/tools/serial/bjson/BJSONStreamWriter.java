@@ -0,0 +1,176 @@
+package local.tools.serial.bjson;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Incremental BJSON writer, the counterpart of BJSONStreamReader.
+ * <p>
+ * Objects and arrays are written element by element without building a
+ * BJSONObject or BJSONArray first. A container started with its size is written
+ * as a plain one and must get exactly that many elements, a container started
+ * without a size is written as UnsizedObject / UnsizedArray closed by an End tag.
+ * <pre>
+ * writer.startArray();
+ * for (Record record : records) {
+ *     writer.startObject(2).key("id").value(record.id).key("name").value(record.name).end();
+ * }
+ * writer.end();
+ * </pre>
+ * Values may be any node BJSONWriter accepts, written with its options.
+ */
+public final class BJSONStreamWriter implements AutoCloseable {
+
+    private final BJSONWriter writer;
+
+    /* Per open container: remaining elements (-1 if unsized) and whether it is an object */
+    private int[] remaining = new int[32];
+    private boolean[] objects = new boolean[32];
+    private int depth = 0;
+    private boolean keyWritten = false;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    public BJSONStreamWriter(OutputStream target, boolean littleEndian) {
+        this(new BJSONWriter(target, littleEndian));
+    }
+
+    public BJSONStreamWriter(OutputStream target) {
+        this(target, true);
+    }
+
+    public BJSONStreamWriter(String filename, boolean littleEndian) throws FileNotFoundException {
+        this(new BJSONWriter(filename, littleEndian));
+    }
+
+    public BJSONStreamWriter(String filename) throws FileNotFoundException {
+        this(filename, true);
+    }
+
+    /**
+     * Writes through the writer, its options must be set before the first call.
+     */
+    public BJSONStreamWriter(BJSONWriter writer) {
+        this.writer = writer;
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Containers">
+    public BJSONStreamWriter startObject(int size) throws IOException {
+        if (size < 0) throw new BJSONException("Given negative size.");
+        beginNode();
+        writer.writeType(BJSONType.BJSONObject);
+        writer.writeSize(size);
+        push(size, true);
+        return this;
+    }
+
+    public BJSONStreamWriter startObject() throws IOException {
+        beginNode();
+        writer.writeType(BJSONType.UnsizedObject);
+        push(-1, true);
+        return this;
+    }
+
+    public BJSONStreamWriter startArray(int size) throws IOException {
+        if (size < 0) throw new BJSONException("Given negative size.");
+        beginNode();
+        writer.writeType(BJSONType.BJSONArray);
+        writer.writeSize(size);
+        push(size, false);
+        return this;
+    }
+
+    public BJSONStreamWriter startArray() throws IOException {
+        beginNode();
+        writer.writeType(BJSONType.UnsizedArray);
+        push(-1, false);
+        return this;
+    }
+
+    /**
+     * Closes the innermost open object or array.
+     */
+    public BJSONStreamWriter end() throws IOException {
+        if (depth == 0) throw new BJSONException("No object or array to end.");
+        int top = depth - 1;
+        if (keyWritten) throw new BJSONException("Value expected after a key.");
+        if (remaining[top] > 0) {
+            throw new BJSONException(remaining[top] + " more elements expected before the end.");
+        }
+        if (remaining[top] < 0) {
+            writer.writeType(BJSONType.End);
+        }
+        depth -= 1;
+        return this;
+    }
+
+    private void push(int count, boolean object) {
+        if (depth == remaining.length) {
+            remaining = Arrays.copyOf(remaining, depth * 2);
+            objects = Arrays.copyOf(objects, depth * 2);
+        }
+        remaining[depth] = count;
+        objects[depth] = object;
+        depth += 1;
+    }
+    //</editor-fold>
+
+    public BJSONStreamWriter key(String key) throws IOException {
+        int top = depth - 1;
+        if (depth == 0 || !objects[top]) throw new BJSONException("Key outside of an object.");
+        if (keyWritten) throw new BJSONException("Value expected after a key.");
+        if (remaining[top] == 0) throw new BJSONException("All entries of the object are written.");
+        if (remaining[top] > 0) {
+            remaining[top] -= 1;
+        } else {
+            writer.writeType(BJSONType.String);
+        }
+        writer.writeKey(key);
+        keyWritten = true;
+        return this;
+    }
+
+    /**
+     * Writes a value: a scalar, null, or a whole BJSONObject or BJSONArray.
+     */
+    public BJSONStreamWriter value(Object value) throws IOException {
+        beginNode();
+        writer.writeItem(value);
+        return this;
+    }
+
+    /**
+     * Checks a node may follow and accounts it to the enclosing container.
+     */
+    private void beginNode() throws IOException {
+        if (depth == 0) {
+            writer.beginTopNode();
+            return;
+        }
+        int top = depth - 1;
+        if (objects[top]) {
+            if (!keyWritten) throw new BJSONException("Key expected before an object value.");
+            keyWritten = false;
+            return;
+        }
+        if (remaining[top] == 0) throw new BJSONException("All items of the array are written.");
+        if (remaining[top] > 0) {
+            remaining[top] -= 1;
+        }
+    }
+
+    /**
+     * @return the number of objects and arrays not ended yet.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public void close() throws Exception {
+        writer.close();
+        if (depth > 0) throw new BJSONException(depth + " objects or arrays were not ended.");
+    }
+}
@@ -0,0 +1,233 @@
+package local.tools.serial.bjson;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import local.tools.serial.json.discovery.JSONEvent;
+import local.tools.serial.json.discovery.JSONStreamReader;
+
+/**
+ * Converts JSON text to BJSON and back event by event, without building
+ * JSONObject or BJSONObject trees, so memory does not depend on the document size.
+ * <p>
+ * JSON objects and arrays become UnsizedObject / UnsizedArray, as their sizes are
+ * not known before their end. BJSON values without a JSON form are written as
+ * strings: Binary as Base64, extension values by their toString.
+ */
+public final class BJSONTranscoder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BJSONTranscoder() {
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Files">
+    /**
+     * Converts a JSON file of one or more top level values to a BJSON file.
+     */
+    public static void jsonToBJSON(String jsonFile, String bjsonFile) throws Exception {
+        jsonToBJSON(jsonFile, new BJSONWriter(bjsonFile));
+    }
+
+    /**
+     * Converts a JSON file to BJSON through the writer, with its options. The writer is closed.
+     */
+    public static void jsonToBJSON(String jsonFile, BJSONWriter writer) throws Exception {
+        try (BJSONStreamWriter target = new BJSONStreamWriter(writer);
+             JSONStreamReader reader = new JSONStreamReader(
+                     new InputStreamReader(new FileInputStream(jsonFile), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            transcode(reader, target);
+        }
+    }
+
+    /**
+     * Converts a BJSON file to UTF-8 JSON text, one line per top level node.
+     */
+    public static void bjsonToJSON(String bjsonFile, String jsonFile) throws Exception {
+        try (BJSONStreamReader reader = new BJSONStreamReader(bjsonFile);
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(new FileOutputStream(jsonFile), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            transcode(reader, writer);
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="JSON to BJSON">
+    /**
+     * Writes all remaining values of the JSON reader to the BJSON writer.
+     */
+    public static void transcode(JSONStreamReader reader, BJSONStreamWriter writer) throws IOException {
+        for (JSONEvent event = reader.next(); event != null; event = reader.next()) {
+            switch (event) {
+                case START_OBJECT:
+                    writer.startObject();
+                    break;
+                case START_ARRAY:
+                    writer.startArray();
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    writer.end();
+                    break;
+                case KEY:
+                    writer.key(reader.getString());
+                    break;
+                case VALUE_STRING:
+                    writer.value(reader.getString());
+                    break;
+                case VALUE_NUMBER:
+                    writer.value(toBJSONNumber(reader.getNumber()));
+                    break;
+                case VALUE_TRUE:
+                    writer.value(Boolean.TRUE);
+                    break;
+                case VALUE_FALSE:
+                    writer.value(Boolean.FALSE);
+                    break;
+                case VALUE_NULL:
+                    writer.value(null);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Integer, Long and Double stay as they are, numbers too large for them
+     * become BigDecimal.
+     */
+    private static Object toBJSONNumber(Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof Double || number instanceof BigDecimal) {
+            return number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        return number.doubleValue();
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="BJSON to JSON">
+    /**
+     * Writes all remaining nodes of the BJSON reader as JSON text, one line per
+     * top level node. The writer is not closed.
+     */
+    public static void transcode(BJSONStreamReader reader, Writer writer) throws IOException {
+        boolean comma = false;
+        for (BJSONEvent event = reader.next(); event != null; event = reader.next()) {
+            switch (event) {
+                case START_OBJECT:
+                case START_ARRAY:
+                    if (comma) {
+                        writer.write(',');
+                    }
+                    writer.write(event == BJSONEvent.START_OBJECT ? '{' : '[');
+                    comma = false;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    writer.write(event == BJSONEvent.END_OBJECT ? '}' : ']');
+                    comma = true;
+                    break;
+                case KEY:
+                    if (comma) {
+                        writer.write(',');
+                    }
+                    quote(reader.getString(), writer);
+                    writer.write(':');
+                    comma = false;
+                    break;
+                case VALUE:
+                    if (comma) {
+                        writer.write(',');
+                    }
+                    writeValue(reader.getValue(), writer);
+                    comma = true;
+                    break;
+            }
+            if (reader.getDepth() == 0) {
+                writer.write('\n');
+                comma = false;
+            }
+        }
+        writer.flush();
+    }
+
+    private static void writeValue(Object value, Writer writer) throws IOException {
+        if (value == null) {
+            writer.write("null");
+        } else if (value instanceof String) {
+            quote((String) value, writer);
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                throw new BJSONException("Number " + value + " has no JSON form.");
+            }
+            writer.write(value.toString());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            writer.write(value.toString());
+        } else if (value instanceof BJSONPackedArray) {
+            BJSONPackedArray array = (BJSONPackedArray) value;
+            writer.write('[');
+            for (int i = 0, size = array.getSize(); i < size; ++i) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeValue(array.get(i), writer);
+            }
+            writer.write(']');
+        } else if (value instanceof ByteBuffer) {
+            ByteBuffer encoded = Base64.getEncoder().encode(((ByteBuffer) value).duplicate());
+            quote(StandardCharsets.ISO_8859_1.decode(encoded).toString(), writer);
+        } else {
+            quote(value.toString(), writer);
+        }
+    }
+
+    private static void quote(String value, Writer writer) throws IOException {
+        writer.write('"');
+        int from = 0;
+        for (int i = 0, length = value.length(); i < length; ++i) {
+            char c = value.charAt(i);
+            if (c >= ' ' && c != '"' && c != '\\') continue;
+            writer.write(value, from, i - from);
+            from = i + 1;
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\b':
+                    writer.write("\\b");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\f':
+                    writer.write("\\f");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                default:
+                    writer.write(String.format("\\u%04x", (int) c));
+            }
+        }
+        writer.write(value, from, value.length() - from);
+        writer.write('"');
+    }
+    //</editor-fold>
+}
@@ -18,7 +18,22 @@ public enum BJSONType {
     UInt32      (11, 4),
     UInt64      (12, 8),
     Float32     (13, 4),
-    Float64     (14, 8);
+    Float64     (14, 8),
+    IndexedObject (15),// Size, Int64 entries length, (Int32 key hash, Int64 entry offset) table sorted by hash, entries
+    IndexedArray  (16),// Size, Int64 items length, Int64 item offset table, items
+    Int32Array  (17),// Size, packed values
+    Int64Array  (18),
+    Float32Array(19),
+    Float64Array(20),
+    UnsizedObject (21),// (String tag, key, type, value) entries, End
+    UnsizedArray  (22),// (type, value) items, End
+    End         (23, 0),
+    Binary      (24),// Int32 length, bytes
+    RecordArray (25),// Size, field count, (key, type) fields, items; items matching the fields as RecordArray tag + values
+    Extension   (0x40);// Tag from FIRST_EXTENSION to LAST_EXTENSION, Int32 payload length, payload (see BJSONCodec)
+    
+    public static final int FIRST_EXTENSION = 0x40;
+    public static final int LAST_EXTENSION = 0x7F;
     
     private final byte value;
     private final int size;
@@ -49,10 +64,25 @@ public enum BJSONType {
             case 12: return UInt64;
             case 13: return Float32;
             case 14: return Float64;
-            default: return null;
+            case 15: return IndexedObject;
+            case 16: return IndexedArray;
+            case 17: return Int32Array;
+            case 18: return Int64Array;
+            case 19: return Float32Array;
+            case 20: return Float64Array;
+            case 21: return UnsizedObject;
+            case 22: return UnsizedArray;
+            case 23: return End;
+            case 24: return Binary;
+            case 25: return RecordArray;
+            default: return isExtension(value) ? Extension : null;
         }
     }
 
+    public static boolean isExtension(int value) {
+        return value >= FIRST_EXTENSION && value <= LAST_EXTENSION;
+    }
+
     public byte getValue() {
         return value;
     }
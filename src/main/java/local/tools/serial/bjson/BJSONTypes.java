@@ -0,0 +1,214 @@
+package local.tools.serial.bjson;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import local.tools.serial.json.discovery.JSONArray;
+import local.tools.serial.json.discovery.JSONObject;
+import local.tools.serial.primitives.UInt16;
+import local.tools.serial.primitives.UInt32;
+import local.tools.serial.primitives.UInt64;
+import local.tools.serial.primitives.UInt8;
+
+/**
+ * Type dispatch shared by BJSONWriter, BJSONObject and BJSONArray.
+ * <p>
+ * Every class is resolved once to an entry cached in a ClassValue, so finding
+ * the BJSON type of a value costs the same for all supported types. Classes
+ * other than the BJSON value types are stored through a converter to a supported
+ * value: JSONObject and JSONArray are built in, user types are added with
+ * {@link #register(Class, Function)}. A class without an entry of its own uses
+ * the entry of its closest registered superclass or interface.
+ * <p>
+ * Extension codecs registered with {@link #register(BJSONCodec)} are used by all
+ * readers and writers which have no codec of their own for the tag or class.
+ * The BJSONCodecs standard codecs are registered from the start.
+ */
+public final class BJSONTypes {
+
+    /**
+     * How the values of a class are written: as a BJSON type, or converted first.
+     */
+    static class Entry {
+        final BJSONType type;
+        final Function<Object, ?> converter;
+        final BJSONCodec<?> codec;
+
+        Entry(BJSONType type, Function<Object, ?> converter) {
+            this(type, converter, null);
+        }
+
+        Entry(BJSONType type, Function<Object, ?> converter, BJSONCodec<?> codec) {
+            this.type = type;
+            this.converter = converter;
+            this.codec = codec;
+        }
+
+        BJSONType typeOf(Object value) {
+            return type;
+        }
+    }
+
+    private static final Map<Class<?>, Entry> REGISTERED = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<BJSONCodec<?>> CODECS = 
+            new AtomicReferenceArray<>(BJSONType.LAST_EXTENSION - BJSONType.FIRST_EXTENSION + 1);
+
+    private static final ClassValue<Entry> ENTRIES = new ClassValue<Entry>() {
+        @Override
+        protected Entry computeValue(Class<?> type) {
+            return lookup(type);
+        }
+    };
+
+    //<editor-fold defaultstate="collapsed" desc="Built-in Types">
+    static {
+        builtin(BJSONNullNode.class, BJSONType.NULL);
+        builtin(BJSONObject.class, BJSONType.BJSONObject);
+        builtin(BJSONArray.class, BJSONType.BJSONArray);
+        builtin(String.class, BJSONType.String);
+        builtin(Boolean.class, BJSONType.Boolean);
+        builtin(Byte.class, BJSONType.Int8);
+        builtin(Short.class, BJSONType.Int16);
+        builtin(Integer.class, BJSONType.Int32);
+        builtin(Long.class, BJSONType.Int64);
+        builtin(UInt8.class, BJSONType.UInt8);
+        builtin(UInt16.class, BJSONType.UInt16);
+        builtin(UInt32.class, BJSONType.UInt32);
+        builtin(UInt64.class, BJSONType.UInt64);
+        builtin(Float.class, BJSONType.Float32);
+        builtin(Double.class, BJSONType.Float64);
+        builtin(byte[].class, BJSONType.Binary);
+        builtin(ByteBuffer.class, BJSONType.Binary);
+        REGISTERED.put(BJSONPackedArray.class, new Entry(BJSONType.BJSONArray, null) {
+            @Override
+            BJSONType typeOf(Object value) {
+                return ((BJSONPackedArray) value).getType();
+            }
+        });
+        register(JSONObject.class, BJSONObject::new);
+        register(JSONArray.class, BJSONArray::new);
+        register(BJSONCodecs.UUID);
+        register(BJSONCodecs.INSTANT);
+        register(BJSONCodecs.BIG_DECIMAL);
+    }
+
+    private static void builtin(Class<?> type, BJSONType bjsonType) {
+        REGISTERED.put(type, new Entry(bjsonType, null));
+    }
+    //</editor-fold>
+
+    private BJSONTypes() {
+    }
+
+    /**
+     * Stores values of the type (and of its subclasses without an entry of their own)
+     * as the value the converter returns, e.g. an Instant as its epoch milliseconds.
+     * Should be called before values of the type are written, classes already
+     * resolved through a supertype keep that entry.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void register(Class<T> type, Function<? super T, ?> converter) {
+        REGISTERED.put(type, new Entry(null, (Function<Object, ?>) converter));
+        ENTRIES.remove(type);
+    }
+
+    /**
+     * Writes values of the codec type as extension values and reads its tag back
+     * with the codec, for all readers and writers without a codec of their own.
+     *
+     * @throws BJSONException if the tag is out of the extension range or taken by another codec.
+     */
+    public static synchronized void register(BJSONCodec<?> codec) {
+        int index = extensionIndex(codec.getTag());
+        BJSONCodec<?> current = CODECS.get(index);
+        if (current != null && current != codec && current.getType() != codec.getType()) {
+            throw new BJSONException(String.format("Extension tag 0x%02X is taken by %s.", codec.getTag(), current.getType().getName()));
+        }
+        CODECS.set(index, codec);
+        REGISTERED.put(codec.getType(), new Entry(BJSONType.Extension, null, codec));
+        ENTRIES.remove(codec.getType());
+    }
+
+    /**
+     * @return the codec registered for the extension tag, null if there is none.
+     */
+    public static BJSONCodec<?> getCodec(int tag) {
+        return CODECS.get(extensionIndex(tag));
+    }
+
+    /**
+     * @return the codec registered for the class of the value, null if there is none.
+     */
+    static BJSONCodec<?> getCodec(Object value) {
+        Entry entry = ENTRIES.get(value.getClass());
+        return entry == null ? null : entry.codec;
+    }
+
+    static int extensionIndex(int tag) {
+        if (!BJSONType.isExtension(tag)) {
+            throw new BJSONException(String.format("Extension tag 0x%02X is out of the extension range.", tag));
+        }
+        return tag - BJSONType.FIRST_EXTENSION;
+    }
+
+    /**
+     * @return true if values of the class can be stored in BJSON nodes.
+     */
+    public static boolean isSupported(Class<?> type) {
+        return ENTRIES.get(type) != null;
+    }
+
+    /**
+     * @return the type a value is written as, NULL for null.
+     * @throws BJSONException if the value has to be converted first or is not supported.
+     */
+    public static BJSONType typeOf(Object value) throws BJSONException {
+        if (value == null) return BJSONType.NULL;
+        Entry entry = ENTRIES.get(value.getClass());
+        if (entry == null || entry.type == null) {
+            throw new BJSONException("Unsupported type exception: " + value.getClass().getName());
+        }
+        return entry.typeOf(value);
+    }
+
+    /**
+     * Converts the value to the form kept in BJSON nodes, BJSONNullNode for null.
+     *
+     * @throws BJSONException if the value is not supported.
+     */
+    public static Object toNode(Object value) throws BJSONException {
+        if (value == null) return BJSONNullNode.INSTANCE;
+        for (int i = 0; i < 8; ++i) {
+            Entry entry = ENTRIES.get(value.getClass());
+            if (entry == null) break;
+            if (entry.converter == null) return value;
+            value = entry.converter.apply(value);
+            if (value == null) return BJSONNullNode.INSTANCE;
+        }
+        throw new BJSONException("Unsupported type exception: " + value.getClass().getName());
+    }
+
+    private static Entry lookup(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            Entry entry = REGISTERED.get(c);
+            if (entry != null) return entry;
+            for (Class<?> i : c.getInterfaces()) {
+                entry = lookupInterface(i);
+                if (entry != null) return entry;
+            }
+        }
+        return null;
+    }
+
+    private static Entry lookupInterface(Class<?> type) {
+        Entry entry = REGISTERED.get(type);
+        if (entry != null) return entry;
+        for (Class<?> i : type.getInterfaces()) {
+            entry = lookupInterface(i);
+            if (entry != null) return entry;
+        }
+        return null;
+    }
+}
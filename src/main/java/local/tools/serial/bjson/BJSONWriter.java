@@ -1,10 +1,14 @@
 package local.tools.serial.bjson;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import local.tools.bin.BinaryWriter;
 import local.tools.bin.EndianType;
@@ -15,11 +19,45 @@ import local.tools.serial.primitives.UInt8;
 
 public class BJSONWriter implements AutoCloseable {
     
+    /* Containers with fewer elements are written plain even with indexed containers on */
+    public static final int INDEXED_MIN_SIZE = 8;
+    
+    /* Arrays with fewer items are written plain even with record arrays on */
+    public static final int RECORD_MIN_SIZE = 4;
+    
     private final BinaryWriter writer;
+    private final boolean littleEndian;
+    
+    private int flags = 0;
+    private boolean started = false;
+    private boolean indexedContainers = false;
+    private boolean packedArrays = false;
+    private boolean recordArrays = false;
+    private Map<Class<?>, BJSONCodec<?>> codecs;
+    private Map<String, Integer> keyIds;
+    
+    // Payloads of codecs without a fixed size are encoded here first
+    private ByteArrayOutputStream extension;
+    private BinaryWriter extensionWriter;
 
     //<editor-fold defaultstate="collapsed" desc="Constructors">
     public BJSONWriter(OutputStream source, boolean littleEndian) {
         this.writer = new BinaryWriter(source, littleEndian ? EndianType.LittleEndian : EndianType.BigEndian);
+        this.littleEndian = littleEndian;
+    }
+    
+    /**
+     * Writes nested values of a document, the options are taken over from its writer.
+     */
+    private BJSONWriter(OutputStream target, BJSONWriter parent) {
+        this(target, parent.littleEndian);
+        this.flags = parent.flags;
+        this.indexedContainers = parent.indexedContainers;
+        this.packedArrays = parent.packedArrays;
+        this.recordArrays = parent.recordArrays;
+        this.codecs = parent.codecs;
+        this.keyIds = parent.keyIds;
+        this.started = true;
     }
     
     public BJSONWriter(OutputStream target) {
@@ -35,46 +73,152 @@ public class BJSONWriter implements AutoCloseable {
     }
     //</editor-fold>
     
+    //<editor-fold defaultstate="collapsed" desc="Options">
+    /**
+     * Writes strings and keys as byte length (a size) followed by UTF-8 bytes, so they
+     * are decoded with a single bulk copy. Marked in the document header, readers
+     * pick it up automatically. Must be set before the first node is written.
+     */
+    public void setPrefixedStrings(boolean prefixedStrings) {
+        setFlag(BJSONHeader.PREFIXED_STRINGS, prefixedStrings);
+    }
+    
+    /**
+     * Writes each distinct key once, later occurrences as a varint id, and readers
+     * return one String instance per distinct key. Marked in the document header.
+     * The ids span the whole stream, so a MappedBJSONReader scans the file once
+     * before its first read from an arbitrary offset.
+     */
+    public void setKeyDictionary(boolean keyDictionary) {
+        setFlag(BJSONHeader.KEY_DICTIONARY, keyDictionary);
+        keyIds = keyDictionary ? new HashMap<>() : null;
+    }
+    
+    /**
+     * Writes container sizes, string, binary and extension lengths, Int16, Int32
+     * and Int64 values as zigzag varints and unsigned values as varints, so small
+     * numbers take a byte or two. Packed arrays and offset tables of indexed
+     * containers keep fixed widths. Marked in the document header.
+     */
+    public void setCompact(boolean compact) {
+        setFlag(BJSONHeader.COMPACT, compact);
+    }
+    
+    /**
+     * Writes objects and arrays of at least INDEXED_MIN_SIZE elements with an offset
+     * table ahead of the elements: objects as IndexedObject with key hashes sorted for
+     * a binary search, arrays as IndexedArray. MappedBJSONReader.lookup then reaches a
+     * key or an index without decoding the elements before it, BJSONReader reads them
+     * as plain objects and arrays. Nested values are encoded in memory first to get
+     * their offsets.
+     */
+    public void setIndexedContainers(boolean indexedContainers) {
+        if (started) throw new BJSONException("Options must be set before the first node is written.");
+        this.indexedContainers = indexedContainers;
+    }
+    
+    /**
+     * Writes non-empty arrays of only Integer, Long, Float or Double values as packed
+     * typed arrays, read back as BJSONPackedArray. BJSONPackedArray is always
+     * written packed.
+     */
+    public void setPackedArrays(boolean packedArrays) {
+        if (started) throw new BJSONException("Options must be set before the first node is written.");
+        this.packedArrays = packedArrays;
+    }
+    
+    /**
+     * Writes arrays of at least RECORD_MIN_SIZE objects whose first two items have
+     * the same keys in the same order with values of the same types as RecordArray:
+     * the keys and types once, then for each record just its values. Items
+     * differing from the first one are written as in a plain array. Read back
+     * as a BJSONArray of BJSONObjects.
+     * <p>
+     * Records have no offsets of their own for MappedBJSONReader.lookup, so
+     * setIndexedContainers takes priority: with both set no RecordArray is written.
+     */
+    public void setRecordArrays(boolean recordArrays) {
+        if (started) throw new BJSONException("Options must be set before the first node is written.");
+        this.recordArrays = recordArrays;
+    }
+    
+    /**
+     * Writes values of exactly the codec type with it, instead of the codec
+     * registered in BJSONTypes. BJSONObject and BJSONArray only take types
+     * registered in BJSONTypes, so values of a type with just a writer codec
+     * are written through BJSONStreamWriter.value.
+     */
+    public void registerCodec(BJSONCodec<?> codec) {
+        BJSONTypes.extensionIndex(codec.getTag());
+        if (codecs == null) {
+            codecs = new HashMap<>();
+        }
+        codecs.put(codec.getType(), codec);
+    }
+    
+    private void setFlag(int flag, boolean enabled) {
+        if (started) throw new BJSONException("Options must be set before the first node is written.");
+        flags = BJSONHeader.set(flags, flag, enabled);
+    }
+    
+    void writeHeader() throws IOException {
+        if (started) return;
+        started = true;
+        if (flags != 0) {
+            writer.writeByte(BJSONHeader.MARKER);
+            writer.writeByte(flags);
+        }
+    }
+    
+    /**
+     * Called at the start of every top level node by the tree and the stream API,
+     * writes the header before the first one.
+     */
+    void beginTopNode() throws IOException {
+        writeHeader();
+    }
+    //</editor-fold>
+    
     public static BJSONType detectType(Object o) {
-        if (o == null) return BJSONType.NULL;
-        String className = o.getClass().getSimpleName();
-        switch (className) {
-            case "BJSONNullNode":   return BJSONType.NULL;
-            case "BJSONArray":      return BJSONType.BJSONArray;
-            case "BJSONObject":     return BJSONType.BJSONObject;
-            case "String":          return BJSONType.String;
-            case "Boolean":         return BJSONType.Boolean;
-            case "Float":           return BJSONType.Float32;
-            case "Double":          return BJSONType.Float64;
-            case "Byte":            return BJSONType.Int8;
-            case "Short":           return BJSONType.Int16;
-            case "Integer":         return BJSONType.Int32;
-            case "Long":            return BJSONType.Int64;
-            case "UInt8":           return BJSONType.UInt8;
-            case "UInt16":          return BJSONType.UInt16;
-            case "UInt32":          return BJSONType.UInt32;
-            case "UInt64":          return BJSONType.UInt64;
-            default: {
-                throw new RuntimeException("Unsupported Type");
+        return BJSONTypes.typeOf(o);
+    }
+    
+    /**
+     * Type the value is written as with the current options.
+     */
+    private BJSONType typeOf(Object value) {
+        if (hasOwnCodec(value)) return BJSONType.Extension;
+        BJSONType type = detectType(value);
+        if (packedArrays && type == BJSONType.BJSONArray) {
+            BJSONType packed = packedType((BJSONArray) value);
+            if (packed != null) return packed;
+        }
+        if (recordArrays && !indexedContainers && type == BJSONType.BJSONArray && isRecordArray((BJSONArray) value)) {
+            return BJSONType.RecordArray;
+        }
+        if (indexedContainers) {
+            if (type == BJSONType.BJSONObject && ((BJSONObject) value).getSize() >= INDEXED_MIN_SIZE) {
+                return BJSONType.IndexedObject;
+            }
+            if (type == BJSONType.BJSONArray && ((BJSONArray) value).getSize() >= INDEXED_MIN_SIZE) {
+                return BJSONType.IndexedArray;
             }
         }
+        return type;
     }
     
     public void writeBJSONNode(BJSONNode node) throws IOException {
-        writeType(node.getType());
-        writeValue(node, node.getType());
+        beginTopNode();
+        BJSONType type = typeOf(node);
+        writeType(type);
+        writeValue(node, type);
     }
     
     public void writeBJSONObject(BJSONObject object) throws IOException {
         int size = object.getSize();
         writeSize(size);
         for (Map.Entry<String, Object> entry : object.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-            BJSONType type = detectType(value);
-            writeKey(key);
-            writeType(type);
-            writeValue(value, type);
+            writeEntry(entry.getKey(), entry.getValue());
         }
     }
     
@@ -82,15 +226,311 @@ public class BJSONWriter implements AutoCloseable {
         int size = array.getSize();
         writeSize(size);
         for (int i=0; i<size; ++i) {
-            Object value = array.get(i);
-            BJSONType type = detectType(value);
+            writeItem(array.get(i));
+        }
+    }
+    
+    private void writeEntry(String key, Object value) throws IOException {
+        value = toNode(value);
+        BJSONType type = typeOf(value);
+        writeKey(key);
+        writeType(value, type);
+        writeValue(value, type);
+    }
+    
+    void writeItem(Object value) throws IOException {
+        value = toNode(value);
+        BJSONType type = typeOf(value);
+        writeType(value, type);
+        writeValue(value, type);
+    }
+    
+    private Object toNode(Object value) {
+        return hasOwnCodec(value) ? value : BJSONTypes.toNode(value);
+    }
+    
+    //<editor-fold defaultstate="collapsed" desc="Extensions">
+    private boolean hasOwnCodec(Object value) {
+        return codecs != null && value != null && codecs.containsKey(value.getClass());
+    }
+    
+    private BJSONCodec<?> codecOf(Object value) {
+        BJSONCodec<?> codec = codecs == null ? null : codecs.get(value.getClass());
+        return codec != null ? codec : BJSONTypes.getCodec(value);
+    }
+    
+    /**
+     * Writes the type, the codec tag of extension values.
+     */
+    private void writeType(Object value, BJSONType type) throws IOException {
+        if (type == BJSONType.Extension) {
+            writer.writeByte(codecOf(value).getTag());
+        } else {
             writeType(type);
-            writeValue(value, type);
         }
     }
     
+    /**
+     * Payload length as a size, then the payload written by the codec of the value.
+     */
+    @SuppressWarnings("unchecked")
+    public void writeExtension(Object value) throws IOException {
+        BJSONCodec<Object> codec = (BJSONCodec<Object>) codecOf(value);
+        if (codec == null) throw new BJSONException("No codec registered for " + value.getClass().getName());
+        int size = codec.getSize();
+        if (size >= 0) {
+            writeSize(size);
+            codec.write(value, writer);
+            return;
+        }
+        if (extension == null) {
+            extension = new ByteArrayOutputStream();
+            extensionWriter = new BinaryWriter(extension, littleEndian ? EndianType.LittleEndian : EndianType.BigEndian);
+        }
+        extension.reset();
+        codec.write(value, extensionWriter);
+        writeSize(extension.size());
+        extension.writeTo(writer);
+    }
+    //</editor-fold>
+    
+    //<editor-fold defaultstate="collapsed" desc="Packed Arrays">
+    /**
+     * @return the packed array type of the values, null if they are not all of one numeric type.
+     */
+    private static BJSONType packedType(BJSONArray array) {
+        int size = array.getSize();
+        if (size == 0) return null;
+        Class<?> valueClass = array.get(0) == null ? null : array.get(0).getClass();
+        BJSONType type;
+        if (valueClass == Integer.class) {
+            type = BJSONType.Int32Array;
+        } else if (valueClass == Long.class) {
+            type = BJSONType.Int64Array;
+        } else if (valueClass == Float.class) {
+            type = BJSONType.Float32Array;
+        } else if (valueClass == Double.class) {
+            type = BJSONType.Float64Array;
+        } else {
+            return null;
+        }
+        for (int i=1; i<size; ++i) {
+            Object value = array.get(i);
+            if (value == null || value.getClass() != valueClass) return null;
+        }
+        return type;
+    }
+    
+    /**
+     * Size, then the values packed in bulk.
+     */
+    public void writePackedArray(BJSONArray array, BJSONType type) throws IOException {
+        int size = array.getSize();
+        PackedItems items = array instanceof BJSONPackedArray ? 
+                ((BJSONPackedArray) array).items() : 
+                pack(array, type);
+        writeSize(size);
+        switch (type) {
+            case Int32Array:
+                writer.writeInts(items.ints(), 0, size);
+                break;
+            case Int64Array:
+                writer.writeLongs(items.longs(), 0, size);
+                break;
+            case Float32Array:
+                writer.writeFloats(items.floats(), 0, size);
+                break;
+            default:
+                writer.writeDoubles(items.doubles(), 0, size);
+        }
+    }
+    
+    private static PackedItems pack(BJSONArray array, BJSONType type) {
+        int size = array.getSize();
+        switch (type) {
+            case Int32Array: {
+                int[] values = new int[size];
+                for (int i=0; i<size; ++i) values[i] = (Integer) array.get(i);
+                return new PackedItems(values, size);
+            }
+            case Int64Array: {
+                long[] values = new long[size];
+                for (int i=0; i<size; ++i) values[i] = (Long) array.get(i);
+                return new PackedItems(values, size);
+            }
+            case Float32Array: {
+                float[] values = new float[size];
+                for (int i=0; i<size; ++i) values[i] = (Float) array.get(i);
+                return new PackedItems(values, size);
+            }
+            default: {
+                double[] values = new double[size];
+                for (int i=0; i<size; ++i) values[i] = (Double) array.get(i);
+                return new PackedItems(values, size);
+            }
+        }
+    }
+    //</editor-fold>
+    
+    //<editor-fold defaultstate="collapsed" desc="Record Arrays">
+    private boolean isRecordArray(BJSONArray array) {
+        if (array.getSize() < RECORD_MIN_SIZE) return false;
+        RecordSchema schema = schemaOf(array.get(0));
+        return schema != null && matches(schema, array.get(1), new BJSONType[schema.size()]);
+    }
+    
+    /**
+     * @return the keys and types of a non-empty object, null for other values.
+     */
+    private RecordSchema schemaOf(Object item) {
+        if (!(item instanceof BJSONObject) || ((BJSONObject) item).getSize() == 0) return null;
+        BJSONObject record = (BJSONObject) item;
+        String[] keys = new String[record.getSize()];
+        int[] tags = new int[keys.length];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : record.entrySet()) {
+            Object value = toNode(entry.getValue());
+            keys[i] = entry.getKey();
+            tags[i] = tagOf(value, typeOf(value));
+            i += 1;
+        }
+        return new RecordSchema(keys, tags);
+    }
+    
+    /**
+     * Checks the item is an object of the schema, its value types are left in types.
+     */
+    private boolean matches(RecordSchema schema, Object item, BJSONType[] types) {
+        if (!(item instanceof BJSONObject)) return false;
+        BJSONObject record = (BJSONObject) item;
+        if (record.getSize() != schema.size()) return false;
+        int i = 0;
+        for (Map.Entry<String, Object> entry : record.entrySet()) {
+            if (!entry.getKey().equals(schema.keys[i])) return false;
+            Object value = toNode(entry.getValue());
+            BJSONType type = typeOf(value);
+            if (type != schema.types[i] || tagOf(value, type) != schema.tags[i]) return false;
+            types[i] = type;
+            i += 1;
+        }
+        return true;
+    }
+    
+    /**
+     * Writes an item not of the schema, nested record arrays as plain arrays
+     * as their tag marks records here.
+     */
+    private void writeOtherItem(Object item) throws IOException {
+        item = toNode(item);
+        BJSONType type = typeOf(item);
+        if (type == BJSONType.RecordArray) {
+            type = BJSONType.BJSONArray;
+        }
+        writeType(item, type);
+        writeValue(item, type);
+    }
+    
+    private int tagOf(Object value, BJSONType type) {
+        return type == BJSONType.Extension ? codecOf(value).getTag() : type.getValue();
+    }
+    
+    /**
+     * Size, field count, (key, type tag) per field, then the items: records of
+     * the schema as the RecordArray tag followed by their values, others as in
+     * a plain array.
+     */
+    public void writeRecordArray(BJSONArray array) throws IOException {
+        int size = array.getSize();
+        RecordSchema schema = schemaOf(array.get(0));
+        writeSize(size);
+        writeSize(schema.size());
+        for (int i=0; i<schema.size(); ++i) {
+            writeKey(schema.keys[i]);
+            writer.writeByte((byte) schema.tags[i]);
+        }
+        BJSONType[] types = new BJSONType[schema.size()];
+        for (int i=0; i<size; ++i) {
+            Object item = array.get(i);
+            if (!matches(schema, item, types)) {
+                writeOtherItem(item);
+                continue;
+            }
+            writeType(BJSONType.RecordArray);
+            int field = 0;
+            for (Object value : ((BJSONObject) item).values()) {
+                writeValue(toNode(value), types[field++]);
+            }
+        }
+    }
+    //</editor-fold>
+    
+    //<editor-fold defaultstate="collapsed" desc="Indexed Containers">
+    /**
+     * Size, entries length, (Int32 key hash, Int64 entry offset) table sorted
+     * by hash, then the entries as in a plain object. Offsets are relative to the
+     * first entry and point to the entry key.
+     */
+    public void writeIndexedObject(BJSONObject object) throws IOException {
+        int size = object.getSize();
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        BJSONWriter entriesWriter = new BJSONWriter(entries, this);
+        // hash in the high half, entry number in the low half: sorts by hash, then by entry
+        long[] order = new long[size];
+        long[] offsets = new long[size];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : object.entrySet()) {
+            order[i] = ((long) entry.getKey().hashCode() << 32) | i;
+            offsets[i] = entries.size();
+            entriesWriter.writeEntry(entry.getKey(), entry.getValue());
+            i += 1;
+        }
+        Arrays.sort(order);
+        
+        writeSize(size);
+        writeLength(entries.size());
+        for (long key : order) {
+            writer.writeInt((int) (key >> 32));
+            writer.writeLong(offsets[(int) key]);
+        }
+        entries.writeTo(writer);
+    }
+    
+    /**
+     * Size, items length, Int64 item offset table, then the items as in
+     * a plain array. Offsets are relative to the first item and point to its type.
+     */
+    public void writeIndexedArray(BJSONArray array) throws IOException {
+        int size = array.getSize();
+        ByteArrayOutputStream items = new ByteArrayOutputStream();
+        BJSONWriter itemsWriter = new BJSONWriter(items, this);
+        long[] offsets = new long[size];
+        for (int i=0; i<size; ++i) {
+            offsets[i] = items.size();
+            itemsWriter.writeItem(array.get(i));
+        }
+        
+        writeSize(size);
+        writeLength(items.size());
+        for (long offset : offsets) {
+            writer.writeLong(offset);
+        }
+        items.writeTo(writer);
+    }
+    //</editor-fold>
+    
     public void writeKey(String key) throws IOException {
-        writeString(key);
+        if (keyIds == null) {
+            writeString(key);
+            return;
+        }
+        Integer id = keyIds.get(key);
+        if (id != null) {
+            writer.writeVarInt(id + 1);
+        } else {
+            writer.writeVarInt(0);
+            writeString(key);
+            keyIds.put(key, keyIds.size());
+        }
     }
     
     public void writeValue(Object value, BJSONType type) throws IOException {
@@ -107,6 +547,33 @@ public class BJSONWriter implements AutoCloseable {
                 writeBJSONObject((BJSONObject) value);
                 break;
             }
+            case RecordArray: {
+                writeRecordArray((BJSONArray) value);
+                break;
+            }
+            case IndexedArray: {
+                writeIndexedArray((BJSONArray) value);
+                break;
+            }
+            case IndexedObject: {
+                writeIndexedObject((BJSONObject) value);
+                break;
+            }
+            case Int32Array:
+            case Int64Array:
+            case Float32Array:
+            case Float64Array: {
+                writePackedArray((BJSONArray) value, type);
+                break;
+            }
+            case Extension: {
+                writeExtension(value);
+                break;
+            }
+            case Binary: {
+                writeBinary(value);
+                break;
+            }
             case String: {
                 writeString((String) value);
                 break;
@@ -118,25 +585,49 @@ public class BJSONWriter implements AutoCloseable {
                 writer.writeByte((Byte) value);
                 break;
             case Int16:
-                writer.writeShort((Short) value);
+                if (isCompact()) {
+                    writer.writeSignedVarInt((Short) value);
+                } else {
+                    writer.writeShort((Short) value);
+                }
                 break;
             case Int32:
-                writer.writeInt((Integer) value);
+                if (isCompact()) {
+                    writer.writeSignedVarInt((Integer) value);
+                } else {
+                    writer.writeInt((Integer) value);
+                }
                 break;
             case Int64:
-                writer.writeLong((Long) value);
+                if (isCompact()) {
+                    writer.writeSignedVarLong((Long) value);
+                } else {
+                    writer.writeLong((Long) value);
+                }
                 break;
             case UInt8:
                 writer.writeUInt8((UInt8) value);
                 break;                
             case UInt16:
-                writer.writeUInt16((UInt16) value);
+                if (isCompact()) {
+                    writer.writeVarInt(((UInt16) value).intValue());
+                } else {
+                    writer.writeUInt16((UInt16) value);
+                }
                 break;
             case UInt32:
-                writer.writeUInt32((UInt32) value);
+                if (isCompact()) {
+                    writer.writeVarLong(((UInt32) value).longValue());
+                } else {
+                    writer.writeUInt32((UInt32) value);
+                }
                 break;
             case UInt64:
-                writer.writeUInt64((UInt64) value);
+                if (isCompact()) {
+                    writer.writeVarLong(((UInt64) value).longValue());
+                } else {
+                    writer.writeUInt64((UInt64) value);
+                }
                 break;
             case Float32:
                 writer.writeFloat((Float) value);
@@ -149,20 +640,69 @@ public class BJSONWriter implements AutoCloseable {
         }
     }
     
+    /**
+     * Size, then the bytes of a byte[] or the remaining bytes of a ByteBuffer,
+     * whose position is left unchanged.
+     */
+    public void writeBinary(Object value) throws IOException {
+        if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            writeSize(bytes.length);
+            writer.write(bytes);
+            return;
+        }
+        ByteBuffer buffer = (ByteBuffer) value;
+        writeSize(buffer.remaining());
+        if (buffer.hasArray()) {
+            writer.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            return;
+        }
+        ByteBuffer source = buffer.duplicate();
+        byte[] chunk = new byte[Math.min(source.remaining(), 8 * 1024)];
+        while (source.hasRemaining()) {
+            int n = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, n);
+            writer.write(chunk, 0, n);
+        }
+    }
+    
     public void writeType(BJSONType type) throws IOException {
         writer.writeByte(type.getValue());
     }
     
+    /**
+     * Writes a container size or a length, Int32 or a varint in compact documents.
+     */
     public void writeSize(int size) throws IOException {
-        writer.writeInt(size);
+        if (isCompact()) {
+            writer.writeVarInt(size);
+        } else {
+            writer.writeInt(size);
+        }
+    }
+    
+    private void writeLength(long length) throws IOException {
+        if (isCompact()) {
+            writer.writeVarLong(length);
+        } else {
+            writer.writeLong(length);
+        }
+    }
+    
+    private boolean isCompact() {
+        return BJSONHeader.isSet(flags, BJSONHeader.COMPACT);
     }
     
     public void writeString(String str) throws IOException {
-//        byte[] data = str.getBytes();
-//        int length = data.length;
-//        writer.writeInt(length);
-//        writer.write(data);
-        writer.writeBytes(str);
+        if (BJSONHeader.isSet(flags, BJSONHeader.PREFIXED_STRINGS)) {
+            if (isCompact()) {
+                writer.writeVarPrefixedString(str);
+            } else {
+                writer.writePrefixedString(str);
+            }
+        } else {
+            writer.writeBytes(str);
+        }
     }
 
     @Override
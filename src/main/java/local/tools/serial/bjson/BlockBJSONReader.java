@@ -0,0 +1,310 @@
+package local.tools.serial.bjson;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import local.tools.bin.BinaryReader;
+import local.tools.bin.ByteBufferNumberReader;
+import local.tools.bin.EndianType;
+
+/**
+ * Reader of block containers written by BlockBJSONWriter.
+ * <p>
+ * Blocks are decompressed on an executor, up to readAhead blocks ahead of the one
+ * being read, so decoding overlaps with decompression of the following blocks.
+ * Values are decoded straight from the decompressed blocks; only the bytes of a
+ * value crossing a block end are copied to join them, and reading goes back to
+ * the block after it.
+ * <p>
+ * {@link #seekBlock(int)} moves to the first node starting in a block, without
+ * decompressing the blocks before it. Reading is not thread safe.
+ */
+public class BlockBJSONReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final EndianType endianType;
+    private final BJSONBlockCodec codec;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final int readAhead;
+
+    //<editor-fold defaultstate="collapsed" desc="Block Index">
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] lengths;
+    private final int[] firstNodes;
+    // Document offset of each block, one past the last block at the end
+    private final long[] starts;
+    //</editor-fold>
+
+    // Decompressed or pending blocks from the one before the current on
+    private final Map<Integer, Future<ByteBuffer>> blocks = new TreeMap<>();
+
+    private final BJSONReader header;
+    private final long start;
+    private BJSONReader sequential;
+    private ByteBufferNumberReader sequentialSource;
+    private boolean dictionaryReady;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    /**
+     * Decompresses on the given executor, which is left running on close.
+     */
+    public BlockBJSONReader(String filename, boolean littleEndian, ExecutorService executor, int readAhead) throws IOException {
+        this(filename, littleEndian, executor, readAhead, false);
+    }
+
+    /**
+     * Decompresses on a pool of one daemon thread per processor, shut down on close.
+     */
+    public BlockBJSONReader(String filename, boolean littleEndian) throws IOException {
+        this(filename, littleEndian, newPool(), Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    public BlockBJSONReader(String filename) throws IOException {
+        this(filename, true);
+    }
+
+    private BlockBJSONReader(String filename, boolean littleEndian, ExecutorService executor, int readAhead, boolean ownExecutor) throws IOException {
+        if (readAhead < 0) throw new IllegalArgumentException("Read ahead must not be negative.");
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        this.endianType = littleEndian ? EndianType.LittleEndian : EndianType.BigEndian;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.readAhead = readAhead;
+        try {
+            long size = channel.size();
+            if (size < BlockBJSONWriter.HEADER_SIZE + BlockBJSONWriter.TRAILER_SIZE) {
+                throw new BJSONException("File is too short for a BJSON block container.");
+            }
+            ByteBuffer head = read(0, BlockBJSONWriter.HEADER_SIZE);
+            checkMagic(head);
+            int version = head.get() & 0xFF;
+            if (version != BlockBJSONWriter.VERSION) throw new BJSONException("Unsupported block container version " + version + ".");
+            int codecId = head.get() & 0xFF;
+            this.codec = BJSONBlockCodecs.get(codecId);
+            if (codec == null) throw new BJSONException("No block codec registered for id " + codecId + ".");
+
+            ByteBuffer trailer = read(size - BlockBJSONWriter.TRAILER_SIZE, BlockBJSONWriter.TRAILER_SIZE);
+            int count = trailer.getInt();
+            checkMagic(trailer);
+            long indexOffset = size - BlockBJSONWriter.TRAILER_SIZE - (long) count * BlockBJSONWriter.INDEX_ENTRY_SIZE;
+            if (count < 0 || indexOffset < BlockBJSONWriter.HEADER_SIZE) throw new BJSONException("Corrupt block index.");
+            ByteBuffer index = read(indexOffset, count * BlockBJSONWriter.INDEX_ENTRY_SIZE);
+            this.offsets = new long[count];
+            this.compressedLengths = new int[count];
+            this.lengths = new int[count];
+            this.firstNodes = new int[count];
+            this.starts = new long[count + 1];
+            for (int i=0; i<count; ++i) {
+                offsets[i] = index.getLong();
+                compressedLengths[i] = index.getInt();
+                lengths[i] = index.getInt();
+                firstNodes[i] = index.getInt();
+                starts[i + 1] = starts[i] + lengths[i];
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+
+        ByteBufferNumberReader source = newSource(0);
+        this.header = new BJSONReader(source, littleEndian);
+        if (size() > 0 && window(0, 1).get(0) == (byte) BJSONHeader.MARKER) {
+            header.readStart();
+        }
+        this.start = source.getPosition();
+        this.sequentialSource = newSource(start);
+        this.sequential = newReader(sequentialSource);
+    }
+
+    private static ExecutorService newPool() {
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), run -> {
+            Thread thread = new Thread(run, "bjson-blocks");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    //</editor-fold>
+
+    /**
+     * @return the decompressed document size in bytes.
+     */
+    public long size() {
+        return starts[starts.length - 1];
+    }
+
+    public int getBlockCount() {
+        return offsets.length;
+    }
+
+    /**
+     * @return the document offset the next readBJSONNode starts at.
+     */
+    public long getPosition() {
+        return sequentialSource.getPosition();
+    }
+
+    /**
+     * Moves the reading to the first node starting in the block.
+     *
+     * @throws BJSONException if no node starts in the block.
+     */
+    public void seekBlock(int index) throws IOException {
+        if (index < 0 || index >= getBlockCount()) throw new BJSONException("Block " + index + " is out of range.");
+        if (firstNodes[index] < 0) throw new BJSONException("No node starts in block " + index + ".");
+        long offset = Math.max(start, starts[index] + firstNodes[index]);
+        if (offset != start) {
+            ensureDictionary();
+        }
+        sequentialSource = newSource(offset);
+        sequential = newReader(sequentialSource);
+    }
+
+    /**
+     * Reads the node at the current position and moves past it.
+     *
+     * @return the node or null at the end of the document.
+     */
+    public Object readBJSONNode() throws IOException {
+        if (getPosition() >= size()) return null;
+        return sequential.readBJSONNode();
+    }
+
+    /**
+     * Collects the keys of a key dictionary document by skipping through all of it.
+     */
+    private void ensureDictionary() throws IOException {
+        if (dictionaryReady || !header.hasKeyDictionary()) return;
+        ByteBufferNumberReader source = newSource(start);
+        BJSONReader scanner = newReader(source);
+        while (source.getPosition() < size()) {
+            scanner.skipValue(scanner.readType());
+        }
+        header.useDictionary(scanner);
+        dictionaryReady = true;
+    }
+
+    private BJSONReader newReader(ByteBufferNumberReader source) {
+        return new BJSONReader(new BinaryReader(source, endianType), header);
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Blocks">
+    private ByteBufferNumberReader newSource(long offset) throws IOException {
+        return new ByteBufferNumberReader(this::window, offset, endianType);
+    }
+
+    /**
+     * Returns a view of the document starting at the offset: the rest of its block,
+     * or a copy of the next minLength bytes when the block ends before them.
+     */
+    private ByteBuffer window(long offset, int minLength) throws IOException {
+        if (offset >= size()) return ByteBuffer.allocate(0);
+        ByteBuffer rest = rest(offset);
+        if (rest.remaining() >= minLength) return rest.slice();
+        ByteBuffer joined = ByteBuffer.allocate((int) Math.min(minLength, size() - offset));
+        while (joined.hasRemaining()) {
+            ByteBuffer part = rest(offset + joined.position());
+            part.limit(part.position() + Math.min(part.remaining(), joined.remaining()));
+            joined.put(part);
+        }
+        return joined.flip();
+    }
+
+    /**
+     * @return the block holding the offset, positioned at it.
+     */
+    private ByteBuffer rest(long offset) throws IOException {
+        int index = Arrays.binarySearch(starts, offset);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        // empty blocks share their start with the next one
+        while (lengths[index] == 0) {
+            ++index;
+        }
+        ByteBuffer rest = block(index).duplicate();
+        rest.position((int) (offset - starts[index]));
+        return rest;
+    }
+
+    /**
+     * Returns the decompressed block and schedules the next readAhead blocks,
+     * blocks before the previous one are dropped.
+     */
+    private ByteBuffer block(int index) throws IOException {
+        Iterator<Map.Entry<Integer, Future<ByteBuffer>>> it = blocks.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Future<ByteBuffer>> entry = it.next();
+            if (entry.getKey() >= index - 1) break;
+            entry.getValue().cancel(false);
+            it.remove();
+        }
+        for (int i = index, last = Math.min(index + readAhead, getBlockCount() - 1); i <= last; ++i) {
+            final int block = i;
+            blocks.computeIfAbsent(block, key -> executor.submit(() -> decompress(block)));
+        }
+        try {
+            return blocks.get(index).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for block " + index + ".", e);
+        }
+    }
+
+    private ByteBuffer decompress(int index) throws IOException {
+        byte[] compressed = read(offsets[index], compressedLengths[index]).array();
+        byte[] data = new byte[lengths[index]];
+        codec.decompress(compressed, 0, compressed.length, data);
+        return ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Reads length bytes at the file offset, thread safe.
+     */
+    private ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Expected " + buffer.remaining() + " more bytes at " + (offset + buffer.position()) + ".");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void checkMagic(ByteBuffer buffer) {
+        for (byte b : BlockBJSONWriter.MAGIC) {
+            if (buffer.get() != b) throw new BJSONException("Not a BJSON block container.");
+        }
+    }
+    //</editor-fold>
+
+    @Override
+    public void close() throws IOException {
+        for (Future<ByteBuffer> block : blocks.values()) {
+            block.cancel(false);
+        }
+        blocks.clear();
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+        channel.close();
+    }
+}
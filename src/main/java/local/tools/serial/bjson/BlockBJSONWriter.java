@@ -0,0 +1,160 @@
+package local.tools.serial.bjson;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import local.tools.bin.BinaryWriter;
+import local.tools.bin.EndianType;
+
+/**
+ * BJSONWriter into a block container: the document is cut into blocks of about
+ * blockSize bytes, each compressed on its own, with an index of them in the footer.
+ * <p>
+ * Layout, little endian:
+ * <pre>
+ * "BJSB", version byte, codec id byte
+ * compressed blocks
+ * per block: Int64 file offset, Int32 compressed length, Int32 length,
+ *            Int32 offset of the first node starting in the block or -1
+ * Int32 block count, "BJSB"
+ * </pre>
+ * Blocks are cut at any byte, the first node offsets let BlockBJSONReader start
+ * reading at a block. The writer options apply to the document as usual.
+ */
+public class BlockBJSONWriter extends BJSONWriter {
+
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    static final byte[] MAGIC = {'B', 'J', 'S', 'B'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + 2;
+    static final int INDEX_ENTRY_SIZE = Long.BYTES + 3 * Integer.BYTES;
+    static final int TRAILER_SIZE = Integer.BYTES + MAGIC.length;
+
+    private final Blocks blocks;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    public BlockBJSONWriter(OutputStream target, boolean littleEndian, BJSONBlockCodec codec, int blockSize) throws IOException {
+        this(new Blocks(target, codec, blockSize), littleEndian);
+    }
+
+    private BlockBJSONWriter(Blocks blocks, boolean littleEndian) {
+        super(blocks, littleEndian);
+        this.blocks = blocks;
+    }
+
+    public BlockBJSONWriter(String filename, boolean littleEndian, BJSONBlockCodec codec, int blockSize) throws IOException {
+        this(new BufferedOutputStream(new FileOutputStream(filename)), littleEndian, codec, blockSize);
+    }
+
+    public BlockBJSONWriter(String filename, BJSONBlockCodec codec) throws IOException {
+        this(filename, true, codec, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockBJSONWriter(String filename) throws FileNotFoundException, IOException {
+        this(filename, BJSONBlockCodecs.DEFLATE);
+    }
+    //</editor-fold>
+
+    /**
+     * Records the top level node starting now as the first node of its block if none
+     * started there yet, for nodes of BJSONStreamWriter as well.
+     */
+    @Override
+    void beginTopNode() throws IOException {
+        super.beginTopNode();
+        blocks.markNode();
+    }
+
+    /**
+     * @return the number of blocks written so far.
+     */
+    public int getBlockCount() {
+        return blocks.index.size();
+    }
+
+    /**
+     * Collects the document bytes and writes a compressed block whenever blockSize
+     * of them are pending, the rest and the footer on close.
+     */
+    private static final class Blocks extends OutputStream {
+        private final BinaryWriter target;
+        private final BJSONBlockCodec codec;
+        private final byte[] buffer;
+        private final List<long[]> index = new ArrayList<>();
+
+        private int length = 0;
+        private int firstNode = -1;
+        private long offset = HEADER_SIZE;
+        private boolean closed = false;
+
+        Blocks(OutputStream target, BJSONBlockCodec codec, int blockSize) throws IOException {
+            if (blockSize <= 0) throw new IllegalArgumentException("Block size must be positive.");
+            this.target = new BinaryWriter(target, EndianType.LittleEndian);
+            this.codec = codec;
+            this.buffer = new byte[blockSize];
+            this.target.write(MAGIC);
+            this.target.writeByte((byte) VERSION);
+            this.target.writeByte((byte) codec.getId());
+        }
+
+        void markNode() {
+            if (firstNode < 0) {
+                firstNode = length;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[length++] = (byte) b;
+            if (length == buffer.length) {
+                writeBlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] data, int from, int count) throws IOException {
+            while (count > 0) {
+                int n = Math.min(count, buffer.length - length);
+                System.arraycopy(data, from, buffer, length, n);
+                length += n;
+                from += n;
+                count -= n;
+                if (length == buffer.length) {
+                    writeBlock();
+                }
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            byte[] compressed = codec.compress(buffer, 0, length);
+            target.write(compressed);
+            index.add(new long[] {offset, compressed.length, length, firstNode});
+            offset += compressed.length;
+            length = 0;
+            firstNode = -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            if (length > 0) {
+                writeBlock();
+            }
+            for (long[] entry : index) {
+                target.writeLong(entry[0]);
+                target.writeInt((int) entry[1]);
+                target.writeInt((int) entry[2]);
+                target.writeInt((int) entry[3]);
+            }
+            target.writeInt(index.size());
+            target.write(MAGIC);
+            target.close();
+        }
+    }
+}
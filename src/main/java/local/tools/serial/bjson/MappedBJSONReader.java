@@ -0,0 +1,342 @@
+package local.tools.serial.bjson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import local.tools.bin.BinaryReader;
+import local.tools.bin.ByteBufferNumberReader;
+import local.tools.bin.EndianType;
+
+/**
+ * BJSON reader over a memory mapped file.
+ * <p>
+ * Values are decoded straight from the mapping, without stream buffers. Files
+ * larger than one mapping are mapped lazily in overlapping segments, a value
+ * crossing a segment end continues in the segment starting at its position.
+ * <p>
+ * {@link #readBJSONNode(long)} reads the node at any offset and may be called from
+ * several threads at once, the sequential {@link #readBJSONNode()} is not thread safe.
+ * <p>
+ * {@link #lookup(long, Object...)} finds the offset of a value inside a node without
+ * decoding the rest of it: in O(log n) for keys of an IndexedObject and O(1) for
+ * items of an IndexedArray (see BJSONWriter.setIndexedContainers), by skipping
+ * the preceding elements in plain containers. Items of a RecordArray (see
+ * BJSONWriter.setRecordArrays) have no offsets of their own and can not be looked up.
+ * <p>
+ * Keys of a key dictionary document are defined where they first occur, so the
+ * first read away from the start scans the whole file once to collect them.
+ */
+public class MappedBJSONReader implements AutoCloseable {
+
+    static final long SEGMENT_SIZE = 1L << 30;
+    static final long SEGMENT_STEP = SEGMENT_SIZE / 2;
+
+    private final FileChannel channel;
+    private final EndianType endianType;
+    private final long size;
+    private final long segmentSize;
+    private final long segmentStep;
+    private final MappedByteBuffer[] segments;
+
+    private final BJSONReader header;
+    private final long start;
+    private BJSONReader sequential;
+    private ByteBufferNumberReader sequentialSource;
+    private volatile boolean dictionaryReady;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    public MappedBJSONReader(String filename, boolean littleEndian) throws IOException {
+        this(filename, littleEndian, SEGMENT_SIZE, SEGMENT_STEP);
+    }
+
+    public MappedBJSONReader(String filename) throws IOException {
+        this(filename, true);
+    }
+
+    MappedBJSONReader(String filename, boolean littleEndian, long segmentSize, long segmentStep) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        this.endianType = littleEndian ? EndianType.LittleEndian : EndianType.BigEndian;
+        this.size = channel.size();
+        this.segmentSize = segmentSize;
+        this.segmentStep = segmentStep;
+        this.segments = new MappedByteBuffer[(int) Math.max(1, (size + segmentStep - 1) / segmentStep)];
+
+        ByteBufferNumberReader source = newSource(0);
+        this.header = new BJSONReader(source, littleEndian);
+        if (size > 0 && window(0).get(0) == (byte) BJSONHeader.MARKER) {
+            header.readStart();
+        }
+        this.start = source.getPosition();
+        seek(start);
+    }
+    //</editor-fold>
+
+    /**
+     * Reads values with the extension tag of the codec with it, see BJSONReader.registerCodec.
+     * Not thread safe, should be called before reading.
+     */
+    public void registerCodec(BJSONCodec<?> codec) throws IOException {
+        header.registerCodec(codec);
+        seek(getPosition());
+    }
+
+    /**
+     * @return the file size in bytes.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the offset of the first node, after the document header.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the offset the next sequential {@link #readBJSONNode()} starts at.
+     */
+    public long getPosition() {
+        return sequentialSource.getPosition();
+    }
+
+    /**
+     * Moves the sequential reading to the given offset, which must point to a node.
+     */
+    public void seek(long offset) throws IOException {
+        if (offset < 0 || offset > size) throw new BJSONException("Offset " + offset + " is out of file range.");
+        if (offset != start) {
+            ensureDictionary();
+        }
+        sequentialSource = newSource(offset);
+        sequential = newReader(sequentialSource);
+    }
+
+    /**
+     * Reads the node at the current position and moves past it.
+     *
+     * @return the node or null at the end of the file.
+     */
+    public Object readBJSONNode() throws IOException {
+        if (getPosition() >= size) return null;
+        return sequential.readBJSONNode();
+    }
+
+    /**
+     * Reads the node (type and value) at the given offset. Thread safe.
+     */
+    public Object readBJSONNode(long offset) throws IOException {
+        if (offset < 0 || offset >= size) throw new BJSONException("Offset " + offset + " is out of file range.");
+        ensureDictionary();
+        return newReader(newSource(offset)).readBJSONNode();
+    }
+
+    /**
+     * Collects the keys of a key dictionary document by skipping through all of it.
+     */
+    private void ensureDictionary() throws IOException {
+        if (dictionaryReady || !header.hasKeyDictionary()) return;
+        synchronized (this) {
+            if (dictionaryReady) return;
+            ByteBufferNumberReader source = newSource(start);
+            BJSONReader scanner = newReader(source);
+            while (source.getPosition() < size) {
+                scanner.skipValue(scanner.readType());
+            }
+            header.useDictionary(scanner);
+            dictionaryReady = true;
+        }
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Lookup">
+    /**
+     * Follows a path of keys (String) and indexes (Integer) from the node at the offset.
+     *
+     * @return the offset of the value at the end of the path, or -1 if a key is missing
+     * or an index out of range. Thread safe.
+     */
+    public long lookup(long offset, Object... path) throws IOException {
+        for (Object step : path) {
+            if (offset < 0) break;
+            if (step instanceof String) {
+                offset = lookup(offset, (String) step);
+            } else if (step instanceof Integer) {
+                offset = lookup(offset, (int) (Integer) step);
+            } else {
+                throw new BJSONException("Path steps must be String keys or Integer indexes.");
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * @return the offset of the value of the key in the object at the offset, -1 if there is none.
+     */
+    public long lookup(long offset, String key) throws IOException {
+        ensureDictionary();
+        ByteBufferNumberReader source = newSource(offset);
+        BJSONReader reader = newReader(source);
+        BJSONType type = reader.readType();
+        switch (type) {
+            case IndexedObject: {
+                int count = reader.readSize();
+                reader.readLength();
+                long table = source.getPosition();
+                long entries = table + count * BJSONReader.INDEXED_ENTRY_SIZE;
+                int hash = key.hashCode();
+                // first table entry with a hash not below the key hash
+                int low = 0;
+                int high = count;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (tableEntry(table, middle).getInt(0) < hash) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                for (int i = low; i < count; ++i) {
+                    ByteBuffer entry = tableEntry(table, i);
+                    if (entry.getInt(0) != hash) break;
+                    ByteBufferNumberReader entrySource = newSource(entries + entry.getLong(Integer.BYTES));
+                    if (key.equals(newReader(entrySource).readKey())) {
+                        return entrySource.getPosition();
+                    }
+                }
+                return -1;
+            }
+            case BJSONObject: {
+                int count = reader.readSize();
+                for (int i = 0; i < count; ++i) {
+                    if (key.equals(reader.readKey())) {
+                        return source.getPosition();
+                    }
+                    reader.skipValue(reader.readType());
+                }
+                return -1;
+            }
+            case UnsizedObject: {
+                while (reader.readEntryStart()) {
+                    if (key.equals(reader.readKey())) {
+                        return source.getPosition();
+                    }
+                    reader.skipValue(reader.readType());
+                }
+                return -1;
+            }
+            default:
+                throw new BJSONException("Object expected at offset " + offset + ", found " + type + ".");
+        }
+    }
+
+    /**
+     * @return the offset of the item at the index in the array at the offset, -1 if out of range.
+     */
+    public long lookup(long offset, int index) throws IOException {
+        ensureDictionary();
+        ByteBufferNumberReader source = newSource(offset);
+        BJSONReader reader = newReader(source);
+        BJSONType type = reader.readType();
+        switch (type) {
+            case IndexedArray: {
+                int count = reader.readSize();
+                reader.readLength();
+                if (index < 0 || index >= count) return -1;
+                long table = source.getPosition();
+                long items = table + count * BJSONReader.INDEXED_ITEM_SIZE;
+                return items + window(table + index * BJSONReader.INDEXED_ITEM_SIZE).order(order()).getLong(0);
+            }
+            case BJSONArray: {
+                int count = reader.readSize();
+                if (index < 0 || index >= count) return -1;
+                for (int i = 0; i < index; ++i) {
+                    reader.skipValue(reader.readType());
+                }
+                return source.getPosition();
+            }
+            case UnsizedArray: {
+                if (index < 0) return -1;
+                for (int i = 0; ; ++i) {
+                    long item = source.getPosition();
+                    BJSONType itemType = reader.readType();
+                    if (itemType == BJSONType.End) return -1;
+                    if (i == index) return item;
+                    reader.skipValue(itemType);
+                }
+            }
+            case RecordArray:
+                throw new BJSONException("Items of the RecordArray at offset " + offset
+                        + " have no offsets of their own, read the whole array instead.");
+            default:
+                throw new BJSONException("Array expected at offset " + offset + ", found " + type + ".");
+        }
+    }
+
+    private ByteBuffer tableEntry(long table, int index) throws IOException {
+        return window(table + index * BJSONReader.INDEXED_ENTRY_SIZE).order(order());
+    }
+
+    private ByteOrder order() {
+        return endianType == EndianType.BigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    }
+
+    private BJSONReader newReader(ByteBufferNumberReader source) {
+        return new BJSONReader(new BinaryReader(source, endianType), header);
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Segments">
+    private ByteBufferNumberReader newSource(long offset) throws IOException {
+        return new ByteBufferNumberReader(this::window, offset, endianType);
+    }
+
+    /**
+     * Returns a view starting at the offset. The segment holding it is chosen so that
+     * at least segmentSize - segmentStep bytes follow, unless the file ends earlier.
+     */
+    ByteBuffer window(long offset) throws IOException {
+        if (offset >= size) return ByteBuffer.allocate(0);
+        int index = (int) (offset / segmentStep);
+        MappedByteBuffer segment = segment(index);
+        int position = (int) (offset - index * segmentStep);
+        return segment.slice(position, segment.limit() - position);
+    }
+
+    /**
+     * Returns the view starting at the offset, or a copy of the next minLength
+     * bytes when they are longer than the overlap of the segments.
+     */
+    private ByteBuffer window(long offset, int minLength) throws IOException {
+        ByteBuffer view = window(offset);
+        if (view.remaining() >= minLength || offset + view.remaining() >= size) return view;
+        ByteBuffer joined = ByteBuffer.allocate((int) Math.min(minLength, size - offset));
+        while (joined.hasRemaining()) {
+            ByteBuffer part = window(offset + joined.position());
+            part.limit(Math.min(part.remaining(), joined.remaining()));
+            joined.put(part);
+        }
+        return joined.flip();
+    }
+
+    private synchronized MappedByteBuffer segment(int index) throws IOException {
+        MappedByteBuffer segment = segments[index];
+        if (segment == null) {
+            long offset = index * segmentStep;
+            long length = Math.min(segmentSize, size - offset);
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+    //</editor-fold>
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
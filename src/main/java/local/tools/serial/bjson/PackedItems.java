@@ -0,0 +1,184 @@
+package local.tools.serial.bjson;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Items of a BJSONPackedArray: a growable int[], long[], float[] or double[]
+ * presented as a list of Integer, Long, Float or Double values.
+ */
+final class PackedItems extends AbstractList<Object> implements RandomAccess {
+
+    private final BJSONType type;
+    private int[] ints;
+    private long[] longs;
+    private float[] floats;
+    private double[] doubles;
+    private int size;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    /**
+     * Takes over the array, values past size are unused capacity.
+     */
+    PackedItems(int[] values, int size) {
+        this.type = BJSONType.Int32Array;
+        this.ints = values;
+        this.size = size;
+    }
+
+    PackedItems(long[] values, int size) {
+        this.type = BJSONType.Int64Array;
+        this.longs = values;
+        this.size = size;
+    }
+
+    PackedItems(float[] values, int size) {
+        this.type = BJSONType.Float32Array;
+        this.floats = values;
+        this.size = size;
+    }
+
+    PackedItems(double[] values, int size) {
+        this.type = BJSONType.Float64Array;
+        this.doubles = values;
+        this.size = size;
+    }
+    //</editor-fold>
+
+    BJSONType getType() {
+        return type;
+    }
+
+    int[] ints() {
+        return ints;
+    }
+
+    long[] longs() {
+        return longs;
+    }
+
+    float[] floats() {
+        return floats;
+    }
+
+    double[] doubles() {
+        return doubles;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        checkIndex(index, size);
+        switch (type) {
+            case Int32Array: return ints[index];
+            case Int64Array: return longs[index];
+            case Float32Array: return floats[index];
+            default: return doubles[index];
+        }
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        checkIndex(index, size);
+        Object previous = get(index);
+        store(index, element);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        shift(index, index + 1, size - index);
+        size += 1;
+        try {
+            store(index, element);
+        } catch (BJSONException e) {
+            shift(index + 1, index, size - index - 1);
+            size -= 1;
+            throw e;
+        }
+        modCount += 1;
+    }
+
+    @Override
+    public Object remove(int index) {
+        checkIndex(index, size);
+        Object previous = get(index);
+        shift(index + 1, index, size - index - 1);
+        size -= 1;
+        modCount += 1;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount += 1;
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Storage">
+    private void store(int index, Object element) {
+        switch (type) {
+            case Int32Array:
+                if (!(element instanceof Integer)) throw mismatch(element);
+                ints[index] = (Integer) element;
+                break;
+            case Int64Array:
+                if (!(element instanceof Long)) throw mismatch(element);
+                longs[index] = (Long) element;
+                break;
+            case Float32Array:
+                if (!(element instanceof Float)) throw mismatch(element);
+                floats[index] = (Float) element;
+                break;
+            default:
+                if (!(element instanceof Double)) throw mismatch(element);
+                doubles[index] = (Double) element;
+        }
+    }
+
+    private BJSONException mismatch(Object element) {
+        String name = element == null ? "null" : element.getClass().getName();
+        return new BJSONException("Type mismatch exception: " + name + " in " + type + ".");
+    }
+
+    private void shift(int from, int to, int count) {
+        switch (type) {
+            case Int32Array: System.arraycopy(ints, from, ints, to, count); break;
+            case Int64Array: System.arraycopy(longs, from, longs, to, count); break;
+            case Float32Array: System.arraycopy(floats, from, floats, to, count); break;
+            default: System.arraycopy(doubles, from, doubles, to, count);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        int length;
+        switch (type) {
+            case Int32Array: length = ints.length; break;
+            case Int64Array: length = longs.length; break;
+            case Float32Array: length = floats.length; break;
+            default: length = doubles.length;
+        }
+        if (capacity <= length) return;
+        int grown = Math.max(capacity, length + (length >> 1) + 1);
+        switch (type) {
+            case Int32Array: ints = Arrays.copyOf(ints, grown); break;
+            case Int64Array: longs = Arrays.copyOf(longs, grown); break;
+            case Float32Array: floats = Arrays.copyOf(floats, grown); break;
+            default: doubles = Arrays.copyOf(doubles, grown);
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+    //</editor-fold>
+}
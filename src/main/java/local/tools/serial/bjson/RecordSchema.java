@@ -0,0 +1,25 @@
+package local.tools.serial.bjson;
+
+/**
+ * Ordered keys and type tags shared by the records of a RecordArray.
+ */
+final class RecordSchema {
+
+    final String[] keys;
+    final int[] tags;
+    final BJSONType[] types;
+
+    RecordSchema(String[] keys, int[] tags) {
+        this.keys = keys;
+        this.tags = tags;
+        this.types = new BJSONType[tags.length];
+        for (int i=0; i<tags.length; ++i) {
+            types[i] = BJSONType.fromValue(tags[i]);
+            if (types[i] == null || types[i] == BJSONType.End) throw new BJSONException("Invalid record field type " + tags[i] + ".");
+        }
+    }
+
+    int size() {
+        return keys.length;
+    }
+}
@@ -1,6 +1,7 @@
 package local.tools.serial.json.discovery;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -13,6 +14,9 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
     private final List<Object> items = new ArrayList<>();
     
     private boolean disabledIndents = false;
+    
+    // Some items may still be JSONLazyValue placeholders
+    private boolean lazy = false;
 
     //<editor-fold defaultstate="collapsed" desc="Constructors">
     public JSONArray() {
@@ -22,6 +26,14 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
         this(new JSONTokener(source));
     }
     
+    /**
+     * Construct a JSONArray from a source JSON text string, optionally deferring
+     * nested objects and arrays until they are accessed (see JSONObject(String, boolean)).
+     */
+    public JSONArray(String source, boolean lazy) throws JSONException {
+        this(new JSONTokener(source, 0, lazy, false));
+    }
+    
     public JSONArray(Collection<Object> collection) {
         for (Object item : collection) {
             this.items.add(JSONObject.wrap(item));
@@ -47,6 +59,7 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
     
     JSONArray(JSONTokener x) throws JSONException {
         this();
+        this.lazy = x.isLazy();
         if (x.nextClean() != '[') {
             throw x.syntaxError("A JSONArray text must start with '['");
         }
@@ -76,6 +89,27 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
             }
         }
     }
+    
+    /**
+     * Construct a JSONArray from a character stream. The source is read
+     * through a bounded buffer and is not closed.
+     */
+    public JSONArray(Reader reader) throws JSONException {
+        this(new JSONStreamReader(reader));
+    }
+    
+    JSONArray(JSONStreamReader x) throws JSONException {
+        this(x, x.next());
+    }
+    
+    JSONArray(JSONStreamReader x, JSONEvent event) throws JSONException {
+        if (event != JSONEvent.START_ARRAY) {
+            throw x.syntaxError("A JSONArray text must start with '['");
+        }
+        while ((event = x.next()) != JSONEvent.END_ARRAY) {
+            this.items.add(x.buildValue(event));
+        }
+    }
     //</editor-fold>
 
     //<editor-fold defaultstate="collapsed" desc="Getters">
@@ -85,7 +119,12 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
     
     @Override
     public Object get(int index) {
-        return this.items.get(index);
+        Object value = this.items.get(index);
+        if (value instanceof JSONLazyValue) {
+            value = ((JSONLazyValue) value).resolve();
+            this.items.set(index, value);
+        }
+        return value;
     }
     
     public boolean getBoolean(int index) throws JSONException {
@@ -187,7 +226,7 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
             if (i > 0) {
                 sb.append(separator);
             }
-            sb.append(valueToString(this.items.get(i)));
+            sb.append(valueToString(this.get(i)));
         }
         return sb.toString();
     }
@@ -256,7 +295,7 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
             writer.append('[');
             
             if (length == 1) {
-                JSONObject.writeValue(writer, this.items.get(0), indent, totalIndent);
+                JSONObject.writeValue(writer, this.get(0), indent, totalIndent);
             } else if (length != 0) {
                 final int newindent = totalIndent + indent;
                 
@@ -268,7 +307,7 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
                         writer.append('\n');
                     }
                     JSONObject.appendIndent(writer, newindent);
-                    JSONObject.writeValue(writer, this.items.get(i), indent, newindent);
+                    JSONObject.writeValue(writer, this.get(i), indent, newindent);
                     commanate = true;
                 }
                 if (indent > 0) {
@@ -282,11 +321,23 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
             throw new JSONException(e);
         }
     }
+    
+    /**
+     * Parses all items still deferred by lazy mode.
+     */
+    private void resolveAll() throws JSONException {
+        if (!lazy) return;
+        for (int i = 0; i < items.size(); ++i) {
+            get(i);
+        }
+        lazy = false;
+    }
     //</editor-fold>
 
     //<editor-fold desc="Iterable interface methods">
     @Override
     public Iterator<Object> iterator() {
+        resolveAll();
         return items.iterator();
     }
     //</editor-fold>
@@ -304,16 +355,19 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
 
     @Override
     public boolean contains(Object o) {
+        resolveAll();
         return items.contains(o);
     }
 
     @Override
     public Object[] toArray() {
+        resolveAll();
         return items.toArray();
     }
 
     @Override
     public <T> T[] toArray(T[] a) {
+        resolveAll();
         return (T[]) items.toArray(a);
     }
 
@@ -324,16 +378,18 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
 
     @Override
     public boolean remove(Object o) {
+        resolveAll();
         return items.remove(o);
     }
     
     @Override
     public Object remove(int index) {
-        return this.items.remove(index);
+        return JSONLazyValue.resolve(this.items.remove(index));
     }
 
     @Override
     public boolean containsAll(Collection<?> c) {
+        resolveAll();
         return items.containsAll(c);
     }
 
@@ -349,11 +405,13 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
 
     @Override
     public boolean removeAll(Collection<?> c) {
+        resolveAll();
         return items.removeAll(c);
     }
 
     @Override
     public boolean retainAll(Collection<?> c) {
+        resolveAll();
         return items.retainAll(c);
     }
 
@@ -364,7 +422,7 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
 
     @Override
     public Object set(int index, Object element) {
-        return items.set(index, JSONObject.wrap(element));
+        return JSONLazyValue.resolve(items.set(index, JSONObject.wrap(element)));
     }
 
     @Override
@@ -374,26 +432,31 @@ public final class JSONArray implements List<Object>, Iterable<Object> {
 
     @Override
     public int indexOf(Object o) {
+        resolveAll();
         return items.indexOf(o);
     }
 
     @Override
     public int lastIndexOf(Object o) {
+        resolveAll();
         return items.lastIndexOf(o);
     }
 
     @Override
     public ListIterator<Object> listIterator() {
+        resolveAll();
         return items.listIterator();
     }
 
     @Override
     public ListIterator<Object> listIterator(int index) {
+        resolveAll();
         return items.listIterator(index);
     }
 
     @Override
     public List<Object> subList(int fromIndex, int toIndex) {
+        resolveAll();
         return items.subList(fromIndex, toIndex);
     }
     //</editor-fold>
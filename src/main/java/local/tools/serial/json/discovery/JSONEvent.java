@@ -0,0 +1,17 @@
+package local.tools.serial.json.discovery;
+
+/**
+ * Events reported by JSONStreamReader while pulling through a JSON text.
+ */
+public enum JSONEvent {
+    START_OBJECT,
+    END_OBJECT,
+    START_ARRAY,
+    END_ARRAY,
+    KEY,
+    VALUE_STRING,
+    VALUE_NUMBER,
+    VALUE_TRUE,
+    VALUE_FALSE,
+    VALUE_NULL
+}
@@ -0,0 +1,28 @@
+package local.tools.serial.json.discovery;
+
+import java.io.Serializable;
+
+/**
+ * Placeholder for a nested object or array of a lazily parsed JSONObject or JSONArray.
+ * Keeps the whole source text and the position of the opening bracket, the value
+ * is parsed (lazily again) by its container on first access.
+ */
+final class JSONLazyValue implements Serializable {
+
+    private final String source;
+    private final int start;
+
+    JSONLazyValue(String source, int start) {
+        this.source = source;
+        this.start = start;
+    }
+
+    Object resolve() throws JSONException {
+        JSONTokener x = new JSONTokener(source, start, true, true);
+        return source.charAt(start) == '{' ? new JSONObject(x) : new JSONArray(x);
+    }
+
+    static Object resolve(Object value) throws JSONException {
+        return value instanceof JSONLazyValue ? ((JSONLazyValue) value).resolve() : value;
+    }
+}
@@ -0,0 +1,168 @@
+package local.tools.serial.json.discovery;
+
+/**
+ * Single pass decimal number scanner for unquoted tokens.
+ * <p>
+ * Digits are accumulated straight from the source, the result type follows the
+ * Integer, Long, Double order of JSONTokener.stringToValue without any exception
+ * thrown on the way. Doubles with at most 15 significant digits and a small
+ * exponent are computed exactly from the accumulated mantissa, other forms are
+ * left to Double.parseDouble.
+ */
+final class JSONNumberScanner {
+
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+            1e21, 1e22
+    };
+
+    private JSONNumberScanner() {
+    }
+
+    static boolean isNumberStart(char c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+    }
+
+    static boolean isNumberPart(char c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+    }
+
+    /**
+     * Scans a decimal number occupying exactly the given range.
+     *
+     * @return Integer, Long or Double, or null when the range is not a plain decimal
+     * number (hex, octal, trailing letters...) and the caller has to fall back
+     * to the generic conversion.
+     */
+    static Number scan(CharSequence s, int start, int end) {
+        int i = start;
+        if (i >= end) return null;
+
+        char c = s.charAt(i);
+        boolean negative = c == '-';
+        if (negative || c == '+') {
+            i += 1;
+        }
+
+        //<editor-fold defaultstate="collapsed" desc="Integer part">
+        // Accumulated negatively as Long.parseLong does, so Long.MIN_VALUE fits.
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multmin = limit / 10;
+        long value = 0;
+        boolean overflow = false;
+        int intStart = i;
+        while (i < end && (c = s.charAt(i)) >= '0' && c <= '9') {
+            int digit = c - '0';
+            if (!overflow) {
+                if (value < multmin) {
+                    overflow = true;
+                } else {
+                    value *= 10;
+                    if (value < limit + digit) {
+                        overflow = true;
+                    } else {
+                        value -= digit;
+                    }
+                }
+            }
+            i += 1;
+        }
+        int intEnd = i;
+        //</editor-fold>
+
+        //<editor-fold defaultstate="collapsed" desc="Fraction">
+        boolean fraction = false;
+        int fracStart = i;
+        if (i < end && s.charAt(i) == '.') {
+            fraction = true;
+            i += 1;
+            fracStart = i;
+            while (i < end && (c = s.charAt(i)) >= '0' && c <= '9') {
+                i += 1;
+            }
+        }
+        int fracEnd = i;
+        if (intEnd == intStart && fracEnd == fracStart) return null;
+        //</editor-fold>
+
+        //<editor-fold defaultstate="collapsed" desc="Exponent">
+        boolean exponent = false;
+        int exp = 0;
+        if (i < end && ((c = s.charAt(i)) == 'e' || c == 'E')) {
+            exponent = true;
+            i += 1;
+            boolean expNegative = false;
+            if (i < end && ((c = s.charAt(i)) == '-' || c == '+')) {
+                expNegative = c == '-';
+                i += 1;
+            }
+            int expStart = i;
+            while (i < end && (c = s.charAt(i)) >= '0' && c <= '9') {
+                if (exp < 100_000) {
+                    exp = exp * 10 + (c - '0');
+                }
+                i += 1;
+            }
+            if (i == expStart) return null;
+            if (expNegative) {
+                exp = -exp;
+            }
+        }
+        //</editor-fold>
+
+        if (i != end) return null;
+
+        if (!fraction && !exponent) {
+            // 0- prefixed tokens follow the octal convention of stringToValue
+            if (intEnd - intStart > 1 && s.charAt(start) == '0') return null;
+            if (overflow) {
+                return Double.valueOf(s.subSequence(start, end).toString());
+            }
+            long v = negative ? value : -value;
+            if ((int) v == v) {
+                return (int) v;
+            }
+            return v;
+        }
+        return toDouble(s, start, end, negative, intStart, intEnd, fracStart, fracEnd, exp);
+    }
+
+    private static Double toDouble(CharSequence s, int start, int end, boolean negative,
+                                   int intStart, int intEnd, int fracStart, int fracEnd, int exp) {
+        long mantissa = 0;
+        int digits = 0;
+        for (int i = intStart; i < fracEnd; i++) {
+            if (i == intEnd) {
+                i = fracStart - 1;
+                continue;
+            }
+            int digit = s.charAt(i) - '0';
+            if (mantissa == 0 && digit == 0) continue;
+            if (++digits > MAX_EXACT_DIGITS) {
+                return Double.valueOf(s.subSequence(start, end).toString());
+            }
+            mantissa = mantissa * 10 + digit;
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+
+        // Mantissa is below 2^53 and powers up to 1e22 are exact, so a single
+        // multiplication or division gives the correctly rounded result.
+        int exp10 = exp - (fracEnd - fracStart);
+        double result;
+        if (exp10 == 0) {
+            result = mantissa;
+        } else if (exp10 > 0 && exp10 < POWERS_OF_TEN.length) {
+            result = mantissa * POWERS_OF_TEN[exp10];
+        } else if (exp10 < 0 && -exp10 < POWERS_OF_TEN.length) {
+            result = mantissa / POWERS_OF_TEN[-exp10];
+        } else {
+            return Double.valueOf(s.subSequence(start, end).toString());
+        }
+        return negative ? -result : result;
+    }
+}
@@ -1,6 +1,7 @@
 package local.tools.serial.json.discovery;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.text.DecimalFormat;
@@ -12,6 +13,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import local.tools.logs.Logger;
+import local.tools.utils.CompactMap;
 
 public final class JSONObject implements Map<String, Object>, Serializable {
 
@@ -22,9 +24,12 @@ public final class JSONObject implements Map<String, Object>, Serializable {
         decimalFormat.setMaximumFractionDigits(Integer.MAX_VALUE);
     }
 
-    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private final Map<String, Object> attributes = new CompactMap();
     
     private boolean disabledIndents = false;
+    
+    // Some values may still be JSONLazyValue placeholders
+    private boolean lazy = false;
 
     //<editor-fold defaultstate="collapsed" desc="Constructors">
     public JSONObject() {
@@ -38,6 +43,7 @@ public final class JSONObject implements Map<String, Object>, Serializable {
      *                       or a duplicated key.
      */
     JSONObject(JSONTokener x) throws JSONException {
+        this.lazy = x.isLazy();
         if (x.nextClean() != '{') {
             throw x.syntaxError("A JSONObject text must begin with '{'");
         }
@@ -82,6 +88,33 @@ public final class JSONObject implements Map<String, Object>, Serializable {
         }
     }
     
+    /**
+     * Construct a JSONObject from a pull parser positioned before the object.
+     *
+     * @param x A JSONStreamReader over the source text.
+     * @throws JSONException If there is a syntax error in the source text.
+     */
+    JSONObject(JSONStreamReader x) throws JSONException {
+        this(x, x.next());
+    }
+
+    /**
+     * Construct a JSONObject from a pull parser which has just reported the given event.
+     *
+     * @param x     A JSONStreamReader over the source text.
+     * @param event The current event, must be START_OBJECT.
+     * @throws JSONException If there is a syntax error in the source text.
+     */
+    JSONObject(JSONStreamReader x, JSONEvent event) throws JSONException {
+        if (event != JSONEvent.START_OBJECT) {
+            throw x.syntaxError("A JSONObject text must begin with '{'");
+        }
+        while (x.next() == JSONEvent.KEY) {
+            String key = x.getString();
+            this.put(key, x.buildValue(x.next()));
+        }
+    }
+    
     /**
      * Construct a JSONObject from a Map.
      *
@@ -130,6 +163,34 @@ public final class JSONObject implements Map<String, Object>, Serializable {
         this(new JSONTokener(source));
     }
     
+    /**
+     * Construct a JSONObject from a source JSON text string, optionally
+     * deferring nested values.
+     * <p>
+     * In lazy mode the text is still validated completely, but nested objects
+     * and arrays are only recorded by their position. Each one is parsed
+     * (lazily again) on first access and cached, so parse time and heap follow
+     * what is actually read. The source string is retained until then.
+     *
+     * @param source A string beginning with <code>{</code> and ending with <code>}</code>.
+     * @param lazy   Defer parsing of nested objects and arrays.
+     * @throws JSONException If there is a syntax error in the source string.
+     */
+    public JSONObject(String source, boolean lazy) throws JSONException {
+        this(new JSONTokener(source, 0, lazy, false));
+    }
+    
+    /**
+     * Construct a JSONObject from a character stream. The source is read
+     * through a bounded buffer and is not closed.
+     *
+     * @param reader A reader positioned before <code>{</code>&nbsp;<small>(left brace)</small>.
+     * @throws JSONException If there is a syntax error or the reader fails.
+     */
+    public JSONObject(Reader reader) throws JSONException {
+        this(new JSONStreamReader(reader));
+    }
+    
     //<editor-fold defaultstate="collapsed" desc="Copy From ReflexHelper">
     public static final Map<String, Object> extractAllFieldsIntoMap(Object obj) {
         return extractAllFieldsIntoMap(obj, true);
@@ -171,11 +232,16 @@ public final class JSONObject implements Map<String, Object>, Serializable {
      * @throws JSONException if the key is not found.
      */ 
     public Object get(String key) {
-        return this.attributes.get(key);
+        Object value = this.attributes.get(key);
+        if (value instanceof JSONLazyValue) {
+            value = ((JSONLazyValue) value).resolve();
+            this.attributes.put(key, value);
+        }
+        return value;
     }
     
     public <Type extends Number> Type getNumber(String key) {
-        Object o = this.attributes.get(key);
+        Object o = this.get(key);
         try {
             return (Type) o;
         } catch (ClassCastException e) { 
@@ -347,6 +413,7 @@ public final class JSONObject implements Map<String, Object>, Serializable {
         if (value == null) return null;
         if (value instanceof JSONObject || 
             value instanceof JSONArray ||
+            value instanceof JSONLazyValue ||
             value instanceof Boolean ||
             value instanceof Byte || 
             value instanceof Character ||
@@ -390,7 +457,20 @@ public final class JSONObject implements Map<String, Object>, Serializable {
      * or null if there was no value.
      */
     public final Object remove(final String key) {
-        return this.attributes.remove(key);
+        return JSONLazyValue.resolve(this.attributes.remove(key));
+    }
+    
+    /**
+     * Parses all values still deferred by lazy mode.
+     */
+    private void resolveAll() throws JSONException {
+        if (!lazy) return;
+        for (Entry<String, Object> entry : this.attributes.entrySet()) {
+            if (entry.getValue() instanceof JSONLazyValue) {
+                entry.setValue(((JSONLazyValue) entry.getValue()).resolve());
+            }
+        }
+        lazy = false;
     }
 
     //<editor-fold defaultstate="collapsed" desc="toString methods">
@@ -459,7 +539,7 @@ public final class JSONObject implements Map<String, Object>, Serializable {
                 if (indentFactor > 0) {
                     writer.append(' ');
                 }
-                writeValue(writer, this.attributes.get(key), indentFactor, indent);
+                writeValue(writer, this.get(key), indentFactor, indent);
             } else if (size != 0) {
                 final int newIndent = indent + indentFactor;
                 while (keys.hasNext()) {
@@ -478,7 +558,7 @@ public final class JSONObject implements Map<String, Object>, Serializable {
                     if (indentFactor > 0) {
                         writer.append(' ');
                     }
-                    writeValue(writer, this.attributes.get(key), indentFactor, newIndent);
+                    writeValue(writer, this.get(key), indentFactor, newIndent);
                     commanate = true;
                 }
                 if (indentFactor > 0) {
@@ -607,17 +687,18 @@ public final class JSONObject implements Map<String, Object>, Serializable {
 
     @Override
     public final boolean containsValue(final Object value) {
+        resolveAll();
         return attributes.containsValue(value);
     }
 
     @Override
     public final Object get(final Object key) {
-        return attributes.get(key);
+        return key instanceof String ? get((String) key) : attributes.get(key);
     }
 
     @Override
     public final Object remove(final Object key) {
-        return attributes.remove(key);
+        return JSONLazyValue.resolve(attributes.remove(key));
     }
 
     @Override
@@ -637,11 +718,13 @@ public final class JSONObject implements Map<String, Object>, Serializable {
 
     @Override
     public final Collection<Object> values() {
+        resolveAll();
         return attributes.values();
     }
 
     @Override
     public final Set<Entry<String, Object>> entrySet() {
+        resolveAll();
         return attributes.entrySet();
     }
     //</editor-fold>
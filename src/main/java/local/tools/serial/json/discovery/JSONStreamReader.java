@@ -0,0 +1,461 @@
+package local.tools.serial.json.discovery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull parser over a character stream.
+ * <p>
+ * Input is consumed through a fixed size char buffer, so memory does not depend
+ * on the document size. Each call to {@link #next()} reports one {@link JSONEvent},
+ * the current key or scalar value is available through the getters until the
+ * following call. Accepts the same relaxed syntax as JSONObject(String):
+ * comments, single quoted and unquoted strings, '=' and '=>' key separators.
+ * <p>
+ * A stream may hold several top level values one after another (e.g. newline
+ * delimited records), {@link #next()} returns null when the input is exhausted.
+ */
+public final class JSONStreamReader implements AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final String DELIMITERS = ",:]}/\\\"[{;=#";
+
+    private static final byte IN_OBJECT = 1;
+    private static final byte IN_ARRAY = 2;
+
+    private static final int EXPECT_VALUE = 0;
+    private static final int EXPECT_KEY = 1;
+    private static final int EXPECT_SEPARATOR = 2;
+
+    private final Reader source;
+    private final char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private long offset = 0;
+
+    private byte[] scopes = new byte[32];
+    private int depth = 0;
+    private int expect = EXPECT_VALUE;
+
+    private final StringBuilder text = new StringBuilder();
+    private JSONEvent event;
+    private Object value;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    public JSONStreamReader(Reader source, int bufferSize) {
+        if (bufferSize < 1) throw new IllegalArgumentException("Given zero or negative bufferSize.");
+        this.source = source;
+        this.buffer = new char[bufferSize];
+    }
+
+    public JSONStreamReader(Reader source) {
+        this(source, DEFAULT_BUFFER_SIZE);
+    }
+
+    public JSONStreamReader(InputStream source) {
+        this(new InputStreamReader(source, StandardCharsets.UTF_8));
+    }
+
+    public JSONStreamReader(String source) {
+        this(new StringReader(source), Math.max(1, Math.min(source.length(), DEFAULT_BUFFER_SIZE)));
+    }
+    //</editor-fold>
+
+    /**
+     * Advances to the next event.
+     *
+     * @return the next event or null when the input has no more values.
+     * @throws JSONException on syntax or read errors.
+     */
+    public JSONEvent next() throws JSONException {
+        try {
+            this.value = null;
+            this.event = advance();
+            return this.event;
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    /**
+     * Skips the content of the object or array just started,
+     * the reader is left on the matching END_OBJECT or END_ARRAY event.
+     */
+    public void skipChildren() throws JSONException {
+        if (event != JSONEvent.START_OBJECT && event != JSONEvent.START_ARRAY) return;
+        int target = depth - 1;
+        while (depth > target) {
+            next();
+        }
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Getters">
+    public JSONEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * @return the current key, string value or token text.
+     */
+    public String getString() {
+        if (event == JSONEvent.KEY || event == JSONEvent.VALUE_STRING) {
+            return (String) value;
+        }
+        return value == null ? null : value.toString();
+    }
+
+    public Number getNumber() throws JSONException {
+        if (event != JSONEvent.VALUE_NUMBER) {
+            throw new JSONException("Current event " + event + " is not a number.");
+        }
+        return (Number) value;
+    }
+
+    /**
+     * @return the current scalar value as String, Number, Boolean or null.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * @return the number of objects and arrays enclosing the current position.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the number of characters consumed so far.
+     */
+    public long getPosition() {
+        return offset + position;
+    }
+    //</editor-fold>
+
+    /**
+     * Builds the value which starts with the given event, nested objects and arrays
+     * are read completely.
+     */
+    Object buildValue(JSONEvent event) throws JSONException {
+        if (event == null) {
+            throw syntaxError("Unexpected end of input");
+        }
+        switch (event) {
+            case START_OBJECT:
+                return new JSONObject(this, event);
+            case START_ARRAY:
+                return new JSONArray(this, event);
+            case KEY:
+            case END_OBJECT:
+            case END_ARRAY:
+                throw syntaxError("Unexpected " + event);
+            default:
+                return value;
+        }
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Tokens">
+    private JSONEvent advance() throws IOException {
+        int c = nextClean();
+        switch (expect) {
+            case EXPECT_KEY:
+                if (c == '}') {
+                    return endScope(IN_OBJECT, JSONEvent.END_OBJECT);
+                }
+                return readKey(c);
+            case EXPECT_SEPARATOR:
+                if (c == ',' || c == ';') {
+                    expect = scopes[depth - 1] == IN_OBJECT ? EXPECT_KEY : EXPECT_VALUE;
+                    return advance();
+                }
+                if (c == '}') {
+                    return endScope(IN_OBJECT, JSONEvent.END_OBJECT);
+                }
+                if (c == ']') {
+                    return endScope(IN_ARRAY, JSONEvent.END_ARRAY);
+                }
+                throw syntaxError(scopes[depth - 1] == IN_OBJECT ? "Expected a ',' or '}'" : "Expected a ',' or ']'");
+            default:
+                if (c < 0) {
+                    if (depth == 0) return null;
+                    throw syntaxError(scopes[depth - 1] == IN_OBJECT ?
+                            "A JSONObject text must end with '}'" :
+                            "A JSONArray text must end with ']'");
+                }
+                if (depth > 0 && scopes[depth - 1] == IN_ARRAY) {
+                    if (c == ']') {
+                        return endScope(IN_ARRAY, JSONEvent.END_ARRAY);
+                    }
+                    if (c == ',') {
+                        // Missing array element, e.g. [1,,2]
+                        return JSONEvent.VALUE_NULL;
+                    }
+                }
+                return readValue(c);
+        }
+    }
+
+    private JSONEvent readKey(int c) throws IOException {
+        if (c < 0) {
+            throw syntaxError("A JSONObject text must end with '}'");
+        }
+        String key = (c == '"' || c == '\'') ? readString((char) c) : readLiteral(c);
+        if (key.isEmpty() && c != '"' && c != '\'') {
+            throw syntaxError("Missing value");
+        }
+
+        /* The key is followed by ':'. We will also tolerate '=' or '=>'. */
+        c = nextClean();
+        if (c == '=') {
+            if (peek() == '>') {
+                position += 1;
+            }
+        } else if (c != ':') {
+            throw syntaxError("Expected a ':' after a key");
+        }
+        this.expect = EXPECT_VALUE;
+        this.value = key;
+        return JSONEvent.KEY;
+    }
+
+    private JSONEvent readValue(int c) throws IOException {
+        switch (c) {
+            case '"':
+            case '\'':
+                this.value = readString((char) c);
+                afterValue();
+                return JSONEvent.VALUE_STRING;
+            case '{':
+                startScope(IN_OBJECT);
+                this.expect = EXPECT_KEY;
+                return JSONEvent.START_OBJECT;
+            case '[':
+                startScope(IN_ARRAY);
+                this.expect = EXPECT_VALUE;
+                return JSONEvent.START_ARRAY;
+        }
+
+        int end = scanLiteral(c);
+        if (end == 0) {
+            throw syntaxError("Missing value");
+        }
+        Number number = JSONNumberScanner.isNumberStart(text.charAt(0)) ?
+                JSONNumberScanner.scan(text, 0, end) : null;
+        this.value = number != null ? number : JSONTokener.stringToValue(text.substring(0, end));
+        afterValue();
+        if (value == null) return JSONEvent.VALUE_NULL;
+        if (value == Boolean.TRUE) return JSONEvent.VALUE_TRUE;
+        if (value == Boolean.FALSE) return JSONEvent.VALUE_FALSE;
+        if (value instanceof Number) return JSONEvent.VALUE_NUMBER;
+        return JSONEvent.VALUE_STRING;
+    }
+
+    private String readLiteral(int c) throws IOException {
+        return text.substring(0, scanLiteral(c));
+    }
+
+    /**
+     * Collects an unquoted token into {@link #text}.
+     *
+     * @return the token length without trailing blanks.
+     */
+    private int scanLiteral(int c) throws IOException {
+        text.setLength(0);
+        if (c < ' ' || DELIMITERS.indexOf(c) >= 0) {
+            return 0;
+        }
+        text.append((char) c);
+        while ((c = peek()) >= ' ' && DELIMITERS.indexOf(c) < 0) {
+            text.append((char) c);
+            position += 1;
+        }
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) <= ' ') {
+            end -= 1;
+        }
+        return end;
+    }
+
+    private String readString(char quote) throws IOException {
+        text.setLength(0);
+        while (true) {
+            // copy plain runs straight from the buffer
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == quote || c == '\\' || c == '\n' || c == '\r') break;
+                position += 1;
+            }
+            text.append(buffer, start, position - start);
+
+            int c = read();
+            switch (c) {
+                case -1:
+                    throw syntaxError("Unterminated string");
+                case '\n':
+                case '\r':
+                    throw syntaxError("Unterminated string");
+                case '\\':
+                    c = read();
+                    switch (c) {
+                        case 'b':
+                            text.append('\b');
+                            break;
+                        case 't':
+                            text.append('\t');
+                            break;
+                        case 'n':
+                            text.append('\n');
+                            break;
+                        case 'f':
+                            text.append('\f');
+                            break;
+                        case 'r':
+                            text.append('\r');
+                            break;
+                        case 'u':
+                            text.append((char) readHex(4));
+                            break;
+                        case 'x':
+                            text.append((char) readHex(2));
+                            break;
+                        case -1:
+                            throw syntaxError("Unterminated string");
+                        default:
+                            text.append((char) c);
+                    }
+                    break;
+                default:
+                    if (c == quote) {
+                        return text.toString();
+                    }
+                    text.append((char) c);
+            }
+        }
+    }
+
+    private int readHex(int count) throws IOException {
+        int result = 0;
+        for (int i = 0; i < count; ++i) {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0) {
+                throw syntaxError("Illegal escape.");
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+
+    private int nextClean() throws IOException {
+        while (true) {
+            int c = read();
+            //<editor-fold defaultstate="collapsed" desc="Removes C-style comments">
+            if (c == '/') {
+                switch (peek()) {
+                    case '/':
+                        do {
+                            c = read();
+                        } while (c != '\n' && c != '\r' && c >= 0);
+                        break;
+                    case '*':
+                        position += 1;
+                        while (true) {
+                            c = read();
+                            if (c < 0) {
+                                throw syntaxError("Unclosed comment");
+                            }
+                            if (c == '*' && peek() == '/') {
+                                position += 1;
+                                break;
+                            }
+                        }
+                        break;
+                    default:
+                        return '/';
+                }
+            }
+            //</editor-fold>
+            //<editor-fold defaultstate="collapsed" desc="Removes #-dash comments">
+            else if (c == '#') {
+                do {
+                    c = read();
+                } while (c != '\n' && c != '\r' && c >= 0);
+            }
+            //</editor-fold>
+            else if (c < 0 || c > ' ') {
+                return c;
+            }
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Scopes">
+    private void startScope(byte scope) {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth++] = scope;
+    }
+
+    private JSONEvent endScope(byte scope, JSONEvent end) {
+        if (depth == 0 || scopes[depth - 1] != scope) {
+            throw syntaxError("Unexpected " + end);
+        }
+        depth -= 1;
+        afterValue();
+        return end;
+    }
+
+    private void afterValue() {
+        this.expect = depth == 0 ? EXPECT_VALUE : EXPECT_SEPARATOR;
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Buffer">
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c >= 0) {
+            position += 1;
+        }
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        position = 0;
+        limit = 0;
+        int r;
+        do {
+            r = source.read(buffer, 0, buffer.length);
+        } while (r == 0);
+        if (r < 0) {
+            return false;
+        }
+        limit = r;
+        return true;
+    }
+    //</editor-fold>
+
+    JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + getPosition());
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
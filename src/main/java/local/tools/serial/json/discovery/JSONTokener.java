@@ -2,12 +2,34 @@ package local.tools.serial.json.discovery;
 
 final class JSONTokener {
 
+    private static final String DELIMITERS = ",:]}/\\\"[{;=#";
+
     private int position;
     private final String source;
+    private final boolean lazy;
+    private final boolean validated;
 
     JSONTokener(final String source) {
-        this.position = 0;
+        this(source, 0, false, false);
+    }
+
+    /**
+     * @param source    the JSON text.
+     * @param start     position to start reading from.
+     * @param lazy      nested objects and arrays are returned by {@link #nextValue()}
+     *                  as JSONLazyValue placeholders instead of being parsed.
+     * @param validated the text was already walked through by {@link #skipValue()},
+     *                  lazy values only need their closing bracket to be found.
+     */
+    JSONTokener(final String source, final int start, final boolean lazy, final boolean validated) {
+        this.position = start;
         this.source = source;
+        this.lazy = lazy;
+        this.validated = validated;
+    }
+
+    boolean isLazy() {
+        return this.lazy;
     }
 
     void back() {
@@ -51,6 +73,13 @@ final class JSONTokener {
         return this.source.substring(i, j);
     }
 
+    void skip(int n) throws JSONException {
+        if (this.position + n >= this.source.length()) {
+            throw syntaxError("Substring bounds error");
+        }
+        this.position += n;
+    }
+
     char nextClean() throws JSONException {
         while (true) {
             char c = next();
@@ -182,10 +211,17 @@ final class JSONTokener {
                 return nextString(c);
             case '{':
                 back();
-                return new JSONObject(this);
+                return lazy ? nextLazyValue() : new JSONObject(this);
             case '[':
                 back();
-                return new JSONArray(this);
+                return lazy ? nextLazyValue() : new JSONArray(this);
+        }
+
+        if (JSONNumberScanner.isNumberStart(c)) {
+            Number number = nextNumber();
+            if (number != null) {
+                return number;
+            }
         }
 
         /*
@@ -197,20 +233,250 @@ final class JSONTokener {
          * formatting character.
          */
         StringBuilder sb = new StringBuilder();
-        char b = c;
-        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) { // e.i c not in charlist(",:]}/\\\"[{;=#")
+        while (c >= ' ' && DELIMITERS.indexOf(c) < 0) { // e.i c not in charlist(",:]}/\\\"[{;=#")
             sb.append(c);
             c = next();
         }
         back();
 
-        /*
-         * If it is true, false, or null, return the proper value.
-         */
         String s = sb.toString().trim();
         if (s.isEmpty()) {
             throw syntaxError("Missing value");
         }
+        return stringToValue(s);
+    }
+
+    private JSONLazyValue nextLazyValue() throws JSONException {
+        int start = this.position;
+        if (validated) {
+            skipValidated();
+        } else {
+            skipValue();
+        }
+        return new JSONLazyValue(this.source, start);
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Skipping">
+    /**
+     * Walks over the next value with the same grammar as nextValue,
+     * JSONObject and JSONArray follow, but nothing is built.
+     */
+    void skipValue() throws JSONException {
+        char c = nextClean();
+        switch (c) {
+            case '"':
+            case '\'':
+                skipString(c);
+                return;
+            case '{':
+                skipObject();
+                return;
+            case '[':
+                skipArray();
+                return;
+        }
+        if (c < ' ' || DELIMITERS.indexOf(c) >= 0) {
+            throw syntaxError("Missing value");
+        }
+        do {
+            c = next();
+        } while (c >= ' ' && DELIMITERS.indexOf(c) < 0);
+        back();
+    }
+
+    /**
+     * Moves past the object or array starting at the current position of an
+     * already validated text by bracket counting. A quote opens a string only
+     * where a value or key may start, elsewhere it belongs to an unquoted token.
+     */
+    private void skipValidated() {
+        int length = this.source.length();
+        int depth = 0;
+        char previous = 0;
+        while (this.position < length) {
+            char c = this.source.charAt(this.position++);
+            switch (c) {
+                case '{':
+                case '[':
+                    depth += 1;
+                    break;
+                case '}':
+                case ']':
+                    if (--depth == 0) {
+                        return;
+                    }
+                    break;
+                case '\'':
+                    if ("{[,:;=>".indexOf(previous) < 0) {
+                        break;
+                    }
+                    // falls through, a single quoted string
+                case '"':
+                    while (this.position < length) {
+                        char d = this.source.charAt(this.position++);
+                        if (d == '\\') {
+                            this.position += 1;
+                        } else if (d == c) {
+                            break;
+                        }
+                    }
+                    break;
+                case '/':
+                    if (this.position < length && this.source.charAt(this.position) == '*') {
+                        int end = this.source.indexOf("*/", this.position + 1);
+                        this.position = end < 0 ? length : end + 2;
+                        continue;
+                    }
+                    // falls through, a single-line comment
+                case '#':
+                    while (this.position < length && (c = this.source.charAt(this.position)) != '\n' && c != '\r') {
+                        this.position += 1;
+                    }
+                    continue;
+            }
+            if (c > ' ') {
+                previous = c;
+            }
+        }
+    }
+
+    private void skipString(char quote) throws JSONException {
+        while (true) {
+            char c = next();
+            switch (c) {
+                case 0:
+                case '\n':
+                case '\r':
+                    throw syntaxError("Unterminated string");
+                case '\\':
+                    c = next();
+                    if (c == 'u') {
+                        skip(4);
+                    } else if (c == 'x') {
+                        skip(2);
+                    }
+                    break;
+                default:
+                    if (c == quote) {
+                        return;
+                    }
+            }
+        }
+    }
+
+    private void skipObject() throws JSONException {
+        while (true) {
+            char c = nextClean();
+            switch (c) {
+                case 0:
+                    throw syntaxError("A JSONObject text must end with '}'");
+                case '}':
+                    return;
+                default:
+                    back();
+                    skipValue();
+            }
+
+            c = nextClean();
+            if (c == '=') {
+                if (next() != '>') {
+                    back();
+                }
+            } else if (c != ':') {
+                throw syntaxError("Expected a ':' after a key");
+            }
+            skipValue();
+
+            switch (nextClean()) {
+                case ';':
+                case ',':
+                    if (nextClean() == '}') {
+                        return;
+                    }
+                    back();
+                    break;
+                case '}':
+                    return;
+                default:
+                    throw syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    private void skipArray() throws JSONException {
+        if (nextClean() == ']') {
+            return;
+        }
+        back();
+        while (true) {
+            if (nextClean() == ',') {
+                back();
+            } else {
+                back();
+                skipValue();
+            }
+            switch (nextClean()) {
+                case ';':
+                case ',':
+                    if (nextClean() == ']') {
+                        return;
+                    }
+                    back();
+                    break;
+                case ']':
+                    return;
+                default:
+                    throw syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+    //</editor-fold>
+
+    /**
+     * Scans a decimal number token right in the source, the first character
+     * is already consumed. Leaves the position on the following delimiter.
+     *
+     * @return the number or null when the token is not a plain decimal number,
+     * the position is left untouched then.
+     */
+    private Number nextNumber() {
+        int start = this.position - 1;
+        int length = this.source.length();
+        int end = this.position;
+        while (end < length && JSONNumberScanner.isNumberPart(this.source.charAt(end))) {
+            end += 1;
+        }
+
+        /* The token has to stop here, only blanks may separate it from the delimiter. */
+        int next = end;
+        while (next < length && this.source.charAt(next) == ' ') {
+            next += 1;
+        }
+        if (next < length) {
+            char d = this.source.charAt(next);
+            if (d >= ' ' && DELIMITERS.indexOf(d) < 0) {
+                return null;
+            }
+        }
+
+        Number number = JSONNumberScanner.scan(this.source, start, end);
+        if (number != null) {
+            this.position = next;
+        }
+        return number;
+    }
+
+    /**
+     * Converts an unquoted token into its value. The token is expected to be
+     * trimmed and non-empty.
+     *
+     * @param s unquoted token text.
+     * @return Boolean, null, a Number or the token itself.
+     */
+    static Object stringToValue(String s) {
+        /*
+         * If it is true, false, or null, return the proper value.
+         */
         if (s.equalsIgnoreCase("true")) {
             return Boolean.TRUE;
         }
@@ -228,8 +494,12 @@ final class JSONTokener {
          * conventions are non-standard. A JSON parser is free to accept
          * non-JSON forms as long as it accepts all correct JSON forms.
          */
-
-        if ((b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+') {
+        char b = s.charAt(0);
+        if (JSONNumberScanner.isNumberStart(b)) {
+            Number number = JSONNumberScanner.scan(s, 0, s.length());
+            if (number != null) {
+                return number;
+            }
             if (b == '0') {
                 if (s.length() > 2 &&
                         (s.charAt(1) == 'x' || s.charAt(1) == 'X')) {
@@ -10,6 +10,8 @@ public class UInt16 extends Number {
 
     public static final int MIN_VALUE = 0;
     public static final int MAX_VALUE = 65535;
+    /* Values below it are shared by valueOf */
+    public static final int CACHE_SIZE = 1024;
     
     private final int value;
     
@@ -30,6 +32,23 @@ public class UInt16 extends Number {
         this(data[0], data[1]);
     }
     
+    /**
+     * @return the value, a shared instance for values below CACHE_SIZE.
+     */
+    public static UInt16 valueOf(int value) {
+        if (value >= 0 && value < Cache.VALUES.length) return Cache.VALUES[value];
+        return new UInt16(value);
+    }
+    
+    private static final class Cache {
+        static final UInt16[] VALUES = new UInt16[CACHE_SIZE];
+        static {
+            for (int i=0; i<VALUES.length; ++i) {
+                VALUES[i] = new UInt16(i);
+            }
+        }
+    }
+    
     public static final byte[] getBytes(int value, byte[] output) {
         output[0] = (byte) (value >>> 8);
         output[1] = (byte) (value);
@@ -1,7 +1,6 @@
 package local.tools.serial.primitives;
 
 import java.math.BigInteger;
-import java.util.Objects;
 
 /**
  * Type represents 64 bits (8 bytes) unsigned integer type
@@ -14,11 +13,12 @@ public class UInt64 extends Number {
     public static final BigInteger MIN_VALUE = BigInteger.ZERO;
     public static final BigInteger MAX_VALUE = new BigInteger("18446744073709551615");
     
-    private final BigInteger value;
+    // The 64 bits of the value, compared with Long.compareUnsigned
+    private final long bits;
     
     public UInt64(BigInteger value) {
         if (!withinRange(value)) throw new IllegalArgumentException(String.format("Value '%s' is out of 8-Byte Unsigned Integer range.", value.toString()));
-        this.value = value;
+        this.bits = value.longValue();
     }
 
     public UInt64(int a, int b, int c, int d, int e, int f, int g, int h) {
@@ -30,51 +30,68 @@ public class UInt64 extends Number {
     }
     
     public UInt64(byte a, byte b, byte c, byte d, byte e, byte f, byte g, byte h) {
-        value = new BigInteger(new byte[] {0 /*1st byte - positive sign*/, a, b, c, d, e, f, g, h});
+        this.bits = Int64.packBytes(a, b, c, d, e, f, g, h);
+    }
+    
+    private UInt64(long bits) {
+        this.bits = bits;
+    }
+    
+    /**
+     * @return the value of the 64 bits read as unsigned, e.g. -1 for MAX_VALUE.
+     */
+    public static UInt64 valueOf(long bits) {
+        return new UInt64(bits);
     }
     
     public static byte[] getBytes(BigInteger value, byte[] output) {
-        byte[] bytes = value.toByteArray();
-        for (int i=7, j=bytes.length-1; i>=0 && j>=0; --i, --j) {
-            output[i] = bytes[j];
+        return getBytes(value.longValue(), output);
+    }
+
+    public static byte[] getBytes(long bits, byte[] output) {
+        for (int i=7; i>=0; --i, bits >>>= 8) {
+            output[i] = (byte) bits;
         }
         return output;
     }
 
     public byte[] getBytes() {
-        byte[] bytes = value.toByteArray();
-        byte[] output = new byte[8];
-        for (int i = 7, j = bytes.length - 1; i >= 0 && j >= 0; --i, --j) {
-            output[i] = bytes[j];
-        }
-        return output;
+        return getBytes(bits, new byte[8]);
+    }
+    
+    public BigInteger toBigInteger() {
+        BigInteger value = BigInteger.valueOf(bits);
+        return bits < 0 ? value.add(MAX_VALUE).add(BigInteger.ONE) : value;
     }
 
     @Override
     public int intValue() {
-        return value.intValue();
+        return (int) bits;
     }
 
+    /**
+     * @return the 64 bits of the value, negative above Long.MAX_VALUE.
+     */
     @Override
     public long longValue() {
-        return value.longValue();
+        return bits;
     }
 
     @Override
     public float floatValue() {
-        return value.floatValue();
+        return (float) doubleValue();
     }
 
     @Override
     public double doubleValue() {
-        return value.doubleValue();
+        if (bits >= 0) return bits;
+        // halve keeping the lowest bit for rounding, then double back
+        return (double) (bits >>> 1 | (bits & 1)) * 2;
     }
 
     @Override
     public int hashCode() {
-        int hash = 7;
-        hash = 79 * hash + Objects.hashCode(this.value);
-        return hash;
+        return Long.hashCode(bits);
     }
 
     @Override
@@ -89,15 +106,12 @@ public class UInt64 extends Number {
             return false;
         }
         final UInt64 other = (UInt64) obj;
-        if (!Objects.equals(this.value, other.value)) {
-            return false;
-        }
-        return true;
+        return this.bits == other.bits;
     }
     
     @Override
     public String toString() {
-        return value.toString();
+        return Long.toUnsignedString(bits);
     }
 
     private static boolean withinRange(BigInteger value) {
@@ -21,6 +21,23 @@ public class UInt8 extends Number {
     public UInt8(byte b) {
         this.value = Byte.toUnsignedInt(b);
     }
+    
+    /**
+     * @return the shared instance of the value.
+     */
+    public static UInt8 valueOf(int value) {
+        if (value < MIN_VALUE || value > MAX_VALUE) throw new IllegalArgumentException(String.format("Value '%d' is out of 1-Byte Unsigned Integer range.", value));
+        return Cache.VALUES[value];
+    }
+    
+    private static final class Cache {
+        static final UInt8[] VALUES = new UInt8[MAX_VALUE + 1];
+        static {
+            for (int i=0; i<VALUES.length; ++i) {
+                VALUES[i] = new UInt8(i);
+            }
+        }
+    }
 
     public static byte[] getBytes(int value, byte[] output) {
         output[0] = (byte) value;
@@ -3,16 +3,43 @@ package local.tools.threads;
 import local.tools.code.Verify;
 import local.tools.logs.Logger;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
 
 /**
  * Represents methods to ease scheduling parallel processing
  */
 public final class Parallel {
 
+    // Work stealing pools of For over lists by their parallelism, shared by all calls
+    private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    // Pool of start and fork, created on first use
+    private static volatile WorkerPool workerPool;
+
+    // Executors.newVirtualThreadPerTaskExecutor of Java 21+, null on older runtimes
+    private static final java.lang.reflect.Method VIRTUAL_EXECUTOR = virtualExecutorFactory();
+
     //<editor-fold defaultstate="collapsed" desc="Internal Works">
     public static abstract class Method<Type> {
 
@@ -29,20 +56,52 @@ public final class Parallel {
 
     public static final class BreakException extends Exception {}
 
+    /**
+     * Body of forEachIndexed, a BreakException stops the loop.
+     */
+    @FunctionalInterface
+    public interface IndexedMethod<Type> {
+        void call(int index, Type item) throws Exception;
+    }
+
     private final static class StopHandle {
         private final List<? extends BaseWorkThread> workThreads;
+        private volatile boolean stopped = false;
 
         StopHandle(List<? extends BaseWorkThread> targets) {
             this.workThreads = targets;
         }
 
         public void terminateAll() {
+            stopped = true;
             for (BaseWorkThread thread : workThreads) {
                 thread.Stop();
             }
         }
     }
 
+    /**
+     * Runs the method on the item with its callbacks.
+     *
+     * @return false if the method asked to break the loop.
+     */
+    private static <Type> boolean process(Method<Type> method, Type item) {
+        try {
+            try {
+                method.call(item);
+            } catch (BreakException e) {
+                return false;
+            } catch (Exception e) {
+                method.onError(e, item);
+                return true;
+            }
+            method.onFinish(item);
+        } catch (Exception e) {
+            Logger.error(e);
+        }
+        return true;
+    }
+
     private static abstract class BaseWorkThread extends Thread {
         private final StopHandle stopHandle;
         protected volatile boolean stop = false;
@@ -64,11 +123,11 @@ public final class Parallel {
     //<editor-fold defaultstate="collapsed" desc="Behaviors">
     private static final class SharedItemsWorker<Type> extends BaseWorkThread {
         private final Iterator<Type> iterator;
-        private final Method method;
+        private final Method<Type> method;
         private final int batchSize;
         private final List<Type> batchItems;
 
-        private SharedItemsWorker(Method method, Iterator<Type> items, int batchSize, StopHandle t) {
+        private SharedItemsWorker(Method<Type> method, Iterator<Type> items, int batchSize, StopHandle t) {
             super(t);
             this.method = method;
             this.iterator = items;
@@ -90,30 +149,208 @@ public final class Parallel {
 
                 // process batch items
                 for (Type item : this.batchItems) {
-                    try {
-                        try {
-                            method.call(item);
-                        } catch (BreakException e) {
-                            stopAllThreads();
-                            break;
-                        } catch (Exception e) {
-                            method.onError(e, item);
-                            continue;
-                        }
-                        method.onFinish(item);
-                    } catch (Exception e) {
-                        Logger.error(e);
+                    if (!process(method, item)) {
+                        stopAllThreads();
+                        break;
                     }
                 }
                 batchItems.clear();
             }
         }
     }
+
+    /**
+     * Range of a random access list, split in halves down to batchSize items;
+     * idle pool threads steal the halves not yet started.
+     */
+    @SuppressWarnings("serial")
+    private static final class RangeTask<Type> extends RecursiveAction {
+        private final List<Type> items;
+        private final int from;
+        private final int to;
+        private final int batchSize;
+        private final Method<Type> method;
+        private final RangeTask<Type> root;
+        private volatile boolean stop = false;
+
+        private RangeTask(List<Type> items, int from, int to, int batchSize, Method<Type> method, RangeTask<Type> root) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+            this.method = method;
+            this.root = root == null ? this : root;
+        }
+
+        @Override
+        protected void compute() {
+            if (root.stop) return;
+            if (to - from > batchSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask<>(items, from, middle, batchSize, method, root),
+                          new RangeTask<>(items, middle, to, batchSize, method, root));
+                return;
+            }
+            for (int i = from; i < to && !root.stop; ++i) {
+                if (!process(method, items.get(i))) {
+                    root.stop = true;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Range of a random access list passed with the indexes, split as RangeTask.
+     * Exceptions other than BreakException are thrown to the caller.
+     */
+    @SuppressWarnings("serial")
+    private static final class IndexedTask<Type> extends RecursiveAction {
+        private final List<Type> items;
+        private final int from;
+        private final int to;
+        private final int batchSize;
+        private final IndexedMethod<Type> method;
+        private final IndexedTask<Type> root;
+        private volatile boolean stop = false;
+
+        private IndexedTask(List<Type> items, int from, int to, int batchSize, IndexedMethod<Type> method, IndexedTask<Type> root) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+            this.method = method;
+            this.root = root == null ? this : root;
+        }
+
+        @Override
+        protected void compute() {
+            if (root.stop) return;
+            if (to - from > batchSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new IndexedTask<>(items, from, middle, batchSize, method, root),
+                          new IndexedTask<>(items, middle, to, batchSize, method, root));
+                return;
+            }
+            for (int i = from; i < to && !root.stop; ++i) {
+                try {
+                    method.call(i, items.get(i));
+                } catch (BreakException e) {
+                    root.stop = true;
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Range of a random access list folded into its own partial result from the
+     * identity, so no thread shares an accumulator; the halves are combined in order.
+     */
+    @SuppressWarnings("serial")
+    private static final class ReduceTask<Type, Result> extends RecursiveTask<Result> {
+        private final List<Type> items;
+        private final int from;
+        private final int to;
+        private final int batchSize;
+        private final Result identity;
+        private final BiFunction<Result, ? super Type, Result> accumulator;
+        private final BinaryOperator<Result> combiner;
+
+        private ReduceTask(List<Type> items, int from, int to, int batchSize, Result identity,
+                           BiFunction<Result, ? super Type, Result> accumulator, BinaryOperator<Result> combiner) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+            this.identity = identity;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from > batchSize) {
+                int middle = (from + to) >>> 1;
+                ReduceTask<Type, Result> left = new ReduceTask<>(items, from, middle, batchSize, identity, accumulator, combiner);
+                ReduceTask<Type, Result> right = new ReduceTask<>(items, middle, to, batchSize, identity, accumulator, combiner);
+                left.fork();
+                Result rightResult = right.compute();
+                return combiner.apply(left.join(), rightResult);
+            }
+            Result partial = identity;
+            for (int i = from; i < to; ++i) {
+                partial = accumulator.apply(partial, items.get(i));
+            }
+            return partial;
+        }
+    }
+
+    private static java.lang.reflect.Method virtualExecutorFactory() {
+        try {
+            java.lang.reflect.Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) factory.invoke(null)).shutdown();
+            return factory;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            // not available, or a preview feature not enabled
+            return null;
+        }
+    }
+
+    /**
+     * @return a virtual thread per task executor, or a pool of daemon platform
+     * threads created on demand where virtual threads are not available.
+     */
+    private static ExecutorService taskExecutor() {
+        if (VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                Logger.error(e);
+            }
+        }
+        return Executors.newCachedThreadPool(run -> {
+            Thread thread = new Thread(run, "parallel-task");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static <Type> List<Type> randomAccess(Iterable<Type> items) {
+        if (items instanceof List && items instanceof RandomAccess) {
+            return (List<Type>) items;
+        }
+        List<Type> list = new ArrayList<>();
+        for (Type item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+
+    /**
+     * @return the batch size giving each of the threads about eight ranges to balance uneven items.
+     */
+    private static int defaultBatchSize(int size, int threads) {
+        return Math.max(1, size / (threads * 8));
+    }
+
+    private static ForkJoinPool pool(int parallelism) {
+        return POOLS.computeIfAbsent(parallelism, threads -> new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("parallel-" + threads + "-" + thread.getPoolIndex());
+            return thread;
+        }, null, false));
+    }
     //</editor-fold>
 
     /**
-     * Creates a maxThreads of threads which use synchronized removing items mechanism.
-     * Better for large lists. Uses no additional memory.
+     * Runs the method on the items by maxThreads threads. Random access lists are
+     * split into ranges of batchSize items on a shared work stealing pool of maxThreads
+     * threads, other Iterables are consumed by new threads taking batches from the
+     * shared iterator under a lock.
      *
      * @param <Type> - element type of given Iterable collection.
      * @param items - Iterable collection of elements.
@@ -126,6 +363,13 @@ public final class Parallel {
         Verify.checkArgument(batchSize > 1, "Given zero or negative batchSize.");
         Verify.checkNotNull(items, "Given null Iterable.");
 
+        if (items instanceof List && items instanceof RandomAccess) {
+            List<Type> list = (List<Type>) items;
+            if (Thread.currentThread().isInterrupted() || list.isEmpty()) return;
+            pool(maxThreads).invoke(new RangeTask<>(list, 0, list.size(), batchSize, method, null));
+            return;
+        }
+
         //Init all threads
         List<BaseWorkThread> workers = new ArrayList<>(maxThreads);
         Iterator<Type> shared_iterator = items.iterator();
@@ -154,51 +398,290 @@ public final class Parallel {
         }
     }
 
-    public static void start(Runnable... runs) {
-        List<Thread> threads = new ArrayList<>(runs.length);
-        //Init all threads
-        for (Runnable run : runs) {
-            threads.add(new Thread(run));
-        }
+    /**
+     * Runs the method on the array items as For on a list does.
+     */
+    public static <Type> void For(Type[] items, int maxThreads, int batchSize, final Method<Type> method) {
+        Verify.checkNotNull(items, "Given null array.");
+        For(Arrays.asList(items), maxThreads, batchSize, method);
+    }
 
-        //Start all threads
-        for (Thread thread : threads) {
-            thread.start();
+    /**
+     * @return true if ForVirtual runs on virtual threads, which needs Java 21 or later.
+     */
+    public static boolean hasVirtualThreads() {
+        return VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Runs the method on each item in its own virtual thread, at most maxConcurrency
+     * at a time. Meant for bodies blocking on I/O: thousands of them may wait at once
+     * without as many OS threads. Returns when all started items are done, a
+     * BreakException stops starting new ones.
+     * <p>
+     * Before Java 21 the items run on daemon platform threads instead, still
+     * at most maxConcurrency at a time.
+     *
+     * @param <Type> - element type of given Iterable collection.
+     * @param items - Iterable collection of elements, iterated by the calling thread.
+     * @param maxConcurrency - maximum number of items processed at once.
+     * @param method - Runnable method object with given processing functions.
+     */
+    public static <Type> void ForVirtual(Iterable<Type> items, int maxConcurrency, final Method<Type> method) {
+        Verify.checkArgument(maxConcurrency > 0, "Given zero or negative concurrency.");
+        Verify.checkNotNull(items, "Given null Iterable.");
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        StopHandle stopHandle = new StopHandle(new ArrayList<>());
+        ExecutorService executor = taskExecutor();
+        try {
+            for (Type item : items) {
+                permits.acquire();
+                if (stopHandle.stopped) {
+                    permits.release();
+                    break;
+                }
+                executor.execute(() -> {
+                    try {
+                        if (!process(method, item)) {
+                            stopHandle.terminateAll();
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            // WaitForAll items
+            permits.acquire(maxConcurrency);
+        } catch (InterruptedException e) {
+            Logger.error(e.getMessage());
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
         }
+    }
 
-        // WaitForAll threads
-        for (Thread thread : threads) {
-            while (thread.isAlive() && !thread.isInterrupted()) {
-                try {
-                    thread.join();
-                } catch (InterruptedException ignore) {}
+    //<editor-fold defaultstate="collapsed" desc="Map and Reduce">
+    /**
+     * Applies the function to the items on a thread per processor.
+     *
+     * @return the results in the order of the items.
+     */
+    public static <Type, Result> List<Result> map(Iterable<Type> items, Function<? super Type, ? extends Result> function) {
+        return map(items, Runtime.getRuntime().availableProcessors(), 0, function);
+    }
+
+    public static <Type, Result> List<Result> map(Type[] items, Function<? super Type, ? extends Result> function) {
+        Verify.checkNotNull(items, "Given null array.");
+        return map(Arrays.asList(items), function);
+    }
+
+    /**
+     * Applies the function to the items by maxThreads threads of the shared work
+     * stealing pool, in ranges of batchSize items. Each result is stored at the index
+     * of its item, so no lock is taken. An exception of the function is thrown here.
+     *
+     * @param items - Iterable collection of elements, copied first unless a random access list.
+     * @param maxThreads - maximum number of threads to be used for parallel processing.
+     * @param batchSize - items per range, 0 to choose by the number of items.
+     * @param function - function of each item.
+     * @return the results in the order of the items.
+     */
+    @SuppressWarnings("unchecked")
+    public static <Type, Result> List<Result> map(Iterable<Type> items, int maxThreads, int batchSize,
+                                                  Function<? super Type, ? extends Result> function) {
+        Verify.checkNotNull(items, "Given null Iterable.");
+        Verify.checkNotNull(function, "Given null function.");
+        List<Type> list = randomAccess(items);
+        Object[] results = new Object[list.size()];
+        forEachIndexed(list, maxThreads, batchSize, (index, item) -> results[index] = function.apply(item));
+        return (List<Result>) Arrays.asList(results);
+    }
+
+    /**
+     * Folds the items on a thread per processor, see the full overload.
+     */
+    public static <Type, Result> Result reduce(Iterable<Type> items, Result identity,
+                                               BiFunction<Result, ? super Type, Result> accumulator,
+                                               BinaryOperator<Result> combiner) {
+        return reduce(items, Runtime.getRuntime().availableProcessors(), 0, identity, accumulator, combiner);
+    }
+
+    /**
+     * Folds the items by maxThreads threads of the shared work stealing pool. Every
+     * range of batchSize items is accumulated into its own partial result starting
+     * from the identity, and the partials are merged by the combiner in item order,
+     * so no accumulator is shared between threads. The identity must not change
+     * the result it is combined with, and mutable identities must not be modified
+     * by the accumulator.
+     *
+     * @param items - Iterable collection of elements, copied first unless a random access list.
+     * @param maxThreads - maximum number of threads to be used for parallel processing.
+     * @param batchSize - items per range, 0 to choose by the number of items.
+     * @return the identity for no items.
+     */
+    public static <Type, Result> Result reduce(Iterable<Type> items, int maxThreads, int batchSize, Result identity,
+                                               BiFunction<Result, ? super Type, Result> accumulator,
+                                               BinaryOperator<Result> combiner) {
+        Verify.checkArgument(maxThreads > 0, "Given zero or negative number of threads.");
+        Verify.checkArgument(batchSize >= 0, "Given negative batchSize.");
+        Verify.checkNotNull(items, "Given null Iterable.");
+        Verify.checkNotNull(accumulator, "Given null accumulator.");
+        Verify.checkNotNull(combiner, "Given null combiner.");
+
+        List<Type> list = randomAccess(items);
+        if (list.isEmpty()) return identity;
+        int batch = batchSize > 0 ? batchSize : defaultBatchSize(list.size(), maxThreads);
+        return pool(maxThreads).invoke(new ReduceTask<>(list, 0, list.size(), batch, identity, accumulator, combiner));
+    }
+
+    /**
+     * Runs the method on the items and their indexes on a thread per processor.
+     */
+    public static <Type> void forEachIndexed(List<Type> items, IndexedMethod<Type> method) {
+        forEachIndexed(items, Runtime.getRuntime().availableProcessors(), 0, method);
+    }
+
+    public static <Type> void forEachIndexed(Type[] items, IndexedMethod<Type> method) {
+        Verify.checkNotNull(items, "Given null array.");
+        forEachIndexed(Arrays.asList(items), method);
+    }
+
+    /**
+     * Runs the method on the items and their indexes by maxThreads threads of the
+     * shared work stealing pool, in ranges of batchSize items. A BreakException stops
+     * the ranges not yet done, any other exception is thrown here, wrapped in a
+     * CompletionException when checked.
+     *
+     * @param items - List of elements, copied first unless random access.
+     * @param maxThreads - maximum number of threads to be used for parallel processing.
+     * @param batchSize - items per range, 0 to choose by the number of items.
+     * @param method - body of each item and its index.
+     */
+    public static <Type> void forEachIndexed(List<Type> items, int maxThreads, int batchSize, IndexedMethod<Type> method) {
+        Verify.checkArgument(maxThreads > 0, "Given zero or negative number of threads.");
+        Verify.checkArgument(batchSize >= 0, "Given negative batchSize.");
+        Verify.checkNotNull(items, "Given null List.");
+        Verify.checkNotNull(method, "Given null method.");
+
+        List<Type> list = randomAccess(items);
+        if (list.isEmpty()) return;
+        int batch = batchSize > 0 ? batchSize : defaultBatchSize(list.size(), maxThreads);
+        pool(maxThreads).invoke(new IndexedTask<>(list, 0, list.size(), batch, method, null));
+    }
+    //</editor-fold>
+
+    /**
+     * @return the pool start and fork run on, by default "parallel-worker" of
+     * twice as many threads as processors.
+     */
+    public static WorkerPool getWorkerPool() {
+        WorkerPool pool = workerPool;
+        if (pool == null) {
+            synchronized (Parallel.class) {
+                if (workerPool == null) {
+                    workerPool = new WorkerPool("parallel-worker", 2 * Runtime.getRuntime().availableProcessors());
+                }
+                pool = workerPool;
             }
         }
+        return pool;
     }
-    
-    public static void fork(Runnable... runs) {
-        List<Thread> threads = new ArrayList<>(runs.length);
-        //Init all threads
-        for (Runnable run : runs) {
-            threads.add(new Thread(run));
+
+    /**
+     * Replaces the pool start and fork run on, the previous one is not shut down.
+     */
+    public static void setWorkerPool(WorkerPool pool) {
+        Verify.checkNotNull(pool, "Given null pool.");
+        synchronized (Parallel.class) {
+            workerPool = pool;
         }
+    }
 
-        //Start all threads
-        for (Thread thread : threads) {
-            thread.setDaemon(true);
-            thread.start();
+    /**
+     * Runs all runs at once and waits for them, so they may wait on each other.
+     * The first run runs on the calling thread, each other one takes a free worker
+     * pool thread or else a new thread of its own, so the number of threads is
+     * bounded by the number of runs. Failures are logged.
+     */
+    public static void start(Runnable... runs) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(runs.length);
+        for (int i = 1; i < runs.length; ++i) {
+            futures.add(runNow(runs[i]));
+        }
+        if (runs.length > 0) {
+            try {
+                runs[0].run();
+            } catch (RuntimeException e) {
+                Logger.error(e);
+            }
+        }
+
+        // WaitForAll runs
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException | CancellationException e) {
+                Logger.error(e.getCause() != null ? e.getCause() : e);
+            }
         }
     }
-    
-    public static void fork(Runnable method, Callable callback) {
-        Thread thread = new Thread(() -> {
+
+    /**
+     * Submits all runs to the worker pool without waiting; when the pool queue is
+     * full its rejection policy applies. Pool threads are daemons, so the runs end
+     * with the JVM: wait on the future when they must complete first. Runs waiting
+     * on each other belong in start, queued ones may never run together.
+     *
+     * @return the future completed when all runs end, exceptionally if any failed.
+     */
+    public static CompletableFuture<Void> fork(Runnable... runs) {
+        WorkerPool pool = getWorkerPool();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[runs.length];
+        for (int i = 0; i < runs.length; ++i) {
+            futures[i] = pool.fork(runs[i]);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Submits the method and then the callback to the worker pool without waiting,
+     * as fork does: the work ends with the JVM unless the future is waited on.
+     * A failing callback is logged.
+     *
+     * @return the future of the callback result.
+     */
+    public static <Type> CompletableFuture<Type> fork(Runnable method, Callable<Type> callback) {
+        return getWorkerPool().fork(() -> {
             method.run();
             try {
-                callback.call();
+                return callback.call();
             } catch (Exception ex) {
                 Logger.error(ex.getMessage());
+                throw ex;
             }
         });
+    }
+
+    /**
+     * Runs the run on a free worker pool thread, or on a new thread when all are busy.
+     */
+    private static CompletableFuture<Void> runNow(Runnable run) {
+        CompletableFuture<Void> future = getWorkerPool().tryFork(() -> {
+            run.run();
+            return null;
+        });
+        if (future != null) return future;
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                run.run();
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, "parallel-run");
         thread.start();
+        return result;
     }
 }
@@ -0,0 +1,245 @@
+package local.tools.threads;
+
+import local.tools.code.Verify;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of named daemon threads with a bounded task queue.
+ * <p>
+ * Tasks are forked as CompletableFutures completed with their result or
+ * exception. When all threads are busy and the queue is full the Rejection
+ * policy applies. Idle threads end after KEEP_ALIVE_SECONDS and are started
+ * again on demand.
+ */
+public final class WorkerPool implements AutoCloseable {
+
+    public enum Rejection {
+        /* The future fails with RejectedExecutionException */
+        ABORT,
+        /* The forking thread runs the task itself, slowing down producers */
+        CALLER_RUNS,
+        /* The future is cancelled */
+        DISCARD
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    // Tasks forked and not yet done, queued ones included
+    private final AtomicInteger pending = new AtomicInteger();
+
+    //<editor-fold defaultstate="collapsed" desc="Metrics">
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    /**
+     * @param name - prefix of the thread names.
+     * @param threads - maximum number of threads running tasks.
+     * @param queueCapacity - maximum number of tasks waiting for a thread.
+     * @param rejection - what happens to tasks beyond the queue capacity.
+     */
+    public WorkerPool(String name, int threads, int queueCapacity, Rejection rejection) {
+        Verify.checkNotNull(name, "Given null name.");
+        Verify.checkArgument(threads > 0, "Given zero or negative number of threads.");
+        Verify.checkArgument(queueCapacity > 0, "Given zero or negative queue capacity.");
+        Verify.checkNotNull(rejection, "Given null rejection policy.");
+        this.name = name;
+        this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), this::newThread, (task, pool) -> reject((Task<?>) task, rejection));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public WorkerPool(String name, int threads) {
+        this(name, threads, DEFAULT_QUEUE_CAPACITY, Rejection.CALLER_RUNS);
+    }
+    //</editor-fold>
+
+    /**
+     * Runs the task on a pool thread.
+     *
+     * @return the future completed when the task ends.
+     */
+    public CompletableFuture<Void> fork(Runnable task) {
+        Verify.checkNotNull(task, "Given null task.");
+        return fork(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the task on a pool thread.
+     *
+     * @return the future of the task result.
+     */
+    public <T> CompletableFuture<T> fork(Callable<T> task) {
+        Verify.checkNotNull(task, "Given null task.");
+        pending.incrementAndGet();
+        return execute(new Task<>(task));
+    }
+
+    /**
+     * Runs the task on a pool thread only if one is free now, so it never waits
+     * in the queue behind other tasks.
+     *
+     * @return the future of the task result, null if all threads are busy.
+     */
+    public <T> CompletableFuture<T> tryFork(Callable<T> task) {
+        Verify.checkNotNull(task, "Given null task.");
+        int count;
+        do {
+            count = pending.get();
+            if (count >= getThreads()) return null;
+        } while (!pending.compareAndSet(count, count + 1));
+        return execute(new Task<>(task));
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Metrics Getters">
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * @return the number of threads running tasks now.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return the number of tasks waiting for a thread.
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * @return the number of tasks which ended with a result.
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return the number of tasks which ended with an exception.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return the number of tasks which found the queue full.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[threads=%d, active=%d, queued=%d, submitted=%d, completed=%d, failed=%d, rejected=%d]",
+                name, getThreads(), getActiveCount(), getQueueSize(), getSubmittedCount(),
+                getCompletedCount(), getFailedCount(), getRejectedCount());
+    }
+    //</editor-fold>
+
+    /**
+     * Stops taking tasks, the queued ones still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Internal Works">
+    private <T> CompletableFuture<T> execute(Task<T> work) {
+        submitted.increment();
+        try {
+            executor.execute(work);
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            work.future.completeExceptionally(e);
+        }
+        return work.future;
+    }
+
+    private Thread newThread(Runnable run) {
+        Thread thread = new Thread(run, name + "-" + threadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void reject(Task<?> task, Rejection rejection) {
+        rejected.increment();
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException(name + " is shut down.");
+        }
+        switch (rejection) {
+            case CALLER_RUNS:
+                task.run();
+                break;
+            case DISCARD:
+                pending.decrementAndGet();
+                task.future.cancel(false);
+                break;
+            default:
+                throw new RejectedExecutionException(name + " queue is full.");
+        }
+    }
+
+    private final class Task<T> implements Runnable {
+        private final Callable<T> callable;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Task(Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // cancelled by the caller while queued
+                if (future.isDone()) return;
+                T result = callable.call();
+                completed.increment();
+                future.complete(result);
+            } catch (Throwable e) {
+                failed.increment();
+                future.completeExceptionally(e);
+            } finally {
+                pending.decrementAndGet();
+            }
+        }
+    }
+    //</editor-fold>
+}
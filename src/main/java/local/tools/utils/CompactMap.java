@@ -0,0 +1,347 @@
+package local.tools.utils;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Insertion ordered String keyed map for small objects, kept in parallel
+ * key and value arrays instead of one entry object per mapping.
+ * <p>
+ * Integer, Long, Float and Double values are stored unboxed in a long slot
+ * and boxed again when read, so they compare equal but not identical to the
+ * values put. Keys are found by a linear scan up to LINEAR_LIMIT mappings,
+ * larger maps add an open addressing table of slot indexes.
+ * <p>
+ * Removal shifts the following mappings and costs O(size). Not thread safe.
+ */
+public final class CompactMap extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /* Maps up to this size are searched without the hash table */
+    public static final int LINEAR_LIMIT = 16;
+
+    private static final byte OBJECT = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte FLOAT = 3;
+    private static final byte DOUBLE = 4;
+
+    private static final String[] NO_KEYS = {};
+    private static final Object[] NO_VALUES = {};
+
+    private String[] keys = NO_KEYS;
+    private Object[] values = NO_VALUES;
+    // Allocated with the first primitive value
+    private byte[] kinds;
+    private long[] primitives;
+    // Slot + 1 of each key by its hash, 0 for empty, once the map outgrows LINEAR_LIMIT
+    private int[] table;
+    private int size = 0;
+    private transient int modCount = 0;
+
+    private transient Set<Entry<String, Object>> entrySet;
+
+    public CompactMap() {
+    }
+
+    public CompactMap(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("Capacity must not be negative.");
+        if (capacity > 0) {
+            keys = new String[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String)) return null;
+        int slot = indexOf((String) key);
+        return slot < 0 ? null : value(slot);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (key == null) throw new NullPointerException("Null keys are not supported.");
+        int slot = indexOf(key);
+        if (slot >= 0) {
+            Object previous = value(slot);
+            store(slot, value);
+            return previous;
+        }
+        if (size == keys.length) {
+            grow();
+        }
+        slot = size++;
+        keys[slot] = key;
+        store(slot, value);
+        if (table != null) {
+            if (size * 2 > table.length) {
+                rehash();
+            } else {
+                insert(slot);
+            }
+        } else if (size > LINEAR_LIMIT) {
+            rehash();
+        }
+        modCount += 1;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (!(key instanceof String)) return null;
+        int slot = indexOf((String) key);
+        if (slot < 0) return null;
+        Object previous = value(slot);
+        removeSlot(slot);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        table = null;
+        modCount += 1;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Slots">
+    private int indexOf(String key) {
+        if (table == null) {
+            for (int i=0; i<size; ++i) {
+                if (keys[i] == key) return i;
+            }
+            for (int i=0; i<size; ++i) {
+                if (keys[i].equals(key)) return i;
+            }
+            return -1;
+        }
+        int mask = table.length - 1;
+        for (int i = spread(key.hashCode()) & mask; table[i] != 0; i = (i + 1) & mask) {
+            String candidate = keys[table[i] - 1];
+            if (candidate == key || candidate.equals(key)) return table[i] - 1;
+        }
+        return -1;
+    }
+
+    private Object value(int slot) {
+        byte kind = kinds == null ? OBJECT : kinds[slot];
+        switch (kind) {
+            case INT: return (int) primitives[slot];
+            case LONG: return primitives[slot];
+            case FLOAT: return Float.intBitsToFloat((int) primitives[slot]);
+            case DOUBLE: return Double.longBitsToDouble(primitives[slot]);
+            default: return values[slot];
+        }
+    }
+
+    private void store(int slot, Object value) {
+        byte kind = kindOf(value);
+        if (kind == OBJECT) {
+            values[slot] = value;
+            if (kinds != null) {
+                kinds[slot] = OBJECT;
+            }
+            return;
+        }
+        if (kinds == null) {
+            kinds = new byte[keys.length];
+            primitives = new long[keys.length];
+        }
+        values[slot] = null;
+        kinds[slot] = kind;
+        switch (kind) {
+            case INT: primitives[slot] = (Integer) value; break;
+            case LONG: primitives[slot] = (Long) value; break;
+            case FLOAT: primitives[slot] = Float.floatToRawIntBits((Float) value); break;
+            default: primitives[slot] = Double.doubleToRawLongBits((Double) value);
+        }
+    }
+
+    private static byte kindOf(Object value) {
+        if (value instanceof Integer) return INT;
+        if (value instanceof Long) return LONG;
+        if (value instanceof Double) return DOUBLE;
+        if (value instanceof Float) return FLOAT;
+        return OBJECT;
+    }
+
+    private void removeSlot(int slot) {
+        int moved = size - slot - 1;
+        System.arraycopy(keys, slot + 1, keys, slot, moved);
+        System.arraycopy(values, slot + 1, values, slot, moved);
+        if (kinds != null) {
+            System.arraycopy(kinds, slot + 1, kinds, slot, moved);
+            System.arraycopy(primitives, slot + 1, primitives, slot, moved);
+        }
+        size -= 1;
+        keys[size] = null;
+        values[size] = null;
+        if (table != null) {
+            if (size > LINEAR_LIMIT) {
+                rehash();
+            } else {
+                table = null;
+            }
+        }
+        modCount += 1;
+    }
+
+    private void grow() {
+        int capacity = keys.length < 4 ? 4 : keys.length + (keys.length >> 1);
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        if (kinds != null) {
+            kinds = Arrays.copyOf(kinds, capacity);
+            primitives = Arrays.copyOf(primitives, capacity);
+        }
+    }
+
+    private void rehash() {
+        table = new int[Integer.highestOneBit(size * 4 - 1)];
+        for (int i=0; i<size; ++i) {
+            insert(i);
+        }
+    }
+
+    private void insert(int slot) {
+        int mask = table.length - 1;
+        int i = spread(keys[slot].hashCode()) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot + 1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Entries">
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            CompactMap.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int next = 0;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (next >= size) throw new NoSuchElementException();
+            last = next++;
+            return new SlotEntry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) throw new IllegalStateException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            removeSlot(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry reading and writing through its slot, valid until the map is changed structurally.
+     */
+    private final class SlotEntry implements Map.Entry<String, Object> {
+        private final int slot;
+
+        SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String getKey() {
+            return keys[slot];
+        }
+
+        @Override
+        public Object getValue() {
+            return value(slot);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = value(slot);
+            store(slot, value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Map.Entry)) return false;
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) other;
+            Object value = getValue();
+            return getKey().equals(entry.getKey()) && (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,214 @@
+package local.tools.serial.bin;
+
+import local.tools.bin.BinaryReader;
+import local.tools.bin.BinaryWriter;
+import local.tools.bin.EndianType;
+import local.tools.serial.primitives.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BinaryReaderTests {
+
+    private static byte[] writeAll(EndianType endianType) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BinaryWriter writer = new BinaryWriter(output, endianType)) {
+            for (int i = 0; i < 100; ++i) {
+                writer.writeByte((byte) -i);
+                writer.writeShort((short) (i * -1000));
+                writer.writeInt(i * 123_456_789);
+                writer.writeLong(i * -98_765_432_123L);
+                writer.writeFloat(i / 3f);
+                writer.writeDouble(i / -7d);
+                writer.writeBytes("строка " + "x".repeat(i));
+                writer.writeUInt8(new UInt8(255 - i));
+                writer.writeUInt16(new UInt16(65535 - i));
+                writer.writeUInt32(new UInt32(UInt32.MAX_VALUE - i));
+                writer.writeUInt64(new UInt64(UInt64.MAX_VALUE.subtract(BigInteger.valueOf(i))));
+                writer.writePrefixedString("prefixed " + i);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static void readAll(BinaryReader reader) throws IOException {
+        for (int i = 0; i < 100; ++i) {
+            assertEquals((byte) -i, reader.readByte());
+            assertEquals((short) (i * -1000), reader.readShort());
+            assertEquals(i * 123_456_789, reader.readInt());
+            assertEquals(i * -98_765_432_123L, reader.readLong());
+            assertEquals(i / 3f, reader.readFloat());
+            assertEquals(i / -7d, reader.readDouble());
+            assertEquals("строка " + "x".repeat(i), reader.readString());
+            assertEquals(new UInt8(255 - i), reader.readUInt8());
+            assertEquals(new UInt16(65535 - i), reader.readUInt16());
+            assertEquals(new UInt32(UInt32.MAX_VALUE - i), reader.readUInt32());
+            assertEquals(new UInt64(UInt64.MAX_VALUE.subtract(BigInteger.valueOf(i))), reader.readUInt64());
+            assertEquals("prefixed " + i, reader.readPrefixedString());
+        }
+    }
+
+    @Test
+    public void testBufferedReader() throws IOException {
+        for (EndianType endianType : EndianType.values()) {
+            byte[] data = writeAll(endianType);
+            for (int bufferSize : new int[] {8, 13, 4096}) {
+                BinaryReader reader = new BinaryReader(new ByteArrayInputStream(data), endianType, bufferSize);
+                readAll(reader);
+                assertEquals((long) data.length, reader.getPosition());
+                assertEquals(-1, reader.read());
+            }
+        }
+    }
+
+    @Test
+    public void testUnbufferedReader() throws IOException {
+        byte[] data = writeAll(EndianType.LittleEndian);
+        BinaryReader reader = new BinaryReader(new ByteArrayInputStream(data), EndianType.LittleEndian);
+        readAll(reader);
+        assertEquals((long) data.length, reader.getPosition());
+    }
+
+    @Test
+    public void testBufferedReaderEndOfStream() {
+        BinaryReader reader = new BinaryReader(new ByteArrayInputStream(new byte[] {1, 2, 3}), EndianType.LittleEndian, 16);
+        assertThrows(EOFException.class, reader::readInt);
+    }
+
+    @Test
+    public void testArrays() throws IOException {
+        int count = 10_000;
+        int[] ints = new int[count];
+        long[] longs = new long[count];
+        float[] floats = new float[count];
+        double[] doubles = new double[count];
+        for (int i = 0; i < count; ++i) {
+            ints[i] = i * -123_457;
+            longs[i] = i * 98_765_432_123L;
+            floats[i] = i / 3f;
+            doubles[i] = i / -7d;
+        }
+        for (EndianType endianType : EndianType.values()) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (BinaryWriter writer = new BinaryWriter(output, endianType)) {
+                writer.writeInts(ints, 0, count);
+                writer.writeLongs(longs, 0, count);
+                writer.writeFloats(floats, 1, count - 1);
+                writer.writeDoubles(doubles, 0, count);
+                writer.writeInt(42);
+            }
+            byte[] data = output.toByteArray();
+
+            BinaryReader reader = new BinaryReader(new ByteArrayInputStream(data), endianType);
+            // single values and arrays share the encoding
+            assertEquals(ints[0], reader.readInt());
+            int[] readInts = new int[count];
+            reader.readInts(readInts, 1, count - 1);
+            readInts[0] = ints[0];
+            long[] readLongs = new long[count];
+            reader.readLongs(readLongs, 0, count);
+            float[] readFloats = new float[count - 1];
+            reader.readFloats(readFloats, 0, count - 1);
+            double[] readDoubles = new double[count];
+            reader.readDoubles(readDoubles, 0, count);
+            assertEquals(42, reader.readInt());
+            assertEquals((long) data.length, reader.getPosition());
+
+            assertArrayEquals(ints, readInts);
+            assertArrayEquals(longs, readLongs);
+            assertArrayEquals(Arrays.copyOfRange(floats, 1, count), readFloats);
+            assertArrayEquals(doubles, readDoubles);
+            assertThrows(EOFException.class, () -> reader.readInts(readInts, 0, 1));
+        }
+    }
+
+    @Test
+    public void testVarints() throws IOException {
+        long[] longs = {0, 1, -1, 63, -64, 64, 127, 128, 300, -300, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                        1L << 35, -(1L << 49), Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BinaryWriter writer = new BinaryWriter(output)) {
+            for (long value : longs) {
+                writer.writeVarInt((int) value);
+                writer.writeSignedVarInt((int) value);
+                writer.writeVarLong(value);
+                writer.writeSignedVarLong(value);
+            }
+            writer.writeVarPrefixedString("строка");
+        }
+        byte[] data = output.toByteArray();
+        // one byte for 0, 1, -1 zigzag encoded
+        assertEquals(0, data[0]);
+        assertEquals(0, data[1]);
+
+        BinaryReader[] readers = {
+            new BinaryReader(new ByteArrayInputStream(data)),
+            new BinaryReader(new ByteArrayInputStream(data), EndianType.LittleEndian, 8),
+            new BinaryReader(ByteBuffer.wrap(data), EndianType.LittleEndian)
+        };
+        for (BinaryReader reader : readers) {
+            for (long value : longs) {
+                assertEquals((int) value, reader.readVarInt());
+                assertEquals((int) value, reader.readSignedVarInt());
+                assertEquals(value, reader.readVarLong());
+                assertEquals(value, reader.readSignedVarLong());
+            }
+            assertEquals("строка", reader.readVarPrefixedString());
+            assertEquals((long) data.length, reader.getPosition());
+            assertThrows(EOFException.class, reader::readVarLong);
+        }
+        BinaryReader truncated = new BinaryReader(new ByteArrayInputStream(new byte[] {(byte) 0x80, (byte) 0x80}), EndianType.LittleEndian, 16);
+        assertThrows(EOFException.class, truncated::readVarInt);
+    }
+
+    @Test
+    public void testUnsignedPrimitives() throws IOException {
+        for (EndianType endianType : EndianType.values()) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (BinaryWriter writer = new BinaryWriter(output, endianType)) {
+                writer.writeUInt8(200);
+                writer.writeUInt16(60000);
+                writer.writeUInt32(UInt32.MAX_VALUE);
+                writer.writeUInt64(-2L);
+                writer.writeUInt64(new UInt64(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.TEN)));
+                assertThrows(IllegalArgumentException.class, () -> writer.writeUInt16(65536));
+                assertThrows(IllegalArgumentException.class, () -> writer.writeUInt32(-1L));
+            }
+            byte[] data = output.toByteArray();
+            BinaryReader[] readers = {
+                new BinaryReader(new ByteArrayInputStream(data), endianType),
+                new BinaryReader(new ByteArrayInputStream(data), endianType, 8),
+                new BinaryReader(ByteBuffer.wrap(data), endianType)
+            };
+            for (BinaryReader reader : readers) {
+                assertEquals(200, reader.readUInt8AsInt());
+                assertEquals(60000, reader.readUInt16AsInt());
+                assertEquals(UInt32.MAX_VALUE, reader.readUInt32AsLong());
+                long bits = reader.readUInt64AsLong();
+                assertEquals("18446744073709551614", Long.toUnsignedString(bits));
+                assertEquals(true, Long.compareUnsigned(bits, Long.MAX_VALUE) > 0);
+                UInt64 value = reader.readUInt64();
+                assertEquals("9223372036854775817", value.toString());
+                assertEquals(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.TEN), value.toBigInteger());
+                assertEquals(9.223372036854775817e18, value.doubleValue());
+                assertEquals((long) data.length, reader.getPosition());
+            }
+        }
+        assertEquals(new UInt64(UInt64.MAX_VALUE), UInt64.valueOf(-1L));
+        assertEquals(UInt64.MAX_VALUE, UInt64.valueOf(-1L).toBigInteger());
+        assertEquals(true, UInt8.valueOf(7) == UInt8.valueOf(7));
+        assertEquals(true, UInt16.valueOf(1000) == UInt16.valueOf(1000));
+        assertEquals(new UInt16(60000), UInt16.valueOf(60000));
+        assertThrows(IllegalArgumentException.class, () -> UInt8.valueOf(256));
+    }
+}
@@ -1,10 +1,13 @@
 package local.tools.serial.bjson;
 
+import local.tools.bin.BinaryReader;
+import local.tools.bin.BinaryWriter;
 import local.tools.io.File;
 import local.tools.io.FilePath;
 import local.tools.logs.Logger;
 import local.tools.serial.json.discovery.JSONArray;
 import local.tools.serial.json.discovery.JSONObject;
+import local.tools.serial.json.discovery.JSONStreamReader;
 import local.tools.serial.primitives.*;
 import local.tools.time.StopWatch;
 import org.junit.jupiter.api.Test;
@@ -15,7 +18,19 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class BJSONTests {
@@ -160,6 +175,10 @@ public class BJSONTests {
         assertEquals(original.getUInt64("minUInt64"), duplicate.getUInt64("minUInt64"));
         assertEquals(original.getUInt64("minUInt64"), duplicate.getUInt64("minUInt64"));
 
+        assertEquals(255, duplicate.getUInt8AsInt("maxUInt8"));
+        assertEquals(65535, duplicate.getUInt16AsInt("maxUInt16"));
+        assertEquals(UInt32.MAX_VALUE, duplicate.getUInt32AsLong("maxUInt32"));
+        assertEquals(-1L, duplicate.getUInt64AsLong("maxUInt64"));
         Logger.print(" OK");
     }
 
@@ -411,6 +430,1054 @@ public class BJSONTests {
         Logger.print(" OK");
     }
 
+    @Test
+    public void testPrefixedStrings() throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName());
+        String longString = "абв123".repeat(500);
+        BJSONObject original = new BJSONObject();
+        BJSONObject subobject = new BJSONObject();
+        original.put("string1", "=123ТЕС=");
+        original.put("empty", "");
+        original.put("long", longString);
+        original.put("ключ", subobject);
+        subobject.put("string3", "1234567890абвгдАБВГД");
+        subobject.put("maxInt", Integer.MAX_VALUE);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BJSONWriter writer = new BJSONWriter(output);
+        writer.setPrefixedStrings(true);
+        writer.writeBJSONNode(original);
+        writer.close();
+        assertEquals((byte) 0xBF, output.toByteArray()[0]);
+
+        BJSONReader reader = new BJSONReader(new ByteArrayInputStream(output.toByteArray()));
+        BJSONObject duplicate = (BJSONObject) reader.readBJSONNode();
+        reader.close();
+
+        assertEquals("=123ТЕС=", duplicate.getString("string1"));
+        assertEquals("", duplicate.getString("empty"));
+        assertEquals(longString, duplicate.getString("long"));
+        assertEquals("1234567890абвгдАБВГД", duplicate.getJSONObject("ключ").getString("string3"));
+        assertEquals(subobject.getInt("maxInt"), duplicate.getJSONObject("ключ").getInt("maxInt"));
+        Logger.print(" OK");
+    }
+
+    @Test
+    public void testReadStringBlocks() throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName());
+        String[] strings = {"", "abc", "абв".repeat(200), "x".repeat(256), "y".repeat(255), "tail"};
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BinaryWriter writer = new BinaryWriter(output)) {
+            for (String str : strings) {
+                writer.writeBytes(str);
+            }
+            writer.writeInt(42);
+        }
+        byte[] data = output.toByteArray();
+
+        InputStream unmarkable = new InputStream() {
+            private final InputStream in = new ByteArrayInputStream(data);
+
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+        };
+        for (InputStream input : new InputStream[] {new ByteArrayInputStream(data), unmarkable}) {
+            BinaryReader reader = new BinaryReader(input);
+            for (String str : strings) {
+                assertEquals(str, reader.readString());
+            }
+            assertEquals((long) data.length - Integer.BYTES, reader.getPosition());
+            assertEquals(42, reader.readInt());
+        }
+        Logger.print(" OK");
+    }
+
+    @Test
+    public void testMappedReader() throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName());
+        String filename = "mapped_test.bjson";
+        int count = 200;
+        try (BJSONWriter writer = new BJSONWriter(filename)) {
+            writer.setPrefixedStrings(true);
+            for (int i = 0; i < count; ++i) {
+                BJSONObject node = new BJSONObject();
+                node.put("index", i);
+                node.put("name", "узел " + i);
+                node.put("value", i * 0.5);
+                writer.writeBJSONNode(node);
+            }
+        }
+
+        // small overlapping segments, so nodes cross segment ends
+        for (MappedBJSONReader reader : new MappedBJSONReader[] {
+                new MappedBJSONReader(filename),
+                new MappedBJSONReader(filename, true, 256, 128)}) {
+            try (reader) {
+                long[] offsets = new long[count];
+                for (int i = 0; i < count; ++i) {
+                    offsets[i] = reader.getPosition();
+                    BJSONObject node = (BJSONObject) reader.readBJSONNode();
+                    assertEquals(i, (int) node.getInt("index"));
+                    assertEquals("узел " + i, node.getString("name"));
+                }
+                assertEquals(null, reader.readBJSONNode());
+
+                IntStream.range(0, count).parallel().forEach(i -> {
+                    try {
+                        BJSONObject node = (BJSONObject) reader.readBJSONNode(offsets[i]);
+                        assertEquals(i, (int) node.getInt("index"));
+                        assertEquals(i * 0.5, (double) node.getDouble("value"));
+                    } catch (IOException e) {
+                        throw new BJSONException(e);
+                    }
+                });
+            }
+        }
+        File.delete(filename);
+        Logger.print(" OK");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testIndexedContainers(boolean indexed) throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName() + "(" + indexed + ")");
+        String filename = "indexed_test.bjson";
+        BJSONObject original = new BJSONObject();
+        BJSONArray items = new BJSONArray();
+        for (int i = 0; i < 100; ++i) {
+            BJSONObject item = new BJSONObject();
+            item.put("id", i);
+            item.put("name", "элемент " + i);
+            items.add(item);
+        }
+        for (int i = 0; i < 50; ++i) {
+            original.put("key" + i, i * 10L);
+        }
+        // same String.hashCode
+        original.put("Aa", "first");
+        original.put("BB", "second");
+        original.put("items", items);
+        BJSONObject small = new BJSONObject();
+        small.put("flag", (byte) 1);
+        original.put("small", small);
+
+        try (BJSONWriter writer = new BJSONWriter(filename)) {
+            writer.setPrefixedStrings(true);
+            writer.setIndexedContainers(indexed);
+            writer.writeBJSONNode(original);
+            writer.writeBJSONNode(small);
+        }
+
+        try (BJSONReader reader = new BJSONReader(filename)) {
+            BJSONObject duplicate = (BJSONObject) reader.readBJSONNode();
+            assertEquals(original.getSize(), duplicate.getSize());
+            assertEquals(49 * 10L, (long) duplicate.getLong("key49"));
+            assertEquals("second", duplicate.getString("BB"));
+            BJSONArray duplicateItems = duplicate.getBJSONArray("items");
+            assertEquals(100, duplicateItems.getSize());
+            assertEquals("элемент 99", ((BJSONObject) duplicateItems.get(99)).getString("name"));
+            assertEquals((byte) 1, (byte) duplicate.getJSONObject("small").getByte("flag"));
+            assertEquals((byte) 1, (byte) ((BJSONObject) reader.readBJSONNode()).getByte("flag"));
+        }
+
+        try (MappedBJSONReader reader = new MappedBJSONReader(filename)) {
+            long root = reader.getStart();
+            assertEquals(7 * 10L, reader.readBJSONNode(reader.lookup(root, "key7")));
+            assertEquals("first", reader.readBJSONNode(reader.lookup(root, "Aa")));
+            assertEquals("second", reader.readBJSONNode(reader.lookup(root, "BB")));
+            assertEquals(-1L, reader.lookup(root, "missing"));
+            assertEquals(-1L, reader.lookup(root, "items", 100));
+            assertEquals(-1L, reader.lookup(root, "missing", 0, "id"));
+            for (int i = 0; i < 100; i += 7) {
+                assertEquals(i, reader.readBJSONNode(reader.lookup(root, "items", i, "id")));
+            }
+            assertEquals((byte) 1, reader.readBJSONNode(reader.lookup(root, "small", "flag")));
+        }
+        File.delete(filename);
+        Logger.print(" OK");
+    }
+
+    @Test
+    public void testPackedArrays() throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName());
+        int count = 5000;
+        int[] ints = new int[count];
+        double[] doubles = new double[count];
+        BJSONArray longs = new BJSONArray();
+        for (int i = 0; i < count; ++i) {
+            ints[i] = i * -12345;
+            doubles[i] = i / 7d;
+            longs.add(i * 1_000_000_000_000L);
+        }
+        BJSONObject original = new BJSONObject();
+        original.put("ints", BJSONPackedArray.of(ints));
+        original.put("doubles", BJSONPackedArray.of(doubles));
+        original.put("floats", BJSONPackedArray.of(1.5f, -2.5f));
+        original.put("longs", longs);
+        original.put("empty", new BJSONArray());
+        BJSONArray mixed = new BJSONArray();
+        mixed.add(1);
+        mixed.add(2L);
+        original.put("mixed", mixed);
+
+        for (boolean littleEndian : new boolean[] {true, false}) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            BJSONWriter writer = new BJSONWriter(output, littleEndian);
+            writer.setPackedArrays(true);
+            writer.writeBJSONNode(original);
+            writer.close();
+            // tag and size per array instead of a tag per value
+            assertEquals(true, output.size() < count * (Integer.BYTES + Double.BYTES + Long.BYTES) + 200);
+
+            BJSONReader reader = new BJSONReader(new ByteArrayInputStream(output.toByteArray()), littleEndian);
+            BJSONObject duplicate = (BJSONObject) reader.readBJSONNode();
+            reader.close();
+
+            BJSONPackedArray duplicateInts = (BJSONPackedArray) duplicate.getBJSONArray("ints");
+            assertEquals(BJSONType.Int32Array, duplicateInts.getType());
+            assertEquals(count, duplicateInts.getSize());
+            assertEquals(ints[4321], duplicateInts.getIntValue(4321));
+            assertEquals(ints[17], (int) duplicateInts.getInt(17));
+            assertEquals(doubles[count - 1], ((BJSONPackedArray) duplicate.getBJSONArray("doubles")).toDoubleArray()[count - 1]);
+            assertEquals(-2.5f, (float) duplicate.getBJSONArray("floats").getFloat(1));
+            BJSONPackedArray duplicateLongs = (BJSONPackedArray) duplicate.getBJSONArray("longs");
+            assertEquals(BJSONType.Int64Array, duplicateLongs.getType());
+            assertEquals(new ArrayList<>(longs), new ArrayList<>(duplicateLongs));
+            assertEquals(0, duplicate.getBJSONArray("empty").getSize());
+            assertEquals(false, duplicate.getBJSONArray("mixed") instanceof BJSONPackedArray);
+        }
+
+        BJSONPackedArray packed = BJSONPackedArray.of(1, 2, 3);
+        packed.add(4);
+        packed.add(0, 0);
+        packed.remove(2);
+        assertArrayEquals(new int[] {0, 1, 3, 4}, packed.toIntArray());
+        try {
+            packed.add("five");
+            throw new AssertionError("String added to Int32Array");
+        } catch (BJSONException e) {
+            assertEquals(4, packed.getSize());
+        }
+        Logger.print(" OK");
+    }
+
+    @Test
+    public void testStreamWriterAndReader() throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName());
+        String filename = "stream_test.bjson";
+        int count = 1000;
+        try (BJSONStreamWriter writer = new BJSONStreamWriter(filename)) {
+            writer.startArray();
+            for (int i = 0; i < count; ++i) {
+                if (i % 2 == 0) {
+                    writer.startObject(3);
+                } else {
+                    writer.startObject();
+                }
+                writer.key("id").value(i);
+                writer.key("name").value("запись " + i);
+                writer.key("tags").startArray().value("a").value(null).startArray(1).value(i * 2L).end().end();
+                writer.end();
+            }
+            writer.end();
+            writer.value("second node");
+        }
+
+        try (BJSONReader reader = new BJSONReader(filename)) {
+            BJSONArray records = (BJSONArray) reader.readBJSONNode();
+            assertEquals(count, records.getSize());
+            BJSONObject record = records.getJSONObject(7);
+            assertEquals(7, (int) record.getInt("id"));
+            assertEquals("запись 7", record.getString("name"));
+            assertEquals(14L, (long) record.getBJSONArray("tags").getBJSONArray(2).getLong(0));
+            assertEquals("second node", reader.readBJSONNode());
+        }
+
+        try (BJSONStreamReader reader = new BJSONStreamReader(filename)) {
+            assertEquals(BJSONEvent.START_ARRAY, reader.next());
+            assertEquals(BJSONType.UnsizedArray, reader.getType());
+            int records = 0;
+            while (reader.next() == BJSONEvent.START_OBJECT) {
+                if (records % 3 == 0) {
+                    BJSONObject record = (BJSONObject) reader.readNode();
+                    assertEquals(records, (int) record.getInt("id"));
+                } else {
+                    assertEquals(records % 2 == 0 ? 3 : -1, reader.getSize());
+                    assertEquals(BJSONEvent.KEY, reader.next());
+                    assertEquals("id", reader.getString());
+                    assertEquals(BJSONEvent.VALUE, reader.next());
+                    assertEquals(records, reader.getValue());
+                    assertEquals(BJSONEvent.KEY, reader.next());
+                    assertEquals(BJSONEvent.VALUE, reader.next());
+                    assertEquals("запись " + records, reader.getString());
+                    assertEquals(BJSONEvent.KEY, reader.next());
+                    assertEquals(BJSONEvent.START_ARRAY, reader.next());
+                    reader.skipChildren();
+                    assertEquals(BJSONEvent.END_OBJECT, reader.next());
+                }
+                assertEquals(1, reader.getDepth());
+                records += 1;
+            }
+            assertEquals(count, records);
+            assertEquals(BJSONEvent.END_ARRAY, reader.getEvent());
+            assertEquals(BJSONEvent.VALUE, reader.next());
+            assertEquals("second node", reader.getValue());
+            assertEquals(null, reader.next());
+        }
+
+        try (MappedBJSONReader reader = new MappedBJSONReader(filename)) {
+            long tags = reader.lookup(reader.getStart(), count - 1, "tags");
+            assertEquals(BJSONNullNode.INSTANCE, reader.readBJSONNode(reader.lookup(tags, 1)));
+            assertEquals((count - 1) * 2L, reader.readBJSONNode(reader.lookup(tags, 2, 0)));
+            assertEquals(-1L, reader.lookup(tags, 3));
+        }
+        File.delete(filename);
+
+        BJSONStreamWriter writer = new BJSONStreamWriter(new ByteArrayOutputStream());
+        writer.startObject(1).key("only").value(1);
+        try {
+            writer.key("extra");
+            throw new AssertionError("Key written past the object size");
+        } catch (BJSONException e) {
+            writer.end();
+        }
+        Logger.print(" OK");
+    }
+
+    @Test
+    public void testStreamReaderOverIndexedDocument() throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName());
+        BJSONObject original = new BJSONObject();
+        BJSONArray items = new BJSONArray();
+        for (int i = 0; i < 20; ++i) {
+            BJSONObject item = new BJSONObject();
+            for (int j = 0; j < 10; ++j) {
+                item.put("k" + j, i * j);
+            }
+            items.add(item);
+        }
+        original.put("items", items);
+        original.put("vector", BJSONPackedArray.of(1.0, 2.0));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BJSONWriter writer = new BJSONWriter(output);
+        writer.setIndexedContainers(true);
+        writer.setPrefixedStrings(true);
+        writer.writeBJSONNode(original);
+        writer.close();
+
+        BJSONStreamReader reader = new BJSONStreamReader(new ByteArrayInputStream(output.toByteArray()));
+        int keys = 0;
+        int values = 0;
+        for (BJSONEvent event = reader.next(); event != null; event = reader.next()) {
+            if (event == BJSONEvent.KEY) keys += 1;
+            if (event == BJSONEvent.VALUE) values += 1;
+            if (event == BJSONEvent.VALUE && reader.getType() == BJSONType.Float64Array) {
+                assertEquals(2, ((BJSONArray) reader.getValue()).getSize());
+            }
+        }
+        assertEquals(2 + 20 * 10, keys);
+        assertEquals(1 + 20 * 10, values);
+        reader.close();
+        Logger.print(" OK");
+    }
+
+    private static class Point {
+        final int x;
+        final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static class NamedPoint extends Point {
+        NamedPoint(int x, int y) {
+            super(x, y);
+        }
+    }
+
+    @Test
+    public void testTypeRegistry() throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName());
+        assertEquals(BJSONType.Int32, BJSONTypes.typeOf(1));
+        assertEquals(BJSONType.NULL, BJSONTypes.typeOf(null));
+        assertEquals(BJSONType.Float64Array, BJSONTypes.typeOf(BJSONPackedArray.of(1.0)));
+        assertEquals(false, BJSONTypes.isSupported(Point.class));
+
+        BJSONTypes.register(Point.class, point -> {
+            BJSONObject object = new BJSONObject();
+            object.put("x", point.x);
+            object.put("y", point.y);
+            return object;
+        });
+        assertEquals(true, BJSONTypes.isSupported(NamedPoint.class));
+
+        BJSONObject original = new BJSONObject();
+        original.put("point", (Object) new Point(1, 2));
+        original.put("flag", (Object) true);
+        BJSONArray points = new BJSONArray();
+        points.put(new NamedPoint(3, 4));
+        // added as is, converted when written
+        points.add(new Point(5, 6));
+        original.put("points", points);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BJSONWriter writer = new BJSONWriter(output);
+        writer.writeBJSONNode(original);
+        writer.close();
+
+        BJSONReader reader = new BJSONReader(new ByteArrayInputStream(output.toByteArray()));
+        BJSONObject duplicate = (BJSONObject) reader.readBJSONNode();
+        reader.close();
+        assertEquals(2, (int) duplicate.getJSONObject("point").getInt("y"));
+        assertEquals(true, (boolean) duplicate.getBoolean("flag"));
+        assertEquals(3, (int) duplicate.getBJSONArray("points").getJSONObject(0).getInt("x"));
+        assertEquals(6, (int) duplicate.getBJSONArray("points").getJSONObject(1).getInt("y"));
+
+        try {
+            original.put("thread", (Object) Thread.currentThread());
+            throw new AssertionError("Unsupported type accepted");
+        } catch (BJSONException e) {
+            assertEquals(false, original.containsKey("thread"));
+        }
+        Logger.print(" OK");
+    }
+
+    private static final BJSONCodec<Point> POINT_CODEC = new BJSONCodec<Point>() {
+        @Override
+        public int getTag() {
+            return 0x70;
+        }
+
+        @Override
+        public Class<Point> getType() {
+            return Point.class;
+        }
+
+        @Override
+        public void write(Point value, BinaryWriter writer) throws IOException {
+            writer.writeInt(value.x);
+            writer.writeInt(value.y);
+        }
+
+        @Override
+        public Point read(BinaryReader reader, int length) throws IOException {
+            return new Point(reader.readInt(), reader.readInt());
+        }
+    };
+
+    @Test
+    public void testExtensionCodecs() throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName());
+        UUID uuid = UUID.randomUUID();
+        Instant instant = Instant.ofEpochSecond(1_700_000_000L, 123_456_789);
+        BigDecimal decimal = new BigDecimal("-12345678901234567890.0123456789");
+
+        // written with the codec of the writer only, which BJSONArray.put does not know
+        String filename = "extension_test.bjson";
+        BJSONWriter target = new BJSONWriter(filename);
+        target.registerCodec(POINT_CODEC);
+        try (BJSONStreamWriter writer = new BJSONStreamWriter(target)) {
+            writer.startObject(4).key("uuid").value(uuid).key("instant").value(instant).key("values");
+            writer.startArray(3).value(decimal).value(BigDecimal.ZERO).value(new Point(7, -8)).end();
+            writer.key("last").value("end").end();
+        }
+
+        try (BJSONReader reader = new BJSONReader(filename)) {
+            reader.registerCodec(POINT_CODEC);
+            BJSONObject duplicate = (BJSONObject) reader.readBJSONNode();
+            assertEquals(uuid, duplicate.get("uuid"));
+            assertEquals(instant, duplicate.get("instant"));
+            assertEquals(decimal, duplicate.getBJSONArray("values").get(0));
+            assertEquals(BigDecimal.ZERO, duplicate.getBJSONArray("values").get(1));
+            Point point = (Point) duplicate.getBJSONArray("values").get(2);
+            assertEquals(-8, point.y);
+        }
+
+        // without the codec the value can not be read, but is skipped
+        try (MappedBJSONReader reader = new MappedBJSONReader(filename)) {
+            long root = reader.getStart();
+            assertEquals("end", reader.readBJSONNode(reader.lookup(root, "last")));
+            assertEquals(uuid, reader.readBJSONNode(reader.lookup(root, "uuid")));
+            long point = reader.lookup(root, "values", 2);
+            try {
+                reader.readBJSONNode(point);
+                throw new AssertionError("Extension read without codec");
+            } catch (BJSONException e) {
+                reader.registerCodec(POINT_CODEC);
+                assertEquals(7, ((Point) reader.readBJSONNode(point)).x);
+            }
+        }
+        File.delete(filename);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BJSONWriter writer = new BJSONWriter(output);
+        writer.writeBJSONNode(new BJSONArray().put(uuid));
+        writer.close();
+        // type, size, tag, payload length, 16 bytes
+        assertEquals(1 + 4 + 1 + 4 + 16, output.size());
+
+        // a payload without the unscaled bytes is corrupt
+        try {
+            BJSONCodecs.BIG_DECIMAL.read(new BinaryReader(new ByteArrayInputStream(new byte[Integer.BYTES])), 2);
+            throw new AssertionError("Read a BigDecimal of a too short payload");
+        } catch (BJSONException e) {
+        }
+
+        try {
+            BJSONTypes.register(new BJSONCodec<Point>() {
+                @Override
+                public int getTag() {
+                    return BJSONCodecs.UUID_TAG;
+                }
+
+                @Override
+                public Class<Point> getType() {
+                    return Point.class;
+                }
+
+                @Override
+                public void write(Point value, BinaryWriter writer) {
+                }
+
+                @Override
+                public Point read(BinaryReader reader, int length) {
+                    return null;
+                }
+            });
+            throw new AssertionError("Taken extension tag registered");
+        } catch (BJSONException e) {
+            assertEquals(BJSONCodecs.UUID, BJSONTypes.getCodec(BJSONCodecs.UUID_TAG));
+        }
+        Logger.print(" OK");
+    }
+
+    @Test
+    public void testBinary() throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName());
+        byte[] bytes = new byte[100_000];
+        new Random(1).nextBytes(bytes);
+        ByteBuffer direct = ByteBuffer.allocateDirect(300);
+        direct.put(bytes, 0, 300).flip().position(100);
+
+        BJSONObject original = new BJSONObject();
+        original.put("bytes", bytes);
+        original.put("direct", direct);
+        original.put("empty", new byte[0]);
+        original.put("list", new BJSONArray().put(new byte[] {1, 2, 3}));
+        assertEquals(100, direct.position());
+
+        String filename = "binary_test.bjson";
+        try (BJSONWriter writer = new BJSONWriter(filename)) {
+            writer.writeBJSONNode(original);
+        }
+
+        try (BJSONReader reader = new BJSONReader(filename)) {
+            BJSONObject duplicate = (BJSONObject) reader.readBJSONNode();
+            assertArrayEquals(bytes, duplicate.getBytes("bytes"));
+            assertEquals(ByteBuffer.wrap(bytes, 100, 200), duplicate.getBinary("direct"));
+            assertEquals(0, duplicate.getBytes("empty").length);
+            assertEquals((byte) 3, duplicate.getBJSONArray("list").getBytes(0)[2]);
+        }
+
+        // views of the mapping, not copies
+        try (MappedBJSONReader reader = new MappedBJSONReader(filename)) {
+            BJSONObject duplicate = (BJSONObject) reader.readBJSONNode();
+            ByteBuffer binary = duplicate.getBinary("bytes");
+            assertEquals(true, binary.isDirect());
+            assertEquals(true, binary.isReadOnly());
+            assertEquals(ByteBuffer.wrap(bytes), binary);
+        }
+
+        byte[] file = Files.readAllBytes(Paths.get(filename));
+        BJSONReader reader = new BJSONReader(ByteBuffer.wrap(file), true);
+        ByteBuffer binary = ((BJSONObject) reader.readBJSONNode()).getBinary("bytes");
+        assertEquals(true, binary.isReadOnly());
+        assertEquals(bytes[99_999], binary.get(99_999));
+        File.delete(filename);
+        Logger.print(" OK");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testKeyDictionary(boolean indexed) throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName() + "(" + indexed + ")");
+        BJSONArray records = new BJSONArray();
+        for (int i = 0; i < 500; ++i) {
+            BJSONObject record = new BJSONObject();
+            record.put("identifier", i);
+            record.put("description", "запись " + i);
+            record.put("nested", new BJSONObject().put("identifier", i * 2L));
+            for (int k = 0; k < 10; ++k) {
+                record.put("attribute" + k, k);
+            }
+            records.add(record);
+        }
+
+        String filename = "dictionary_test.bjson";
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        try (BJSONWriter writer = new BJSONWriter(plain, true)) {
+            writer.setIndexedContainers(indexed);
+            writer.writeBJSONNode(records);
+        }
+        try (BJSONWriter writer = new BJSONWriter(filename)) {
+            writer.setIndexedContainers(indexed);
+            writer.setKeyDictionary(true);
+            writer.writeBJSONNode(records);
+            writer.writeBJSONNode(new BJSONObject().put("identifier", -1));
+        }
+        // every repeated key shrinks to a one byte id
+        assertEquals(true, Files.size(Paths.get(filename)) + 499 * 13 * 5 < plain.size());
+
+        try (BJSONReader reader = new BJSONReader(filename)) {
+            BJSONArray duplicate = (BJSONArray) reader.readBJSONNode();
+            assertEquals(500, duplicate.getSize());
+            BJSONObject first = duplicate.getJSONObject(0);
+            BJSONObject last = duplicate.getJSONObject(499);
+            assertEquals("запись 499", last.getString("description"));
+            assertEquals(998L, (long) last.getJSONObject("nested").getLong("identifier"));
+            assertEquals(9, (int) last.getInt("attribute9"));
+            // one String instance per distinct key
+            String firstKey = first.keySet().stream().filter("description"::equals).findFirst().get();
+            String lastKey = last.keySet().stream().filter("description"::equals).findFirst().get();
+            assertEquals(true, firstKey == lastKey);
+            assertEquals(-1, (int) ((BJSONObject) reader.readBJSONNode()).getInt("identifier"));
+        }
+
+        try (BJSONStreamReader reader = new BJSONStreamReader(filename)) {
+            reader.next();
+            int keys = 0;
+            while (reader.next() == BJSONEvent.START_OBJECT) {
+                while (reader.next() == BJSONEvent.KEY) {
+                    keys += 1;
+                    reader.next();
+                    reader.skipChildren();
+                }
+            }
+            assertEquals(500 * 13, keys);
+            assertEquals(BJSONEvent.START_OBJECT, reader.next());
+            assertEquals(BJSONEvent.KEY, reader.next());
+            assertEquals("identifier", reader.getString());
+        }
+
+        // random access starts past the key definitions
+        try (MappedBJSONReader reader = new MappedBJSONReader(filename)) {
+            long root = reader.getStart();
+            assertEquals(499 * 2L, reader.readBJSONNode(reader.lookup(root, 499, "nested", "identifier")));
+            BJSONObject record = (BJSONObject) reader.readBJSONNode(reader.lookup(root, 250));
+            assertEquals("запись 250", record.getString("description"));
+            reader.seek(reader.lookup(root, 499));
+            assertEquals("запись 499", ((BJSONObject) reader.readBJSONNode()).getString("description"));
+        }
+        File.delete(filename);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BJSONWriter writer = new BJSONWriter(stream, true);
+        writer.setKeyDictionary(true);
+        try (BJSONStreamWriter streamWriter = new BJSONStreamWriter(writer)) {
+            streamWriter.startArray();
+            for (int i = 0; i < 3; ++i) {
+                streamWriter.startObject().key("value").value(i).end();
+            }
+            streamWriter.end();
+        }
+        BJSONReader reader = new BJSONReader(new ByteArrayInputStream(stream.toByteArray()), true);
+        BJSONArray streamed = (BJSONArray) reader.readBJSONNode();
+        assertEquals(2, (int) streamed.getJSONObject(2).getInt("value"));
+        Logger.print(" OK");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"big_obj.json", "big_array.json"})
+    public void testCompactEncoding(String filename) throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName() + "(" + filename + ")");
+        BJSONNode original = filename.contains("obj") ? 
+                new BJSONObject(new JSONObject(File.readAllText(filename))) :
+                new BJSONArray(new JSONArray(File.readAllText(filename)));
+        BJSONObject numbers = new BJSONObject();
+        numbers.put("short", (short) -300);
+        numbers.put("int", Integer.MIN_VALUE);
+        numbers.put("long", Long.MAX_VALUE);
+        numbers.put("uint16", new UInt16(UInt16.MAX_VALUE));
+        numbers.put("uint32", new UInt32(UInt32.MAX_VALUE));
+        numbers.put("uint64", new UInt64(UInt64.MAX_VALUE));
+        numbers.put("small", 5);
+
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        try (BJSONWriter writer = new BJSONWriter(plain, true)) {
+            writer.setPrefixedStrings(true);
+            writer.writeBJSONNode(original);
+            writer.writeBJSONNode(numbers);
+        }
+        String compactFile = "compact_test.bjson";
+        try (BJSONWriter writer = new BJSONWriter(compactFile)) {
+            writer.setPrefixedStrings(true);
+            writer.setCompact(true);
+            writer.writeBJSONNode(original);
+            writer.writeBJSONNode(numbers);
+        }
+        long compactSize = Files.size(Paths.get(compactFile));
+        Logger.printf(" %d -> %d bytes", plain.size(), compactSize);
+        assertEquals(true, compactSize < plain.size());
+
+        // decoded compact nodes encode back to the plain bytes
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        try (BJSONReader reader = new BJSONReader(compactFile);
+             BJSONWriter writer = new BJSONWriter(again, true)) {
+            writer.setPrefixedStrings(true);
+            writer.writeBJSONNode((BJSONNode) reader.readBJSONNode());
+            BJSONObject duplicate = (BJSONObject) reader.readBJSONNode();
+            assertEquals((short) -300, (short) duplicate.getShort("short"));
+            assertEquals(new UInt64(UInt64.MAX_VALUE), duplicate.get("uint64"));
+            writer.writeBJSONNode(duplicate);
+        }
+        assertArrayEquals(plain.toByteArray(), again.toByteArray());
+
+        try (MappedBJSONReader reader = new MappedBJSONReader(compactFile)) {
+            reader.readBJSONNode();
+            long offset = reader.getPosition();
+            assertEquals(Integer.MIN_VALUE, reader.readBJSONNode(reader.lookup(offset, "int")));
+            assertEquals(new UInt32(UInt32.MAX_VALUE), reader.readBJSONNode(reader.lookup(offset, "uint32")));
+        }
+        File.delete(compactFile);
+        Logger.print(" OK");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1})
+    public void testBlockContainer(int codecId) throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName() + "(" + codecId + ")");
+        BJSONBlockCodec codec = BJSONBlockCodecs.get(codecId);
+        BJSONObject document = new BJSONObject(new JSONObject(File.readAllText("big_obj.json")));
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        try (BJSONWriter writer = new BJSONWriter(plain, true)) {
+            writer.setPrefixedStrings(true);
+            writer.writeBJSONNode(document);
+        }
+
+        String filename = "block_test.bjson";
+        int records = 2000;
+        int[] recordBlocks = new int[records];
+        try (BlockBJSONWriter writer = new BlockBJSONWriter(filename, true, codec, 4096)) {
+            writer.setPrefixedStrings(true);
+            writer.writeBJSONNode(document);
+            for (int i = 0; i < records; ++i) {
+                recordBlocks[i] = writer.getBlockCount();
+                writer.writeBJSONNode(new BJSONObject().put("id", i).put("text", "запись " + i));
+            }
+        }
+        if (codec == BJSONBlockCodecs.DEFLATE) {
+            assertEquals(true, Files.size(Paths.get(filename)) < plain.size() / 2);
+        }
+
+        try (BlockBJSONReader reader = new BlockBJSONReader(filename)) {
+            assertEquals(true, reader.getBlockCount() > 100);
+            // a document cut at every block end reads as written
+            ByteArrayOutputStream again = new ByteArrayOutputStream();
+            try (BJSONWriter writer = new BJSONWriter(again, true)) {
+                writer.setPrefixedStrings(true);
+                writer.writeBJSONNode((BJSONNode) reader.readBJSONNode());
+            }
+            assertArrayEquals(plain.toByteArray(), again.toByteArray());
+            for (int i = 0; i < records; ++i) {
+                assertEquals(i, (int) ((BJSONObject) reader.readBJSONNode()).getInt("id"));
+            }
+            assertEquals(null, reader.readBJSONNode());
+
+            int block = recordBlocks[records / 2];
+            reader.seekBlock(block);
+            int id = ((BJSONObject) reader.readBJSONNode()).getInt("id");
+            assertEquals(block, recordBlocks[id]);
+            assertEquals(true, id == 0 || recordBlocks[id - 1] < block);
+            reader.seekBlock(0);
+            assertEquals(document.getSize(), ((BJSONObject) reader.readBJSONNode()).getSize());
+        }
+        File.delete(filename);
+
+        File.writeAllText("not a container", filename, true);
+        try (BlockBJSONReader reader = new BlockBJSONReader(filename)) {
+            throw new AssertionError("Read a file which is not a container");
+        } catch (BJSONException expected) {
+        }
+        File.delete(filename);
+        Logger.print(" OK");
+    }
+
+    @Test
+    public void testBlockContainerStreamWriter() throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName());
+        String filename = "block_stream.bjson";
+        int records = 50;
+        int[] recordBlocks = new int[records];
+        BlockBJSONWriter blockWriter = new BlockBJSONWriter(filename, true, BJSONBlockCodecs.DEFLATE, 64);
+        try (BJSONStreamWriter writer = new BJSONStreamWriter(blockWriter)) {
+            for (int i = 0; i < records; ++i) {
+                recordBlocks[i] = blockWriter.getBlockCount();
+                writer.startObject().key("id").value(i).key("text").value("запись " + i).end();
+            }
+        }
+        try (BlockBJSONReader reader = new BlockBJSONReader(filename)) {
+            assertEquals(true, reader.getBlockCount() > 10);
+            int block = recordBlocks[records / 2];
+            reader.seekBlock(block);
+            int id = ((BJSONObject) reader.readBJSONNode()).getInt("id");
+            assertEquals(block, recordBlocks[id]);
+            assertEquals(true, id == 0 || recordBlocks[id - 1] < block);
+        }
+        File.delete(filename);
+        Logger.print(" OK");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testBlockContainerLongStrings(boolean prefixed) throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName() + "(" + prefixed + ")");
+        String filename = "block_strings.bjson";
+        String[] strings = {"x".repeat(5000), "ключ".repeat(1000), "short"};
+        try (BlockBJSONWriter writer = new BlockBJSONWriter(filename, true, BJSONBlockCodecs.DEFLATE, 1024)) {
+            writer.setPrefixedStrings(prefixed);
+            for (String str : strings) {
+                writer.writeBJSONNode(new BJSONObject().put("text", str).put("after", 42L));
+            }
+        }
+        try (BlockBJSONReader reader = new BlockBJSONReader(filename)) {
+            assertEquals(true, reader.getBlockCount() > 10);
+            for (String str : strings) {
+                BJSONObject object = (BJSONObject) reader.readBJSONNode();
+                assertEquals(str, object.getString("text"));
+                assertEquals(42L, (long) object.getLong("after"));
+            }
+            assertEquals(null, reader.readBJSONNode());
+        }
+        File.delete(filename);
+        Logger.print(" OK");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"big_obj.json", "big_array.json"})
+    public void testTranscoder(String filename) throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName() + "(" + filename + ")");
+        String text = File.readAllText(filename);
+        BJSONNode tree = filename.contains("obj") ? 
+                new BJSONObject(new JSONObject(text)) : 
+                new BJSONArray(new JSONArray(text));
+        byte[] expected = encode(tree);
+
+        String bjsonFile = "transcoded.bjson";
+        String jsonFile = "transcoded.json";
+        BJSONTranscoder.jsonToBJSON(filename, bjsonFile);
+        try (BJSONReader reader = new BJSONReader(bjsonFile)) {
+            assertArrayEquals(expected, encode((BJSONNode) reader.readBJSONNode()));
+        }
+
+        BJSONTranscoder.bjsonToJSON(bjsonFile, jsonFile);
+        String transcoded = File.readAllText(jsonFile);
+        BJSONNode parsed = filename.contains("obj") ? 
+                new BJSONObject(new JSONObject(transcoded)) : 
+                new BJSONArray(new JSONArray(transcoded));
+        assertArrayEquals(expected, encode(parsed));
+        File.delete(bjsonFile);
+        File.delete(jsonFile);
+
+        // several top level values, escapes, and values without a JSON form
+        StringWriter json = new StringWriter();
+        ByteArrayOutputStream bjson = new ByteArrayOutputStream();
+        try (BJSONStreamWriter writer = new BJSONStreamWriter(bjson)) {
+            BJSONTranscoder.transcode(new JSONStreamReader("{\"a\\\"\":[1,-2.5e3,12345678901,null,true]} \"line\\n\""), writer);
+            writer.value(new byte[] {1, 2, 3});
+            writer.value(BJSONPackedArray.of(4, 5));
+        }
+        BJSONTranscoder.transcode(new BJSONStreamReader(new ByteArrayInputStream(bjson.toByteArray())), json);
+        assertEquals("{\"a\\\"\":[1,-2500.0,12345678901,null,true]}\n\"line\\n\"\n\"AQID\"\n[4,5]\n", json.toString());
+        Logger.print(" OK");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testRecordArrays(boolean compact) throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName() + "(" + compact + ")");
+        BJSONArray records = new BJSONArray();
+        for (int i = 0; i < 200; ++i) {
+            BJSONObject record = new BJSONObject();
+            record.put("identifier", i);
+            record.put("name", "record " + i);
+            record.put("score", i / 4.0);
+            BJSONArray points = new BJSONArray();
+            for (int k = 0; k < 4; ++k) {
+                points.add(new BJSONObject().put("x", i + k).put("y", -k));
+            }
+            record.put("points", points);
+            records.add(record);
+        }
+        // items off the schema: missing key, other type, not an object
+        records.getJSONObject(50).remove("score");
+        records.getJSONObject(60).put("identifier", "sixty");
+        BJSONArray other = new BJSONArray();
+        for (int k = 0; k < 4; ++k) {
+            other.add(new BJSONObject().put("x", k));
+        }
+        records.set(70, other);
+        byte[] expected = encode(records);
+
+        String filename = "records_test.bjson";
+        try (BJSONWriter writer = new BJSONWriter(filename)) {
+            writer.setCompact(compact);
+            writer.setKeyDictionary(compact);
+            writer.setRecordArrays(true);
+            writer.writeBJSONNode(records);
+            writer.writeBJSONNode(new BJSONObject().put("last", true));
+        }
+        // keys are written once per array instead of once per record
+        assertEquals(true, Files.size(Paths.get(filename)) * 3 / 2 < expected.length);
+
+        try (BJSONReader reader = new BJSONReader(filename)) {
+            assertArrayEquals(expected, encode((BJSONNode) reader.readBJSONNode()));
+            assertEquals(true, ((BJSONObject) reader.readBJSONNode()).getBoolean("last"));
+        }
+
+        try (BJSONStreamReader reader = new BJSONStreamReader(filename)) {
+            assertEquals(BJSONEvent.START_ARRAY, reader.next());
+            assertEquals(BJSONType.RecordArray, reader.getType());
+            assertEquals(BJSONEvent.START_OBJECT, reader.next());
+            assertEquals(BJSONEvent.KEY, reader.next());
+            assertEquals("identifier", reader.getString());
+            assertEquals(BJSONEvent.VALUE, reader.next());
+            assertEquals(0, reader.getValue());
+            while (reader.next() != BJSONEvent.END_OBJECT) {
+                reader.skipChildren();
+            }
+            assertArrayEquals(encode(records.getJSONObject(1)), encode((BJSONNode) readNext(reader)));
+            assertEquals(BJSONEvent.START_OBJECT, reader.next());
+            reader.skipChildren();
+            for (int i = 3; i < 200; ++i) {
+                assertArrayEquals(encode((BJSONNode) records.get(i)), encode((BJSONNode) readNext(reader)));
+            }
+            assertEquals(BJSONEvent.END_ARRAY, reader.next());
+            assertEquals(BJSONEvent.START_OBJECT, reader.next());
+            reader.skipChildren();
+            assertEquals(null, reader.next());
+        }
+
+        try (BJSONStreamReader reader = new BJSONStreamReader(filename)) {
+            reader.next();
+            reader.skipChildren();
+            assertEquals(BJSONEvent.START_OBJECT, reader.next());
+            assertEquals(BJSONEvent.KEY, reader.next());
+            assertEquals("last", reader.getString());
+        }
+
+        try (MappedBJSONReader reader = new MappedBJSONReader(filename)) {
+            reader.lookup(reader.getStart(), 5);
+            throw new AssertionError("Looked up an item of a record array");
+        } catch (BJSONException e) {
+        }
+        // indexed containers take priority, so lookups keep working
+        try (BJSONWriter writer = new BJSONWriter(filename)) {
+            writer.setRecordArrays(true);
+            writer.setIndexedContainers(true);
+            writer.writeBJSONNode(records);
+        }
+        try (MappedBJSONReader reader = new MappedBJSONReader(filename)) {
+            long item = reader.lookup(reader.getStart(), 5);
+            assertArrayEquals(encode((BJSONNode) records.get(5)), encode((BJSONNode) reader.readBJSONNode(item)));
+        }
+        File.delete(filename);
+        Logger.print(" OK");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testColumns(boolean records) throws Exception {
+        Logger.printf(new Object(){}.getClass().getEnclosingMethod().getName() + "(" + records + ")");
+        BJSONArray rows = new BJSONArray();
+        for (int i = 0; i < 300; ++i) {
+            BJSONObject row = new BJSONObject();
+            row.put("identifier", i);
+            row.put("total", i * 10L);
+            row.put("price", i % 2 == 0 ? i : i / 2.0);
+            row.put("name", "row " + i);
+            row.put("active", i % 3 == 0);
+            row.put("mixed", i % 2 == 0 ? (Object) i : "odd");
+            rows.add(row);
+        }
+        rows.getJSONObject(10).remove("name");
+        rows.getJSONObject(20).put("identifier", (Object) null);
+        rows.getJSONObject(299).put("late", 1);
+
+        BJSONColumns columns = rows.toColumns();
+        checkColumns(columns);
+
+        String filename = "columns_test.bjson";
+        try (BJSONWriter writer = new BJSONWriter(filename)) {
+            writer.setRecordArrays(records);
+            writer.setIndexedContainers(!records);
+            writer.writeBJSONNode(rows);
+            writer.writeBJSONNode(new BJSONObject().put("identifier", 1));
+        }
+        try (BJSONReader reader = new BJSONReader(filename)) {
+            checkColumns(reader.readColumns());
+            try {
+                reader.readColumns();
+                throw new AssertionError("Read columns of an object");
+            } catch (BJSONException expected) {
+            }
+        }
+        File.delete(filename);
+        Logger.print(" OK");
+    }
+
+    private static void checkColumns(BJSONColumns columns) {
+        assertEquals(300, columns.getSize());
+        assertEquals("[identifier, total, price, name, active, mixed, late]", columns.getKeys().toString());
+        BJSONColumns.Column identifier = columns.getColumn("identifier");
+        assertEquals(BJSONColumns.ColumnType.INT, identifier.getType());
+        assertEquals(299, identifier.getInts()[299]);
+        assertEquals(true, identifier.isNull(20));
+        assertEquals(false, identifier.isNull(21));
+        assertEquals(1L << 20, identifier.getNulls()[0]);
+        assertEquals(2990L, columns.getColumn("total").getLongs()[299]);
+        BJSONColumns.Column price = columns.getColumn("price");
+        assertEquals(BJSONColumns.ColumnType.DOUBLE, price.getType());
+        assertEquals(298.0, price.getDoubles()[298], 0.0);
+        assertEquals(149.5, price.getDoubles()[299], 0.0);
+        BJSONColumns.Column name = columns.getColumn("name");
+        assertEquals(null, name.getStrings()[10]);
+        assertEquals(true, name.isNull(10));
+        assertEquals("row 11", name.get(11));
+        assertEquals(true, columns.getColumn("active").getBooleans()[3]);
+        BJSONColumns.Column mixed = columns.getColumn("mixed");
+        assertEquals(BJSONColumns.ColumnType.OBJECT, mixed.getType());
+        assertEquals(4, mixed.get(4));
+        assertEquals("odd", mixed.get(5));
+        BJSONColumns.Column late = columns.getColumn("late");
+        assertEquals(true, late.isNull(0));
+        assertEquals(false, late.isNull(299));
+        assertEquals(5, late.getNulls().length);
+        assertEquals(1L << 43, ~late.getNulls()[4] & ((1L << 44) - 1));
+        try {
+            late.getLongs();
+            throw new AssertionError("Read an INT column as longs");
+        } catch (BJSONException expected) {
+        }
+    }
+
+    private static Object readNext(BJSONStreamReader reader) throws Exception {
+        reader.next();
+        return reader.readNode();
+    }
+
+    private static byte[] encode(BJSONNode node) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BJSONWriter writer = new BJSONWriter(output, true)) {
+            writer.writeBJSONNode(node);
+        }
+        return output.toByteArray();
+    }
+
     public static void main(String[] args) throws Exception {
         BJSONTests tests = new BJSONTests();
         tests.testJSONArraytoBJSONConverter("studyareas_4M.json");
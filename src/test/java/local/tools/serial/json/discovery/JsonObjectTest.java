@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import local.tools.io.File;
 
 import static org.junit.Assert.*;
 
@@ -302,4 +303,48 @@ public class JsonObjectTest {
         assertEquals("DoubleDutch", user.getString("Company"));
         assertTrue(user.containsKey("Department"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void lazyObjectTest() throws Exception {
+        String text = File.readAllText("big_obj.json");
+        JSONObject eager = new JSONObject(text);
+        JSONObject lazy = new JSONObject(text, true);
+
+        JSONObject value = lazy.getJSONArray("results").getJSONObject(0).getJSONObject("value");
+        assertSame(value, lazy.getJSONArray("results").getJSONObject(0).getJSONObject("value"));
+        assertEquals(
+                eager.getJSONArray("results").getJSONObject(0).getJSONObject("value").getJSONArray("FeatureSet").toString(),
+                value.getJSONArray("FeatureSet").toString());
+        assertEquals(eager.toString(2), lazy.toString(2));
+    }
+
+    @Test
+    public void lazyViewsTest() throws JSONException {
+        String str = "{\"a\":{\"b\":[1,{\"c\":2}]},\"d\":[3],\"e\":5}";
+        JSONObject obj = new JSONObject(str, true);
+        for (Object value : obj.values()) {
+            assertFalse(value instanceof JSONLazyValue);
+        }
+        assertTrue(obj.remove("d") instanceof JSONArray);
+        JSONArray b = obj.getJSONObject("a").getJSONArray("b");
+        assertEquals(2, b.getJSONObject(1).getInt("c"));
+        for (Object item : new JSONArray("[[1],{\"x\":[2]}]", true)) {
+            assertFalse(item instanceof JSONLazyValue);
+        }
+    }
+
+    @Test
+    public void lazyRelaxedSyntaxTest() throws JSONException {
+        String str = "{a: {b: [it's, {c: 'x}]'}], /* } */ d: {e: \"[\\\"\"} # ]\n, f = [[1], {g: 2}]}}";
+        JSONObject eager = new JSONObject(str);
+        JSONObject lazy = new JSONObject(str, true);
+        assertEquals("x}]", lazy.getJSONObject("a").getJSONArray("b").getJSONObject(1).getString("c"));
+        assertEquals(eager.toString(), lazy.toString());
+    }
+
+    @Test
+    public void lazySyntaxErrorTest() {
+        assertThrows(JSONException.class, () -> new JSONObject("{\"a\":{\"b\":[1,2}}", true));
+        assertThrows(JSONException.class, () -> new JSONObject("{\"a\":{\"b\":\"x}}", true));
+    }
+}
@@ -0,0 +1,113 @@
+package local.tools.serial.json.discovery;
+
+import local.tools.io.File;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonStreamReaderTest {
+
+    @Test
+    public void eventsTest() {
+        String str = "{\"foo\":\"bar\",\"baz\":[42,3.5,true,null],\"oval\":{}}";
+        JSONStreamReader reader = new JSONStreamReader(str);
+        assertEquals(JSONEvent.START_OBJECT, reader.next());
+        assertEquals(JSONEvent.KEY, reader.next());
+        assertEquals("foo", reader.getString());
+        assertEquals(JSONEvent.VALUE_STRING, reader.next());
+        assertEquals("bar", reader.getString());
+        assertEquals(JSONEvent.KEY, reader.next());
+        assertEquals("baz", reader.getString());
+        assertEquals(JSONEvent.START_ARRAY, reader.next());
+        assertEquals(2, reader.getDepth());
+        assertEquals(JSONEvent.VALUE_NUMBER, reader.next());
+        assertEquals(42, reader.getNumber());
+        assertEquals(JSONEvent.VALUE_NUMBER, reader.next());
+        assertEquals(3.5, reader.getNumber());
+        assertEquals(JSONEvent.VALUE_TRUE, reader.next());
+        assertEquals(JSONEvent.VALUE_NULL, reader.next());
+        assertEquals(JSONEvent.END_ARRAY, reader.next());
+        assertEquals(JSONEvent.KEY, reader.next());
+        assertEquals(JSONEvent.START_OBJECT, reader.next());
+        assertEquals(JSONEvent.END_OBJECT, reader.next());
+        assertEquals(JSONEvent.END_OBJECT, reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void relaxedSyntaxTest() {
+        String str = "{ // comment\n 'single' : 'quoted', unquoted => value, /* block */ \"esc\": \"a\\u0041\\n\", arr: [1,,2,] }";
+        JSONObject obj = new JSONObject(new StringReader(str));
+        assertEquals("quoted", obj.getString("single"));
+        assertEquals("value", obj.getString("unquoted"));
+        assertEquals("aA\n", obj.getString("esc"));
+        JSONArray arr = obj.getJSONArray("arr");
+        assertEquals(3, arr.size());
+        assertNull(arr.get(1));
+        assertEquals(2, arr.get(2));
+    }
+
+    @Test
+    public void smallBufferTest() {
+        String str = "{\"foo\":\"a long string value which spans several buffers\",\"baz\":[1234567890123,-0.25e2]}";
+        JSONObject expected = new JSONObject(str);
+        JSONObject obj = new JSONObject(new JSONStreamReader(new StringReader(str), 3));
+        assertEquals(expected.toString(), obj.toString());
+        assertEquals(1234567890123L, obj.getJSONArray("baz").get(0));
+    }
+
+    @Test
+    public void skipChildrenTest() {
+        JSONStreamReader reader = new JSONStreamReader("{\"skip\":{\"a\":[1,{\"b\":2}]},\"take\":7}");
+        assertEquals(JSONEvent.START_OBJECT, reader.next());
+        assertEquals(JSONEvent.KEY, reader.next());
+        assertEquals(JSONEvent.START_OBJECT, reader.next());
+        reader.skipChildren();
+        assertEquals(JSONEvent.END_OBJECT, reader.getEvent());
+        assertEquals(JSONEvent.KEY, reader.next());
+        assertEquals("take", reader.getString());
+        assertEquals(JSONEvent.VALUE_NUMBER, reader.next());
+        assertEquals(7, reader.getNumber());
+    }
+
+    @Test
+    public void sequenceOfValuesTest() {
+        JSONStreamReader reader = new JSONStreamReader("{\"id\":1}\n{\"id\":2}\n");
+        assertEquals(1, new JSONObject(reader).getInt("id"));
+        assertEquals(2, new JSONObject(reader).getInt("id"));
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void syntaxErrorTest() {
+        assertThrows(JSONException.class, () -> new JSONObject(new StringReader("{\"foo\":1")));
+        assertThrows(JSONException.class, () -> new JSONObject(new StringReader("{\"foo\" 1}")));
+        assertThrows(JSONException.class, () -> new JSONArray(new StringReader("[1}")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"big_array.json", "big_array_p.json"})
+    public void readerArrayTest(String filename) throws Exception {
+        JSONArray expected = new JSONArray(File.readAllText(filename));
+        try (Reader reader = new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8)) {
+            assertEquals(expected.toString(), new JSONArray(reader).toString());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"big_obj.json", "big_obj_p.json"})
+    public void readerObjectTest(String filename) throws Exception {
+        JSONObject expected = new JSONObject(File.readAllText(filename));
+        try (Reader reader = new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8)) {
+            assertEquals(expected.toString(), new JSONObject(reader).toString());
+        }
+    }
+}
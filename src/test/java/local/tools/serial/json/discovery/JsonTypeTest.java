@@ -1,5 +1,7 @@
 package local.tools.serial.json.discovery;
 
+import java.io.StringReader;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -31,4 +33,57 @@ public class JsonTypeTest {
         assertTrue(arr.get(6) instanceof JSONArray);
         assertTrue(arr.get(7) instanceof String);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testNumberTypes() throws JSONException {
+        JSONArray arr = new JSONArray("[0, -0, 2147483647, 2147483648, -2147483648, -2147483649, " +
+                "9223372036854775807, -9223372036854775808, 9223372036854775808, 1.5, -0.25e1, .5, +7, 1E3]");
+        assertEquals(0, arr.get(0));
+        assertEquals(0, arr.get(1));
+        assertEquals(Integer.MAX_VALUE, arr.get(2));
+        assertEquals(2147483648L, arr.get(3));
+        assertEquals(Integer.MIN_VALUE, arr.get(4));
+        assertEquals(-2147483649L, arr.get(5));
+        assertEquals(Long.MAX_VALUE, arr.get(6));
+        assertEquals(Long.MIN_VALUE, arr.get(7));
+        assertEquals(9223372036854775808.0, arr.get(8));
+        assertEquals(1.5, arr.get(9));
+        assertEquals(-2.5, arr.get(10));
+        assertEquals(0.5, arr.get(11));
+        assertEquals(7, arr.get(12));
+        assertEquals(1000.0, arr.get(13));
+    }
+
+    @Test
+    public void testNonDecimalTokens() throws JSONException {
+        JSONArray arr = new JSONArray("[012, 0x1F, 09, 12abc, 1.2.3, 1e, -, 1e400, 5 ]");
+        assertEquals(10, arr.get(0));
+        assertEquals(31, arr.get(1));
+        assertEquals(9, arr.get(2));
+        assertEquals("12abc", arr.get(3));
+        assertEquals("1.2.3", arr.get(4));
+        assertEquals("1e", arr.get(5));
+        assertEquals("-", arr.get(6));
+        assertEquals(Double.POSITIVE_INFINITY, arr.get(7));
+        assertEquals(5, arr.get(8));
+    }
+
+    @Test
+    public void testDoubleRoundTrip() throws JSONException {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("[");
+        double[] expected = new double[1000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i % 2 == 0 ?
+                    random.nextDouble() * Math.pow(10, random.nextInt(40) - 20) :
+                    Math.round(random.nextDouble() * 1e6) / 1e3;
+            sb.append(i == 0 ? "" : ",").append(expected[i]);
+        }
+        JSONArray arr = new JSONArray(sb.append(']').toString());
+        JSONArray streamed = new JSONArray(new StringReader(sb.toString()));
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], arr.getDouble(i), 0.0);
+            assertEquals(expected[i], streamed.getDouble(i), 0.0);
+        }
+    }
+}
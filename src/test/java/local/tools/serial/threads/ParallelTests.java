@@ -4,6 +4,7 @@ import local.tools.encode.Hash;
 import local.tools.io.File;
 import local.tools.logs.Logger;
 import local.tools.threads.Parallel;
+import local.tools.threads.WorkerPool;
 import local.tools.time.StopWatch;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,12 +12,21 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class ParallelTests {
 
@@ -54,6 +64,270 @@ public class ParallelTests {
         Logger.debug("Left items: %d", items.size());
     }
 
+    @Test
+    public void test_ParallelRanges() {
+        Integer[] array = new Integer[10000];
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = i;
+        }
+        for (Iterable<Integer> items : List.of(Arrays.asList(array), new LinkedList<>(Arrays.asList(array)))) {
+            AtomicIntegerArray calls = new AtomicIntegerArray(array.length);
+            AtomicInteger errors = new AtomicInteger();
+            AtomicInteger finished = new AtomicInteger();
+            Parallel.For(items, 4, 64, new Parallel.Method<>() {
+                @Override
+                public void call(Integer item) throws Exception {
+                    calls.incrementAndGet(item);
+                    if (item % 1000 == 0) throw new IllegalStateException("item " + item);
+                }
+
+                @Override
+                public void onError(Exception e, Integer item) {
+                    errors.incrementAndGet();
+                }
+
+                @Override
+                public void onFinish(Integer item) {
+                    finished.incrementAndGet();
+                }
+            });
+            for (int i = 0; i < array.length; ++i) {
+                assertEquals(1, calls.get(i));
+            }
+            assertEquals(10, errors.get());
+            assertEquals(array.length - 10, finished.get());
+        }
+
+        AtomicInteger processed = new AtomicInteger();
+        Parallel.For(array, 4, 16, new Parallel.Method<>() {
+            @Override
+            public void call(Integer item) throws Exception {
+                if (item == 5000) throw new Parallel.BreakException();
+                processed.incrementAndGet();
+            }
+        });
+        assertEquals(true, processed.get() < array.length - 1);
+
+        // a break also ends the ranges already running
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger other = new AtomicInteger();
+        Parallel.For(array, 2, array.length / 2, new Parallel.Method<>() {
+            @Override
+            public void call(Integer item) throws Exception {
+                if (item == 0) {
+                    started.await(1, TimeUnit.SECONDS);
+                    throw new Parallel.BreakException();
+                }
+                if (item >= array.length / 2) {
+                    started.countDown();
+                    other.incrementAndGet();
+                    Thread.sleep(1);
+                }
+            }
+        });
+        assertEquals(true, other.get() < 100);
+    }
+
+    @Test
+    public void test_ParallelVirtual() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 400; ++i) {
+            items.add(i);
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        StopWatch sw = new StopWatch();
+        sw.start();
+        Parallel.ForVirtual(items, 100, new Parallel.Method<>() {
+            @Override
+            public void call(Integer item) throws Exception {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                running.decrementAndGet();
+            }
+
+            @Override
+            public void onFinish(Integer item) {
+                finished.incrementAndGet();
+            }
+        });
+        sw.stop();
+        Logger.debug("Virtual threads: %s, 400 blocking items: %s", Parallel.hasVirtualThreads(), sw);
+        assertEquals(400, finished.get());
+        assertEquals(true, peak.get() <= 100);
+        assertEquals(true, peak.get() > 1);
+
+        AtomicInteger processed = new AtomicInteger();
+        Parallel.ForVirtual(items, 1, new Parallel.Method<>() {
+            @Override
+            public void call(Integer item) throws Exception {
+                if (item == 10) throw new Parallel.BreakException();
+                processed.incrementAndGet();
+            }
+        });
+        assertEquals(10, processed.get());
+    }
+
+    @Test
+    public void test_ParallelMapReduce() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 10000; ++i) {
+            items.add(i);
+        }
+        List<Long> squares = Parallel.map(items, 4, 16, item -> (long) item * item);
+        assertEquals(items.size(), squares.size());
+        for (int i = 0; i < items.size(); ++i) {
+            assertEquals((long) i * i, (long) squares.get(i));
+        }
+        // other Iterables are copied first and keep their order too
+        assertEquals(Arrays.asList("0", "1", "2"), Parallel.map(new LinkedList<>(Arrays.asList(0, 1, 2)), String::valueOf));
+        assertEquals(Arrays.asList(2, 4, 6), Parallel.map(new Integer[] {1, 2, 3}, item -> item * 2));
+
+        long sum = Parallel.reduce(items, 4, 16, 0L, (partial, item) -> partial + item, Long::sum);
+        assertEquals(49995000L, sum);
+        // the combiner keeps the item order
+        String text = Parallel.reduce(Parallel.map(items.subList(0, 100), String::valueOf), 3, 4, "",
+                (partial, item) -> partial + item + ",", String::concat);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            expected.append(i).append(',');
+        }
+        assertEquals(expected.toString(), text);
+        assertEquals(7L, (long) Parallel.reduce(new ArrayList<Integer>(), 7L, (partial, item) -> partial + item, Long::sum));
+
+        AtomicIntegerArray seen = new AtomicIntegerArray(items.size());
+        Parallel.forEachIndexed(items, 4, 16, (index, item) -> {
+            assertEquals(index, (int) item);
+            seen.incrementAndGet(index);
+        });
+        for (int i = 0; i < items.size(); ++i) {
+            assertEquals(1, seen.get(i));
+        }
+        String[] names = {"a", "b", "c"};
+        String[] copy = new String[names.length];
+        Parallel.forEachIndexed(names, (index, item) -> copy[index] = item);
+        assertEquals(Arrays.asList(names), Arrays.asList(copy));
+
+        AtomicInteger processed = new AtomicInteger();
+        Parallel.forEachIndexed(items, 2, 10, (index, item) -> {
+            if (index == 0) throw new Parallel.BreakException();
+            processed.incrementAndGet();
+        });
+        assertEquals(true, processed.get() < items.size() - 1);
+        try {
+            Parallel.map(items, item -> 100 / (item - 5000));
+            throw new AssertionError("Expected the function exception");
+        } catch (ArithmeticException e) {
+            Logger.debug("Map failed with %s", e.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void test_WorkerPool() throws Exception {
+        try (WorkerPool pool = new WorkerPool("test-pool", 2, 2, WorkerPool.Rejection.ABORT)) {
+            CountDownLatch release = new CountDownLatch(1);
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; ++i) {
+                futures.add(pool.fork(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+            // two running, two queued, the fifth rejected
+            assertEquals(true, futures.get(4).isCompletedExceptionally());
+            assertEquals(1L, pool.getRejectedCount());
+            release.countDown();
+            for (int i = 0; i < 4; ++i) {
+                futures.get(i).get();
+            }
+            CompletableFuture<Integer> failing = pool.fork(() -> {
+                throw new IllegalStateException("failed");
+            });
+            try {
+                failing.get();
+                throw new AssertionError("Expected the task exception");
+            } catch (ExecutionException e) {
+                assertEquals(IllegalStateException.class, e.getCause().getClass());
+            }
+            assertEquals(42, (int) pool.fork(() -> 42).get());
+            assertEquals(7L, pool.getSubmittedCount());
+            assertEquals(5L, pool.getCompletedCount());
+            assertEquals(1L, pool.getFailedCount());
+            Logger.debug("%s", pool);
+        }
+
+        try (WorkerPool pool = new WorkerPool("test-caller", 1, 1, WorkerPool.Rejection.CALLER_RUNS)) {
+            CountDownLatch release = new CountDownLatch(1);
+            pool.fork(() -> {
+                release.await();
+                return null;
+            });
+            pool.fork(() -> null);
+            Thread caller = Thread.currentThread();
+            CompletableFuture<Boolean> inline = pool.fork(() -> Thread.currentThread() == caller);
+            release.countDown();
+            assertEquals(true, inline.get());
+        }
+
+        AtomicInteger forked = new AtomicInteger();
+        CompletableFuture<Void> all = Parallel.fork(forked::incrementAndGet, forked::incrementAndGet, forked::incrementAndGet);
+        all.get();
+        assertEquals(3, forked.get());
+        assertEquals(4, (int) Parallel.fork(forked::incrementAndGet, forked::get).get());
+
+        // runs of one start wait on each other, also with the pool busy and nested in a worker
+        WorkerPool previous = Parallel.getWorkerPool();
+        try (WorkerPool busy = new WorkerPool("test-busy", 2)) {
+            Parallel.setWorkerPool(busy);
+            SynchronousQueue<Integer> queue = new SynchronousQueue<>();
+            AtomicInteger received = new AtomicInteger();
+            Runnable producer = () -> {
+                try {
+                    for (int i = 1; i <= 3; ++i) {
+                        queue.put(i);
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+            Runnable consumer = () -> {
+                try {
+                    for (int i = 1; i <= 3; ++i) {
+                        received.addAndGet(queue.take());
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+            Parallel.start(() -> Parallel.start(producer, consumer), () -> Parallel.start(producer, consumer));
+            assertEquals(12, received.get());
+            CountDownLatch release = new CountDownLatch(1);
+            busy.fork(() -> {
+                release.await();
+                return null;
+            });
+            busy.fork(() -> {
+                release.await();
+                return null;
+            });
+            assertEquals(null, busy.tryFork(() -> null));
+            Parallel.start(producer, consumer);
+            assertEquals(18, received.get());
+            // fork waits in the pool queue instead of starting threads of its own
+            CompletableFuture<Void> queued = Parallel.fork(() -> received.addAndGet(100));
+            assertEquals(false, queued.isDone());
+            release.countDown();
+            queued.get();
+            assertEquals(118, received.get());
+        } finally {
+            Parallel.setWorkerPool(previous);
+        }
+    }
+
     @Test
     public void test_ParallelStart() throws Exception {
         {
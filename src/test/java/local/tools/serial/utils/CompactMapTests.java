@@ -0,0 +1,66 @@
+package local.tools.serial.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import local.tools.utils.CompactMap;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CompactMapTests {
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 40})
+    void testMatchesLinkedHashMap(int size) {
+        Map<String, Object> expected = new LinkedHashMap<>();
+        Map<String, Object> map = new CompactMap();
+        for (int i = 0; i < size; ++i) {
+            Object value;
+            switch (i % 6) {
+                case 0: value = i; break;
+                case 1: value = (long) i << 40; break;
+                case 2: value = i / 3.0; break;
+                case 3: value = i / 7.0f; break;
+                case 4: value = "value " + i; break;
+                default: value = null;
+            }
+            assertEquals(expected.put("key" + i, value), map.put("key" + i, value));
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(expected.toString(), map.toString());
+
+        // replacing keeps the order, also from a primitive to an object and back
+        assertEquals(expected.put("key0", "zero"), map.put("key0", "zero"));
+        assertEquals(expected.put("key4", 4), map.put("key4", 4));
+        assertEquals(expected.remove("key1"), map.remove("key1"));
+        assertEquals(expected.remove("key" + (size - 1)), map.remove("key" + (size - 1)));
+        assertEquals(null, map.remove("missing"));
+        assertEquals(false, map.containsKey("key1"));
+        assertEquals(true, map.containsKey("key2"));
+        assertEquals(expected.toString(), map.toString());
+
+        Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Object> entry = it.next();
+            if (entry.getValue() instanceof Double) {
+                it.remove();
+            } else if (entry.getValue() instanceof Long) {
+                entry.setValue(-1L);
+            }
+        }
+        expected.entrySet().removeIf(entry -> entry.getValue() instanceof Double);
+        expected.replaceAll((key, value) -> value instanceof Long ? (Object) (-1L) : value);
+        assertEquals(expected, map);
+        assertEquals(expected.toString(), map.toString());
+        for (String key : expected.keySet()) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(null, map.get("key2"));
+    }
+}